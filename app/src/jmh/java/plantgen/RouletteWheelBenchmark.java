@@ -0,0 +1,96 @@
+package plantgen;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of a roulette wheel spin: the allocation-free spin against the
+ * reference that draws from a new SplittableRandom, and the previous wheel that
+ * also copied the valid viabilities into new arrays.
+ * Run with ./gradlew jmh.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RouletteWheelBenchmark {
+    private static final int NUM_VECTORS = 1024;
+
+    @Param({ "7", "64", "512" })
+    public int numSpecies;
+
+    private RouletteWheel wheel;
+    private double[][] viabilities;
+    private int[] seeds;
+    private int next;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(1);
+        Species[] species = new Species[numSpecies];
+        for (int j = 0; j < numSpecies; j++) {
+            species[j] = new Species(new String[] { "Species " + j, "", "", "", "300", "18", "25", "-4", "0.2",
+                    "0.1", "0.3", "15", "8.25", "3.75", "27.5", "12.5", "19.25", "15.75", "0", "70" });
+        }
+        wheel = new RouletteWheel(species);
+
+        viabilities = new double[NUM_VECTORS][numSpecies];
+        seeds = new int[NUM_VECTORS];
+        for (int i = 0; i < NUM_VECTORS; i++) {
+            for (int j = 0; j < numSpecies; j++) {
+                viabilities[i][j] = random.nextDouble(-0.5, 1);
+            }
+            seeds[i] = random.nextInt();
+        }
+    }
+
+    @Benchmark
+    public int spin() {
+        int i = next++ & (NUM_VECTORS - 1);
+        return wheel.spin(viabilities[i], seeds[i]);
+    }
+
+    @Benchmark
+    public int reference() {
+        int i = next++ & (NUM_VECTORS - 1);
+        return wheel.selectSpecies(viabilities[i], new SplittableRandom(seeds[i]));
+    }
+
+    @Benchmark
+    public int copying() {
+        int i = next++ & (NUM_VECTORS - 1);
+        double[] v = viabilities[i];
+        int[] validSpecies = new int[v.length];
+        double[] validViabilities = new double[v.length];
+        int numValid = wheel.getValidViabilites(v, validSpecies, validViabilities);
+
+        double[] cumulative = new double[numValid + 1];
+        wheel.getCumulativeViability(validViabilities, cumulative);
+        if (cumulative[numValid] == 0) {
+            return -1;
+        }
+
+        SplittableRandom r = new SplittableRandom(seeds[i]);
+        double randomNum = r.nextDouble(0, cumulative[numValid]);
+        for (int k = 1; k <= numValid; k++) {
+            if (randomNum < cumulative[k]) {
+                return r.nextDouble(0, 1) < cumulative[k] - cumulative[k - 1] ? validSpecies[k - 1] : -1;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,107 @@
+package plantgen;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of how the per-point viability and placement cost scales with the
+ * size of the species catalogue, on a synthetic terrain and catalogue.
+ * Run with ./gradlew jmh.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpeciesScalingBenchmark {
+    private static final int DIM = 64;
+    private static final int NUM_POINTS = 1024;
+
+    @Param({ "7", "50", "500" })
+    public int numSpecies;
+
+    private ViabilityCalculator calculator;
+    private RouletteWheel wheel;
+    private float[] xs;
+    private float[] ys;
+    private double[][] viabilities;
+    private double[] out;
+    private int next;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(1);
+
+        Species[] species = new Species[numSpecies];
+        for (int i = 0; i < numSpecies; i++) {
+            species[i] = new Species(new String[] { "Species " + i, "", "", "", "300", "18", "25", "-4", "0.2",
+                    "0.1", "0.3", "15",
+                    String.valueOf(random.nextDouble(3, 8)), String.valueOf(random.nextDouble(3, 6)),
+                    String.valueOf(random.nextDouble(20, 40)), String.valueOf(random.nextDouble(9, 23)),
+                    String.valueOf(random.nextDouble(11, 20)), String.valueOf(random.nextDouble(15, 24)),
+                    "0", "70" });
+        }
+
+        double[][][] sun = new double[12][DIM][DIM];
+        double[][][] temp = new double[12][DIM][DIM];
+        double[][][] wet = new double[12][DIM][DIM];
+        double[][] slope = new double[DIM][DIM];
+        for (int m = 0; m < 12; m++) {
+            for (int x = 0; x < DIM; x++) {
+                for (int y = 0; y < DIM; y++) {
+                    sun[m][x][y] = random.nextDouble(0, 15);
+                    temp[m][x][y] = random.nextDouble(-5, 30);
+                    wet[m][x][y] = random.nextDouble(0, 80);
+                    slope[x][y] = random.nextDouble(0, 40);
+                }
+            }
+        }
+
+        Terrain terrain = new Terrain();
+        terrain.setDimX(DIM);
+        terrain.setDimY(DIM);
+        terrain.setNumMonths(12);
+        terrain.setSunlightData(TerrainRaster.fromLayers(sun));
+        terrain.setTemperatureData(TerrainRaster.fromLayers(temp));
+        terrain.setWetData(TerrainRaster.fromLayers(wet));
+
+        calculator = new ViabilityCalculator(terrain, species, slope);
+        wheel = new RouletteWheel(species);
+
+        xs = new float[NUM_POINTS];
+        ys = new float[NUM_POINTS];
+        viabilities = new double[NUM_POINTS][numSpecies];
+        for (int i = 0; i < NUM_POINTS; i++) {
+            xs[i] = (float) random.nextDouble(DIM - 1);
+            ys[i] = (float) random.nextDouble(DIM - 1);
+            calculator.calculateAverageViability(xs[i], ys[i], viabilities[i]);
+        }
+        out = new double[numSpecies];
+    }
+
+    @Benchmark
+    public double[] viability() {
+        int i = next++ & (NUM_POINTS - 1);
+        calculator.calculateAverageViability(xs[i], ys[i], out);
+        return out;
+    }
+
+    @Benchmark
+    public int placement() {
+        int i = next++ & (NUM_POINTS - 1);
+        return wheel.spin(viabilities[i], i);
+    }
+}
@@ -5,6 +5,9 @@ import java.awt.*;
 import java.io.File;
 
 import plantgen.Ecosystem;
+import plantgen.Precision;
+import plantgen.Sampler;
+import plantgen.SamplerType;
 import plantgen.WriteToJSON;
 
 import com.formdev.flatlaf.FlatLightLaf;
@@ -79,8 +82,20 @@ public class PlantGen {
 
         // Initialize ecosystem with the uploaded data
         Ecosystem es = new Ecosystem(filePaths, samplerArgs, seed, viabilityThreshold);
+        es.setPrecision(Precision.fromSystemProperty());
+        es.setCacheTerrain(Boolean.getBoolean("plantgen.terrainCache"));
+        es.setSamplerType(SamplerType.fromSystemProperty());
+        es.setMaxRejections(Integer.getInteger("plantgen.maxRejections", Sampler.DEFAULT_MAX_REJECTIONS));
+        es.setPrecomputeViability(Boolean.getBoolean("plantgen.viabilityRaster"));
+        es.setCacheViability(Boolean.getBoolean("plantgen.viabilityCache"));
+        es.setStampAbiotics(Boolean.getBoolean("plantgen.abioticStamp"));
+        es.setNeighbourAttributes(Boolean.getBoolean("plantgen.neighbourAttributes"));
+        es.setFillSlopeBorder(Boolean.getBoolean("plantgen.slopeBorder"));
         es.loadTerrainData();
         System.out.println("Terrain Data Loaded");
+        // The slope only needs the elevation, so derive it while the cohort ages
+        // are drawn
+        es.deriveSlopeAsync();
 
         System.out.println("Opening Drawing Panel");
 
@@ -111,24 +126,23 @@ public class PlantGen {
 
         long startTime = System.currentTimeMillis(); // Start timer
 
-        // Generate pink noise, derive slope, and assign plants
-        es.generatePinkNoise();
+        // Generate pink noise alongside the slope, then assign plants
+        es.generate();
         if (es.getPinkNoiseStatus()) {
             JOptionPane.showMessageDialog(null,
                     "Pink Noise generation failed. Please try again with valid parameters.");
             System.exit(0);
 
         }
-        es.deriveSlope();
-        es.assignPlants();
 
         long endTime = System.currentTimeMillis();
 
-        JOptionPane.showMessageDialog(null, "Generation Time: " + (endTime - startTime) + " milliseconds.");
+        showGenerationTime(es, endTime - startTime);
 
         System.out.println(es.getPlacedPlants().size()); // outputs number of plants
 
         System.out.println("Execution time: " + (endTime - startTime));
+        es.printPhaseTimes();
 
         // Save ecosystem data to JSON file
         JFileChooser fileChooser = new JFileChooser();
@@ -152,13 +166,13 @@ public class PlantGen {
             }
         }
 
-        PlotPinkNoise plotPinkNoise = new PlotPinkNoise(es.getCanopyCoords(), es.getUndergrowthCoords(),
-                es.getTerrain().getElevationData(), es.getTerrain().getMinElv(), es.getTerrain().getMaxElv());
+        PlotPinkNoise plotPinkNoise = new PlotPinkNoise(es.getPoints(), es.getTerrain().getElevationData(),
+                es.getTerrain().getMinElv(), es.getTerrain().getMaxElv());
 
         tabbedPane.addTab("Pink Noise Plot " + 1, plotPinkNoise);
         tabbedPane.setSelectedComponent(plotPinkNoise);
 
-        PlotPlantPlacement plotPlantPlacement = new PlotPlantPlacement(es.getPlacedPlants(),
+        PlotPlantPlacement plotPlantPlacement = new PlotPlantPlacement(es.getPlacedPlants(), es.getSpeciesData(),
                 es.getTerrain().getElevationData(), es.getTerrain().getMinElv(), es.getTerrain().getMaxElv());
 
         tabbedPane.addTab("Plant Placement Plot " + 1, plotPlantPlacement);
@@ -187,11 +201,23 @@ public class PlantGen {
             filePaths = fileUploadData2.getFilepaths();
 
             Ecosystem es1 = new Ecosystem(filePaths, samplerArgs, seed, viabilityThreshold);
+            es1.setPrecision(Precision.fromSystemProperty());
+            es1.setCacheTerrain(Boolean.getBoolean("plantgen.terrainCache"));
+            es1.setSamplerType(SamplerType.fromSystemProperty());
+            es1.setMaxRejections(Integer.getInteger("plantgen.maxRejections", Sampler.DEFAULT_MAX_REJECTIONS));
+            es1.setPrecomputeViability(Boolean.getBoolean("plantgen.viabilityRaster"));
+            es1.setCacheViability(Boolean.getBoolean("plantgen.viabilityCache"));
+            es1.setStampAbiotics(Boolean.getBoolean("plantgen.abioticStamp"));
+            es1.setNeighbourAttributes(Boolean.getBoolean("plantgen.neighbourAttributes"));
+            es1.setFillSlopeBorder(Boolean.getBoolean("plantgen.slopeBorder"));
             es1.loadTerrainData();
             System.out.println("Terrain Data Loaded");
+            // The slope only needs the elevation, so derive it while the cohort ages
+            // are drawn
+            es1.deriveSlopeAsync();
 
-            int newDimX = es1.getSunlight()[0].length;
-            int newDimY = es1.getSunlight()[0][0].length;
+            int newDimX = es1.getTerrain().getDimX();
+            int newDimY = es1.getTerrain().getDimY();
 
             if (newDimX != dimX || newDimY != dimY) {
                 drawingPanel = new Drawing(newDimX, newDimY);
@@ -220,24 +246,23 @@ public class PlantGen {
 
             startTime = System.currentTimeMillis(); // Start timer
 
-            // Generate pink noise, derive slope, and assign plants
-            es1.generatePinkNoise();
+            // Generate pink noise alongside the slope, then assign plants
+            es1.generate();
             if (es1.getPinkNoiseStatus()) {
                 JOptionPane.showMessageDialog(null,
                         "Pink Noise generation failed. Please try again with valid parameters.");
                 System.exit(0);
 
             }
-            es1.deriveSlope();
-            es1.assignPlants();
 
             endTime = System.currentTimeMillis();
 
-            JOptionPane.showMessageDialog(null, "Generation Time: " + (endTime - startTime) + " milliseconds.");
+            showGenerationTime(es1, endTime - startTime);
 
             System.out.println(es1.getPlacedPlants().size()); // outputs number of plants
 
             System.out.println("Execution time: " + (endTime - startTime));
+            es1.printPhaseTimes();
 
             // Save new ecosystem data to JSON file
             fileChooser = new JFileChooser();
@@ -263,13 +288,14 @@ public class PlantGen {
 
             // Plot pink noise and plant placement
 
-            plotPinkNoise = new PlotPinkNoise(es1.getCanopyCoords(), es1.getUndergrowthCoords(),
-                    es1.getTerrain().getElevationData(), es1.getTerrain().getMinElv(), es1.getTerrain().getMaxElv());
+            plotPinkNoise = new PlotPinkNoise(es1.getPoints(), es1.getTerrain().getElevationData(),
+                    es1.getTerrain().getMinElv(), es1.getTerrain().getMaxElv());
 
             tabbedPane.addTab("Pink Noise Plot " + timesRan, plotPinkNoise);
             tabbedPane.setSelectedComponent(plotPinkNoise);
 
-            plotPlantPlacement = new PlotPlantPlacement(es1.getPlacedPlants(), es1.getTerrain().getElevationData(),
+            plotPlantPlacement = new PlotPlantPlacement(es1.getPlacedPlants(), es1.getSpeciesData(),
+                    es1.getTerrain().getElevationData(),
                     es1.getTerrain().getMinElv(), es1.getTerrain().getMaxElv());
 
             tabbedPane.addTab("Plant Placement Plot " + timesRan, plotPlantPlacement);
@@ -277,4 +303,21 @@ public class PlantGen {
             app.setVisible(true);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Shows the generation time, and how many points could not be placed if
+     * any cells were saturated.
+     *
+     * @param es             the generated ecosystem
+     * @param generationTime the generation time in milliseconds
+     */
+    private static void showGenerationTime(Ecosystem es, long generationTime) {
+        String message = "Generation Time: " + generationTime + " milliseconds.";
+        if (es.getSamplingShortfall() > 0) {
+            message += "\n" + es.getSamplingShortfall()
+                    + " points did not fit their cells, see the shortfall report in the log.";
+        }
+
+        JOptionPane.showMessageDialog(null, message);
+    }
+}
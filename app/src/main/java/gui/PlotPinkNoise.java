@@ -14,19 +14,17 @@ import org.jfree.data.xy.XYSeriesCollection;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
 
 import javax.swing.JPanel;
 
-import plantgen.Coordinate;
+import plantgen.PointStore;
 
 /**
  * Class to plot the pink noise data
  */
 public class PlotPinkNoise extends JPanel {
 
-    private ArrayList<Coordinate> canopyCoords;
-    private ArrayList<Coordinate> undergrowthCoords;
+    private PointStore points;
     private double[][] elvData;
     private double minElv;
     private double maxElv;
@@ -36,16 +34,13 @@ public class PlotPinkNoise extends JPanel {
     /**
      * Constructor for PlotPinkNoise.
      *
-     * @param canopyCoords      List of coordinates representing the canopy.
-     * @param undergrowthCoords List of coordinates representing the undergrowth.
-     * @param elvData           2D array of elevation data.
-     * @param minElv            Minimum elevation value.
-     * @param maxElv            Maximum elevation value.
+     * @param points  Store of the canopy and undergrowth coordinates.
+     * @param elvData 2D array of elevation data.
+     * @param minElv  Minimum elevation value.
+     * @param maxElv  Maximum elevation value.
      */
-    public PlotPinkNoise(ArrayList<Coordinate> canopyCoords, ArrayList<Coordinate> undergrowthCoords,
-            double[][] elvData, double minElv, double maxElv) {
-        this.canopyCoords = canopyCoords;
-        this.undergrowthCoords = undergrowthCoords;
+    public PlotPinkNoise(PointStore points, double[][] elvData, double minElv, double maxElv) {
+        this.points = points;
         this.elvData = elvData;
         this.maxElv = maxElv;
         this.minElv = minElv;
@@ -86,18 +81,17 @@ public class PlotPinkNoise extends JPanel {
         XYSeries series1 = new XYSeries("canopy");
         XYSeries series2 = new XYSeries("undergrowth");
 
-        // Add canopy coordinates to the series
-        for (int i = 0; i < canopyCoords.size(); i++) {
-            series1.add(canopyCoords.get(i).getX(), canopyCoords.get(i).getY());
+        // Add canopy and undergrowth coordinates to their series
+        for (int i = 0; i < points.capacity(); i++) {
+            if (points.getLayer(i) == PointStore.CANOPY) {
+                series1.add(points.getX(i), points.getY(i));
+            } else if (points.getLayer(i) == PointStore.UNDERGROWTH) {
+                series2.add(points.getX(i), points.getY(i));
+            }
         }
 
         dataset.addSeries(series1);
 
-        // Add undergrowth coordinates to the series
-        for (int i = 0; i < undergrowthCoords.size(); i++) {
-            series2.add(undergrowthCoords.get(i).getX(), undergrowthCoords.get(i).getY());
-        }
-
         dataset.addSeries(series2);
         return dataset;
     }
@@ -20,14 +20,22 @@ import java.awt.BorderLayout;
 import java.awt.FlowLayout;
 
 import plantgen.Plant;
+import plantgen.Species;
 
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Class to plot the plant placement
  */
 public class PlotPlantPlacement extends JPanel {
-    private CopyOnWriteArrayList<Plant> plantPlacements;
+    // Colours of the first species
+    private static final Color[] PALETTE = { new Color(47, 79, 79), new Color(127, 0, 0), new Color(0, 100, 0),
+            new Color(255, 140, 0), new Color(222, 184, 135), new Color(221, 160, 221), new Color(0, 0, 205) };
+
+    private List<Plant> plantPlacements;
+    private Species[] species;
     private double[][] elvData;
     private double minElv;
     private double maxElv;
@@ -38,14 +46,16 @@ public class PlotPlantPlacement extends JPanel {
      * Constructor to initialize the PlotPlantPlacement panel.
      * 
      * @param plantPlacements List of plant placements.
+     * @param species         The species, in plotting order.
      * @param elvData         Elevation data.
      * @param minElv          Minimum elevation.
      * @param maxElv          Maximum elevation.
      */
 
-    public PlotPlantPlacement(CopyOnWriteArrayList<Plant> plantPlacements, double[][] elvData, double minElv,
+    public PlotPlantPlacement(List<Plant> plantPlacements, Species[] species, double[][] elvData, double minElv,
             double maxElv) {
         this.plantPlacements = plantPlacements;
+        this.species = species;
         this.elvData = elvData;
         this.maxElv = maxElv;
         this.minElv = minElv;
@@ -77,28 +87,22 @@ public class PlotPlantPlacement extends JPanel {
 
     /**
      * Method to create the dataset for the plot.
-     * Each plant has an undergrowth and canopy series.
+     * Each plant has an undergrowth and canopy series, in species order.
      * 
      * @return XYDataset containing the plant placement data.
      */
     private XYDataset createDataset() {
         XYSeriesCollection dataset = new XYSeriesCollection();
 
-        XYSeries boxwoodUndergrowth = new XYSeries("boxwoodUndergrowth");
-        XYSeries snowUndergrowth = new XYSeries("snowUndergrowth");
-        XYSeries mountainUndergrowth = new XYSeries("mountainUndergrowth");
-        XYSeries silvUndergrowth = new XYSeries("silvUndergrowth");
-        XYSeries birchUndergrowth = new XYSeries("birchUndergrowth");
-        XYSeries oakUndergrowth = new XYSeries("oakUndergrowth");
-        XYSeries beechUndergrowth = new XYSeries("beechUndergrowth");
-
-        XYSeries boxwoodCanopy = new XYSeries("boxwoodCanopy");
-        XYSeries snowCanopy = new XYSeries("snowCanopy");
-        XYSeries mountainCanopy = new XYSeries("mountainCanopy");
-        XYSeries silvCanopy = new XYSeries("silvCanopy");
-        XYSeries birchCanopy = new XYSeries("birchCanopy");
-        XYSeries oakCanopy = new XYSeries("oakCanopy");
-        XYSeries beechCanopy = new XYSeries("beechCanopy");
+        // Undergrowth and canopy series of each species, by name
+        Map<String, XYSeries[]> seriesByName = new HashMap<>();
+        for (Species s : species) {
+            XYSeries undergrowth = new XYSeries(s.getName() + " undergrowth");
+            XYSeries canopy = new XYSeries(s.getName() + " canopy");
+            seriesByName.put(s.getName(), new XYSeries[] { undergrowth, canopy });
+            dataset.addSeries(undergrowth);
+            dataset.addSeries(canopy);
+        }
 
         int undergrowthCount = 0;
         int canopyCount = 0;
@@ -106,104 +110,19 @@ public class PlotPlantPlacement extends JPanel {
         // Iterate through plant placements and add to respective series
         for (int i = 0; i < plantPlacements.size(); i++) {
             Plant plant = plantPlacements.get(i);
-            String plantName = plant.getSpecies();
-            boolean canopy = plant.getCanopy();
-
-            // switch statement to check what plant and plant type the coordinate relates to
-            switch (plantName) {
-                case "Boxwood":
-                    if (canopy) {
-                        boxwoodCanopy.add(plant.getPosition().getX(), plant.getPosition().getY());
-                        canopyCount++;
-                        break;
-                    }
-                    boxwoodUndergrowth.add(plant.getPosition().getX(), plant.getPosition().getY());
-                    undergrowthCount++;
-                    break;
-
-                case "Snowy Mespilus":
-                    if (canopy) {
-                        snowCanopy.add(plant.getPosition().getX(), plant.getPosition().getY());
-                        canopyCount++;
-                        break;
-                    }
-                    snowUndergrowth.add(plant.getPosition().getX(), plant.getPosition().getY());
-                    undergrowthCount++;
-                    break;
-
-                case "Mountain Pine":
-                    if (canopy) {
-                        mountainCanopy.add(plant.getPosition().getX(), plant.getPosition().getY());
-                        canopyCount++;
-                        break;
-                    }
-                    mountainUndergrowth.add(plant.getPosition().getX(), plant.getPosition().getY());
-                    undergrowthCount++;
-                    break;
-
-                case "Silve Fir":
-                    if (canopy) {
-                        silvCanopy.add(plant.getPosition().getX(), plant.getPosition().getY());
-                        canopyCount++;
-                        break;
-                    }
-                    silvUndergrowth.add(plant.getPosition().getX(), plant.getPosition().getY());
-                    undergrowthCount++;
-                    break;
-
-                case "Silver Birch":
-                    if (canopy) {
-                        birchCanopy.add(plant.getPosition().getX(), plant.getPosition().getY());
-                        canopyCount++;
-                        break;
-                    }
-                    birchUndergrowth.add(plant.getPosition().getX(), plant.getPosition().getY());
-                    undergrowthCount++;
-                    break;
-
-                case "Sessile Oak":
-                    if (canopy) {
-                        oakCanopy.add(plant.getPosition().getX(), plant.getPosition().getY());
-                        canopyCount++;
-                        break;
-                    }
-                    oakUndergrowth.add(plant.getPosition().getX(), plant.getPosition().getY());
-                    undergrowthCount++;
-                    break;
-
-                case "European Beech":
-                    if (canopy) {
-                        beechCanopy.add(plant.getPosition().getX(), plant.getPosition().getY());
-                        canopyCount++;
-                        break;
-                    }
-                    beechUndergrowth.add(plant.getPosition().getX(), plant.getPosition().getY());
-                    undergrowthCount++;
-                    break;
+            XYSeries[] series = seriesByName.get(plant.getSpecies());
+            if (series == null) {
+                continue;
             }
-        }
-
-        // Add series to dataset
-        dataset.addSeries(boxwoodUndergrowth);
-        dataset.addSeries(boxwoodCanopy);
-
-        dataset.addSeries(snowUndergrowth);
-        dataset.addSeries(snowCanopy);
-
-        dataset.addSeries(mountainUndergrowth);
-        dataset.addSeries(mountainCanopy);
-
-        dataset.addSeries(silvUndergrowth);
-        dataset.addSeries(silvCanopy);
-
-        dataset.addSeries(birchUndergrowth);
-        dataset.addSeries(birchCanopy);
-
-        dataset.addSeries(oakUndergrowth);
-        dataset.addSeries(oakCanopy);
 
-        dataset.addSeries(beechUndergrowth);
-        dataset.addSeries(beechCanopy);
+            if (plant.getCanopy()) {
+                series[1].add(plant.getPosition().getX(), plant.getPosition().getY());
+                canopyCount++;
+            } else {
+                series[0].add(plant.getPosition().getX(), plant.getPosition().getY());
+                undergrowthCount++;
+            }
+        }
 
         // Add statistics panel
         addStatsPanel(plantPlacements.size(), undergrowthCount, canopyCount);
@@ -211,6 +130,22 @@ public class PlotPlantPlacement extends JPanel {
         return dataset;
     }
 
+    /**
+     * Method to return the colour of a species.
+     * The first species use a fixed palette, the rest are spread around the
+     * colour wheel.
+     * 
+     * @param i index of the species
+     * @return the colour
+     */
+    private static Color getSpeciesColour(int i) {
+        if (i < PALETTE.length) {
+            return PALETTE[i];
+        }
+        // Golden angle steps keep neighbouring indices apart
+        return Color.getHSBColor((float) ((i * 0.381966) % 1.0), 0.8f, 0.8f);
+    }
+
     /**
      * Method to set up the chart and panels.
      */
@@ -224,52 +159,15 @@ public class PlotPlantPlacement extends JPanel {
 
         XYItemRenderer renderer = new XYLineAndShapeRenderer(false, true); // false for no lines, true for shapes
 
-        // Define colors for each plant type
-        Color boxwoodColour = new Color(47, 79, 79);
-        Color snowColour = new Color(127, 0, 0);
-        Color mountainColour = new Color(0, 100, 0);
-        Color silvColour = new Color(255, 140, 0);
-        Color birchColour = new Color(222, 184, 135);
-        Color oakColour = new Color(221, 160, 221);
-        Color beechColour = new Color(0, 0, 205);
-
-        // Set colors for each series
-        renderer.setSeriesPaint(0, boxwoodColour);
-        renderer.setSeriesPaint(1, boxwoodColour);
-        renderer.setSeriesPaint(2, snowColour);
-        renderer.setSeriesPaint(3, snowColour);
-        renderer.setSeriesPaint(4, mountainColour);
-        renderer.setSeriesPaint(5, mountainColour);
-        renderer.setSeriesPaint(6, silvColour);
-        renderer.setSeriesPaint(7, silvColour);
-        renderer.setSeriesPaint(8, birchColour);
-        renderer.setSeriesPaint(9, birchColour);
-        renderer.setSeriesPaint(10, oakColour);
-        renderer.setSeriesPaint(11, oakColour);
-        renderer.setSeriesPaint(12, beechColour);
-        renderer.setSeriesPaint(13, beechColour);
-
-        // Set shapes for each series
-        renderer.setSeriesShape(0, new java.awt.geom.Rectangle2D.Double(-3, -3, 6, 6)); // Boxwood Undergrowth (square)
-        renderer.setSeriesShape(1, new java.awt.geom.Ellipse2D.Double(-3, -3, 6, 6)); // Boxwood Canopy (circle)
-
-        renderer.setSeriesShape(2, new java.awt.geom.Rectangle2D.Double(-3, -3, 6, 6)); // Snow Undergrowth (square)
-        renderer.setSeriesShape(3, new java.awt.geom.Ellipse2D.Double(-3, -3, 6, 6)); // Snow Canopy (circle)
-
-        renderer.setSeriesShape(4, new java.awt.geom.Rectangle2D.Double(-3, -3, 6, 6)); // Mountain Undergrowth (square)
-        renderer.setSeriesShape(5, new java.awt.geom.Ellipse2D.Double(-3, -3, 6, 6)); // Mountain Canopy (circle)
-
-        renderer.setSeriesShape(6, new java.awt.geom.Rectangle2D.Double(-3, -3, 6, 6)); // Silv Undergrowth (square)
-        renderer.setSeriesShape(7, new java.awt.geom.Ellipse2D.Double(-3, -3, 6, 6)); // Silv Canopy (circle)
-
-        renderer.setSeriesShape(8, new java.awt.geom.Rectangle2D.Double(-3, -3, 6, 6)); // Birch Undergrowth (square)
-        renderer.setSeriesShape(9, new java.awt.geom.Ellipse2D.Double(-3, -3, 6, 6)); // Birch Canopy (circle)
-
-        renderer.setSeriesShape(10, new java.awt.geom.Rectangle2D.Double(-3, -3, 6, 6)); // Oak Undergrowth (square)
-        renderer.setSeriesShape(11, new java.awt.geom.Ellipse2D.Double(-3, -3, 6, 6)); // Oak Canopy (circle)
-
-        renderer.setSeriesShape(12, new java.awt.geom.Rectangle2D.Double(-3, -3, 6, 6)); // Beech Undergrowth (square)
-        renderer.setSeriesShape(13, new java.awt.geom.Ellipse2D.Double(-3, -3, 6, 6)); // Beech Canopy (circle)
+        // Set colours and shapes for each series: undergrowth as squares and
+        // canopy as circles
+        for (int i = 0; i < species.length; i++) {
+            Color colour = getSpeciesColour(i);
+            renderer.setSeriesPaint(2 * i, colour);
+            renderer.setSeriesPaint(2 * i + 1, colour);
+            renderer.setSeriesShape(2 * i, new java.awt.geom.Rectangle2D.Double(-3, -3, 6, 6));
+            renderer.setSeriesShape(2 * i + 1, new java.awt.geom.Ellipse2D.Double(-3, -3, 6, 6));
+        }
 
         XYPlot plot = (XYPlot) chart.getPlot();
 
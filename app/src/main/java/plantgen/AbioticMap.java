@@ -1,9 +1,6 @@
 package plantgen;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.Arrays;
 
 /**
  * AbioticMap inherits from DataMap.
@@ -11,15 +8,16 @@ import java.util.Arrays;
  */
 public class AbioticMap extends DataMap {
     private int numMonths = 12;
-    private double[][][] data;
-    private double[][][] originalData;
+    private Precision precision = Precision.DOUBLE;
+    private TerrainRaster data;
+    private TerrainRaster originalData;
 
     /**
      * Method to return the abiotic data
      * 
      * @return abiotic data
      */
-    public double[][][] getData() {
+    public TerrainRaster getData() {
         return this.data;
     }
 
@@ -29,7 +27,7 @@ public class AbioticMap extends DataMap {
      * 
      * @param d abiotic data
      */
-    public void setData(double[][][] d) {
+    public void setData(TerrainRaster d) {
         this.data = d;
     }
 
@@ -38,7 +36,7 @@ public class AbioticMap extends DataMap {
      * 
      * @return the original data
      */
-    public double[][][] getOriginalData() {
+    public TerrainRaster getOriginalData() {
         return this.originalData;
     }
 
@@ -48,43 +46,32 @@ public class AbioticMap extends DataMap {
      * originalData field.
      */
     public void copyData() {
-        double[][][] copy = new double[this.data.length][][];
-        for (int i = 0; i < this.data.length; i++) {
-            copy[i] = new double[this.data[i].length][];
-            for (int j = 0; j < this.data[i].length; j++) {
-                copy[i][j] = Arrays.copyOf(this.data[i][j], this.data[i][j].length);
-            }
-        }
-
-        this.originalData = copy;
+        this.originalData = this.data.copy();
     }
 
     /**
      * Method to read in the abiotic data from a file.
-     * The file should contain data in a specific format where the second line
-     * contains space-separated values.
+     * The file should contain a header line followed by space-separated values
+     * in [month][x][y] order, which are streamed straight into the raster.
      * 
      * @param filepath the path to the file containing the abiotic data.
      */
     @Override
     public void readData(String filepath) {
-        double[][][] abioticData = new double[numMonths][dimX][dimY];
+        TerrainRaster abioticData = TerrainRaster.create(dimX, dimY, numMonths, precision);
 
-        try {
-            String content = new String(Files.readAllBytes(Paths.get(filepath)));
-            String[] dataLines = content.split("\n");
-            String[] dataList = dataLines[1].split(" ");
-            int fileIndex = 0;
+        try (NumberReader reader = NumberReader.open(filepath)) {
+            reader.skipLine();
 
             for (int month = 0; month < numMonths; month++) {
                 for (int x = 0; x < dimX; x++) {
                     for (int y = 0; y < dimY; y++) {
-                        abioticData[month][x][y] = Double.parseDouble(dataList[fileIndex]);
-                        fileIndex++;
+                        abioticData.set(x, y, month, reader.nextDouble());
                     }
                 }
             }
 
+            reader.printThroughput(filepath);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -101,4 +88,13 @@ public class AbioticMap extends DataMap {
     public void setNumMonths(int numMonths) {
         this.numMonths = numMonths;
     }
+
+    /**
+     * Method to set the storage precision of the data read
+     * 
+     * @param precision the storage precision
+     */
+    public void setPrecision(Precision precision) {
+        this.precision = precision;
+    }
 }
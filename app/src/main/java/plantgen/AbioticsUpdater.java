@@ -1,6 +1,6 @@
 package plantgen;
 
-import java.util.ArrayList;
+import java.util.function.DoubleUnaryOperator;
 
 /**
  * Class to update the abiotics of the terrain once a plant is placed
@@ -24,35 +24,8 @@ public class AbioticsUpdater {
      * @param leafTransparency the species leaf transparency
      * @return the updated sunlight data
      */
-    public double[][][] updateSunlight(double[][][] sunlight, Plant p, double leafTransparency) {
-        double updateDistance = 1.5 * p.getCanopyRadius();
-
-        Coordinate position = p.getPosition();
-        Cell c = grid.findCell(Math.round(position.getX()), Math.round(position.getY()));
-
-        ArrayList<Coordinate> coordsToCheck = new ArrayList<>();
-
-        // Add coordinates from the cell's canopy and undergrowth
-        coordsToCheck.addAll(c.canopyCoords);
-        coordsToCheck.addAll(c.undergrowthCoords);
-
-        // Add coordinates from neighboring cells' canopy and undergrowth
-        for (Cell n : c.neighbours.values()) {
-            coordsToCheck.addAll(n.canopyCoords);
-            coordsToCheck.addAll(n.undergrowthCoords);
-        }
-
-        // Update sunlight data for coordinates within the update distance
-        for (Coordinate coord : coordsToCheck) {
-            if (coord.distanceFrom(position) < updateDistance) {
-                int x = Math.round(coord.getX());
-                int y = Math.round(coord.getY());
-                for (int m = 0; m < 12; m++) {
-                    sunlight[m][x][y] *= leafTransparency;
-                }
-            }
-        }
-
+    public TerrainRaster updateSunlight(TerrainRaster sunlight, Plant p, double leafTransparency) {
+        updateWithin(sunlight, p, value -> value * leafTransparency);
         return sunlight;
     }
 
@@ -66,36 +39,59 @@ public class AbioticsUpdater {
      * @param moistureAbsorption the species moisture absorption data
      * @return the updated moisture data
      */
-    public double[][][] updateMoisture(double[][][] moisture, Plant p, double moistureAbsorption) {
+    public TerrainRaster updateMoisture(TerrainRaster moisture, Plant p, double moistureAbsorption) {
+        updateWithin(moisture, p, value -> value - moistureAbsorption);
+        return moisture;
+    }
+
+    /**
+     * Applies an update to every month of the pixels of the canopy and
+     * undergrowth coordinates within 1.5 canopy radii of a plant.
+     * Only the plant's cell and its neighbours are scanned, straight from the
+     * point store.
+     * 
+     * @param data   the abiotic data to update
+     * @param p      the plant that's being placed
+     * @param update the update to apply to each value
+     */
+    private void updateWithin(TerrainRaster data, Plant p, DoubleUnaryOperator update) {
         double updateDistance = 1.5 * p.getCanopyRadius();
 
         Coordinate position = p.getPosition();
         Cell c = grid.findCell(Math.round(position.getX()), Math.round(position.getY()));
 
-        ArrayList<Coordinate> coordsToCheck = new ArrayList<>();
-
-        // Add coordinates from the cell's canopy and undergrowth
-        coordsToCheck.addAll(c.canopyCoords);
-        coordsToCheck.addAll(c.undergrowthCoords);
-
-        // Add coordinates from neighboring cells' canopy and undergrowth
-        for (Cell n : c.neighbours.values()) {
-            coordsToCheck.addAll(n.canopyCoords);
-            coordsToCheck.addAll(n.undergrowthCoords);
+        // The cell's canopy and undergrowth, then its neighbours'
+        updateRange(data, position, updateDistance, update, c.getPoints(), c.getCanopyStart(), c.getCanopyCount());
+        updateRange(data, position, updateDistance, update, c.getPoints(), c.getUndergrowthStart(),
+                c.getUndergrowthCount());
+        for (Cell n : c.neighbours) {
+            if (n == null) {
+                continue;
+            }
+            updateRange(data, position, updateDistance, update, n.getPoints(), n.getCanopyStart(),
+                    n.getCanopyCount());
+            updateRange(data, position, updateDistance, update, n.getPoints(), n.getUndergrowthStart(),
+                    n.getUndergrowthCount());
         }
+    }
 
-        // Update moisture data for coordinates within the update distance
-        for (Coordinate coord : coordsToCheck) {
-            if (coord.distanceFrom(position) < updateDistance) {
-                int x = Math.round(coord.getX());
-                int y = Math.round(coord.getY());
-                for (int m = 0; m < 12; m++) {
-                    moisture[m][x][y] -= moistureAbsorption;
+    /**
+     * Applies an update to the pixels of a range of points that are within the
+     * update distance of the plant's position.
+     */
+    private static void updateRange(TerrainRaster data, Coordinate position, double updateDistance,
+            DoubleUnaryOperator update, PointStore points, int start, int count) {
+        int numMonths = data.getNumLayers();
+        for (int i = start; i < start + count; i++) {
+            double dx = points.getX(i) - position.getX();
+            double dy = points.getY(i) - position.getY();
+            if (Math.sqrt(dx * dx + dy * dy) < updateDistance) {
+                int pixel = data.index(Math.round(points.getX(i)), Math.round(points.getY(i)));
+                for (int m = 0; m < numMonths; m++) {
+                    data.set(pixel + m, update.applyAsDouble(data.get(pixel + m)));
                 }
             }
         }
-
-        return moisture;
     }
 
     /**
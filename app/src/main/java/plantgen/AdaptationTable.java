@@ -0,0 +1,147 @@
+package plantgen;
+
+/**
+ * Piecewise-linear table of the adaptation function
+ * (1 + s) * e^((d / r)^4.5 * ln(s)) - s, with s the maximum stress value.
+ * The function only depends on q = d / r, so one table over q serves every
+ * species and factor. Beyond the end of the table the function is within the
+ * error bound of -s, so any distance can be looked up, including those of
+ * abiotic values changed by placed plants.
+ * The table is refined until interpolation stays within the error bound.
+ */
+public class AdaptationTable {
+    public static final double DEFAULT_MAX_ERROR = 1e-6;
+
+    private static final double MAX_STRESS = 0.2;
+    private static final double LOG_STRESS = Math.log(MAX_STRESS);
+
+    private final double maxError;
+    private final double qMax;
+    private final double invStep;
+    private final int intervals;
+
+    // Value at the start of each interval and slope over it, with a last
+    // entry of -s and 0 for distances past the end of the table
+    private final double[] values;
+    private final double[] slopes;
+
+    /**
+     * Constructs a table with the given error bound.
+     *
+     * @param maxError largest absolute difference from the exact function
+     */
+    public AdaptationTable(double maxError) {
+        if (!(maxError > 0)) {
+            throw new IllegalArgumentException("The error bound must be positive: " + maxError);
+        }
+        this.maxError = maxError;
+
+        // (1 + s) * s^(q^4.5) + s is below half the bound past qMax
+        this.qMax = Math.pow(Math.log(maxError / 2 / (1 + MAX_STRESS)) / LOG_STRESS, 1 / 4.5);
+
+        int n = 64;
+        double[] samples = sample(n);
+        while (interpolationError(samples, n) > maxError) {
+            n *= 2;
+            samples = sample(n);
+        }
+
+        this.intervals = n;
+        this.invStep = n / qMax;
+        this.values = new double[n + 1];
+        this.slopes = new double[n + 1];
+        for (int i = 0; i < n; i++) {
+            values[i] = samples[i];
+            slopes[i] = samples[i + 1] - samples[i];
+        }
+        values[n] = -MAX_STRESS;
+    }
+
+    /**
+     * Creates a table with the bound set by the plantgen.viabilityTableError
+     * system property, or DEFAULT_MAX_ERROR.
+     *
+     * @return the table
+     */
+    public static AdaptationTable fromSystemProperty() {
+        String bound = System.getProperty("plantgen.viabilityTableError");
+        return new AdaptationTable(bound == null ? DEFAULT_MAX_ERROR : Double.parseDouble(bound.trim()));
+    }
+
+    /**
+     * Returns the exact adaptation function of q, as calculated by
+     * {@link ViabilityCalculator#adaptationFunction}.
+     *
+     * @param q distance from the ideal value divided by the response
+     * @return the adaptation value
+     */
+    public static double exact(double q) {
+        double eExp = Math.pow(q, 4.5) * LOG_STRESS;
+        return ((1 + MAX_STRESS) * Math.pow(Math.E, eExp)) - MAX_STRESS;
+    }
+
+    /**
+     * Looks up the adaptation function of q.
+     *
+     * @param q distance from the ideal value divided by the response, not
+     *          negative
+     * @return the adaptation value, within the error bound
+     */
+    public double evaluate(double q) {
+        double t = q * invStep;
+        int i = (int) t;
+        if (i >= intervals) {
+            return -MAX_STRESS;
+        }
+
+        return values[i] + (t - i) * slopes[i];
+    }
+
+    /**
+     * Samples the exact function at n + 1 evenly spaced points over [0, qMax].
+     */
+    private double[] sample(int n) {
+        double[] values = new double[n + 1];
+        for (int i = 0; i <= n; i++) {
+            values[i] = exact(qMax * i / n);
+        }
+        return values;
+    }
+
+    /**
+     * Returns the largest difference between the exact function and linear
+     * interpolation of the samples, checked at several points per interval.
+     */
+    private double interpolationError(double[] values, int n) {
+        double max = 0;
+        for (int i = 0; i < n; i++) {
+            for (int k = 1; k < 4; k++) {
+                double frac = k / 4.0;
+                double q = qMax * (i + frac) / n;
+                double interpolated = values[i] + frac * (values[i + 1] - values[i]);
+                max = Math.max(max, Math.abs(interpolated - exact(q)));
+            }
+        }
+
+        // Past the end of the table the function is taken as -s
+        return Math.max(max, Math.abs(exact(qMax) + MAX_STRESS));
+    }
+
+    /**
+     * Returns the error bound of the table.
+     *
+     * @return largest absolute difference from the exact function
+     */
+    public double getMaxError() {
+        return this.maxError;
+    }
+
+    /**
+     * Returns the number of intervals of the table.
+     *
+     * @return number of intervals
+     */
+    public int size() {
+        return this.intervals;
+    }
+}
@@ -1,7 +1,8 @@
 package plantgen;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.SplittableRandom;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Class to calculate the attributes of a placed plant
@@ -35,7 +36,8 @@ public class AttributeCalculator {
     }
 
     /**
-     * Method to calculate the attributes of a plant to be placed.
+     * Method to calculate the attributes of a plant to be placed, without
+     * taking its neighbours into account.
      * 
      * @param vigour      the viability of the plant
      * @param plant       the plant itself
@@ -43,13 +45,32 @@ public class AttributeCalculator {
      * @param gridSpacing the grid spacing
      * @param seed        the seed for random number generation
      */
-    public void calculateAttributes(double vigour, Plant plant, CopyOnWriteArrayList<Plant> placed, double gridSpacing,
+    public void calculateAttributes(double vigour, Plant plant, List<Plant> placed, double gridSpacing,
+            int seed) {
+        calculateAttributes(vigour, plant, (PlantIndex) null, gridSpacing, seed);
+    }
+
+    /**
+     * Method to calculate the attributes of a plant to be placed.
+     * The plant grows in closed conditions if its vigour is above the
+     * viability threshold, or if it stands under the canopy of a canopy plant
+     * that has been placed already.
+     * 
+     * @param vigour      the viability of the plant
+     * @param plant       the plant itself
+     * @param placed      index of the plants that have been placed already, or
+     *                    null to ignore them
+     * @param gridSpacing the grid spacing
+     * @param seed        the seed for random number generation
+     */
+    public void calculateAttributes(double vigour, Plant plant, PlantIndex placed, double gridSpacing,
             int seed) {
         int maxHeight = maxHeightOpen;
         float radiusMultiplier = radiusMultiplierOpen;
 
-        if (vigour > viabilityThreshold) { // If closed, the max height and radius multiplier change to the closed
-                                           // values
+        // If closed, the max height and radius multiplier change to the closed
+        // values
+        if (vigour > viabilityThreshold || (placed != null && isUnderCanopy(plant, placed, gridSpacing))) {
             maxHeight = maxHeightClosed;
             radiusMultiplier = radiusMultiplierClosed;
         }
@@ -106,6 +127,44 @@ public class AttributeCalculator {
         return distance;
     }
 
+    /**
+     * Method to find the placed plants within a distance of a plant, from the
+     * spatial index rather than the list of every placed plant.
+     * 
+     * @param p           current plant
+     * @param placed      index of the plants that have been placed already
+     * @param distance    the distance, in metres
+     * @param gridSpacing the grid spacing
+     * @param found       list the plants found are added to
+     * @return the number of plants found
+     */
+    public int findNeighbours(Plant p, PlantIndex placed, double distance, double gridSpacing, List<Plant> found) {
+        return placed.findWithin(p.getPosition().getX(), p.getPosition().getY(), distance / gridSpacing, found);
+    }
+
+    /**
+     * Method to check whether a plant stands within the footprint, 1.5 canopy
+     * radii, of a canopy plant that has been placed already.
+     * 
+     * @param p           current plant
+     * @param placed      index of the plants that have been placed already
+     * @param gridSpacing the grid spacing
+     * @return true if the plant is under a canopy
+     */
+    public boolean isUnderCanopy(Plant p, PlantIndex placed, double gridSpacing) {
+        // The buckets are as large as the largest footprint
+        List<Plant> neighbours = new ArrayList<>();
+        findNeighbours(p, placed, placed.getBucketSize() * gridSpacing, gridSpacing, neighbours);
+
+        for (Plant other : neighbours) {
+            if (other != p && other.getCanopy()
+                    && getDistance(p, other, gridSpacing) < 1.5 * other.getCanopyRadius()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Method to set the cohort age.
      * 
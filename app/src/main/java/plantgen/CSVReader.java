@@ -3,6 +3,8 @@ package plantgen;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Class to read the CSV file of the species data/parameters
@@ -21,12 +23,13 @@ public class CSVReader {
 
     /**
      * Method to read the CSV file.
+     * Every non-blank line is read, so the file can hold any number of rows.
      * 
-     * @return a 2D array containing the CSV data
+     * @return a 2D array containing the CSV data, one row per line
      */
     public String[][] readCSV() {
-        // Initialize a 2D array to store the CSV data
-        String[][] CSVData = new String[8][20];
+        // Store the rows as they are read, the number of lines is not known
+        List<String[]> CSVData = new ArrayList<>();
 
         // Store the file path and initialize variables for reading the file
         String filePath = this.filepath;
@@ -36,9 +39,10 @@ public class CSVReader {
         try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
 
             // Read each line of the CSV file and split it by the delimiter
-            for (int i = 0; i < 8; i++) {
-                line = br.readLine();
-                CSVData[i] = line.split(delimiter);
+            while ((line = br.readLine()) != null) {
+                if (!line.isBlank()) {
+                    CSVData.add(line.split(delimiter));
+                }
             }
 
         } catch (IOException e) {
@@ -46,6 +50,6 @@ public class CSVReader {
             e.printStackTrace();
         }
 
-        return CSVData;
+        return CSVData.toArray(new String[0][]);
     }
 }
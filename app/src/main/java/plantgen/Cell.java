@@ -1,30 +1,44 @@
 package plantgen;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-
 /**
  * Represents a cell in a plant generation grid.
  * A cell has a start and end coordinate, a color, and can contain canopy and
- * undergrowth coordinates.
- * It also keeps track of its neighboring cells.
+ * undergrowth coordinates, which are kept in the grid's {@link PointStore}.
+ * It also keeps track of its neighboring cells, in a fixed slot per direction.
  */
 
 public class Cell {
+    // Slots of the neighbours, by direction
+    public static final int TOP_LEFT = 0;
+    public static final int TOP = 1;
+    public static final int TOP_RIGHT = 2;
+    public static final int LEFT = 3;
+    public static final int RIGHT = 4;
+    public static final int BOTTOM_LEFT = 5;
+    public static final int BOTTOM = 6;
+    public static final int BOTTOM_RIGHT = 7;
+    public static final int NUM_NEIGHBOURS = 8;
+
     private int startX, startY;
     private int endX, endY;
 
     private int colour;
+    private int index;
     private int numUPoints;
     private int numCPoints;
-    public HashMap<String, Cell> neighbours;
+    // Neighbour in each slot, or null at the edge of the grid
+    public Cell[] neighbours;
+
+    // Store holding the coordinates, set once the quotas are known
+    private PointStore points;
 
-    public ArrayList<Coordinate> canopyCoords;
-    public ArrayList<Coordinate> undergrowthCoords;
+    // Bucketed copies of the coordinates for proximity checks
+    private OccupancyGrid canopyGrid;
+    private OccupancyGrid undergrowthGrid;
 
     /**
      * Constructs a Cell with specified start and end coordinates.
-     * Initializes the neighbours, canopyCoords, and undergrowthCoords.
+     * Initializes the neighbours.
      *
      * @param startX the starting X coordinate
      * @param startY the starting Y coordinate
@@ -38,10 +52,135 @@ public class Cell {
         this.endX = endX;
         this.endY = endY;
 
-        neighbours = new HashMap<>();
+        neighbours = new Cell[NUM_NEIGHBOURS];
+    }
+
+    /**
+     * Builds the occupancy grids used for proximity checks from the current
+     * canopy and undergrowth coordinates.
+     * Must be called before the cell is sampled from several threads.
+     *
+     * @param canopyBucketSize      bucket size of the canopy grid
+     * @param undergrowthBucketSize bucket size of the undergrowth grid
+     */
+    public void initialiseOccupancy(double canopyBucketSize, double undergrowthBucketSize) {
+        canopyGrid = new OccupancyGrid(startX, startY, endX, endY, canopyBucketSize);
+        undergrowthGrid = new OccupancyGrid(startX, startY, endX, endY, undergrowthBucketSize);
+
+        int start = getCanopyStart();
+        for (int i = start; i < start + getCanopyCount(); i++) {
+            canopyGrid.add(points.getX(i), points.getY(i));
+        }
+        start = getUndergrowthStart();
+        for (int i = start; i < start + getUndergrowthCount(); i++) {
+            undergrowthGrid.add(points.getX(i), points.getY(i));
+        }
+    }
+
+    /**
+     * Adds a canopy coordinate, keeping the occupancy grid up to date.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     */
+    public void addCanopyCoord(float x, float y) {
+        points.addCanopy(index, x, y);
+        if (canopyGrid != null) {
+            canopyGrid.add(x, y);
+        }
+    }
+
+    /**
+     * Adds an undergrowth coordinate, keeping the occupancy grid up to date.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     */
+    public void addUndergrowthCoord(float x, float y) {
+        points.addUndergrowth(index, x, y);
+        if (undergrowthGrid != null) {
+            undergrowthGrid.add(x, y);
+        }
+    }
+
+    /**
+     * Gets the store holding the cell's coordinates.
+     *
+     * @return the point store
+     */
+    public PointStore getPoints() {
+        return this.points;
+    }
+
+    /**
+     * Sets the store holding the cell's coordinates.
+     *
+     * @param points the point store
+     */
+    public void setPoints(PointStore points) {
+        this.points = points;
+    }
+
+    /**
+     * Gets the index of the first canopy coordinate in the point store.
+     *
+     * @return the index of the first canopy coordinate
+     */
+    public int getCanopyStart() {
+        return points.getCanopyStart(index);
+    }
+
+    /**
+     * Gets the number of canopy coordinates placed in the cell.
+     *
+     * @return the number of canopy coordinates
+     */
+    public int getCanopyCount() {
+        return points.getCanopyCount(index);
+    }
+
+    /**
+     * Gets the index of the first undergrowth coordinate in the point store.
+     *
+     * @return the index of the first undergrowth coordinate
+     */
+    public int getUndergrowthStart() {
+        return points.getUndergrowthStart(index);
+    }
 
-        canopyCoords = new ArrayList<>();
-        undergrowthCoords = new ArrayList<>();
+    /**
+     * Gets the number of undergrowth coordinates placed in the cell.
+     *
+     * @return the number of undergrowth coordinates
+     */
+    public int getUndergrowthCount() {
+        return points.getUndergrowthCount(index);
+    }
+
+    /**
+     * Checks that no canopy coordinate of the cell is closer than the given
+     * distance to a point.
+     *
+     * @param x        the X coordinate of the point
+     * @param y        the Y coordinate of the point
+     * @param distance the minimum distance, in grid units
+     * @return true if every canopy coordinate is at least the distance away
+     */
+    public boolean isCanopyClear(float x, float y, double distance) {
+        return canopyGrid.isClear(x, y, distance);
+    }
+
+    /**
+     * Checks that no undergrowth coordinate of the cell is closer than the
+     * given distance to a point.
+     *
+     * @param x        the X coordinate of the point
+     * @param y        the Y coordinate of the point
+     * @param distance the minimum distance, in grid units
+     * @return true if every undergrowth coordinate is at least the distance away
+     */
+    public boolean isUndergrowthClear(float x, float y, double distance) {
+        return undergrowthGrid.isClear(x, y, distance);
     }
 
     /**
@@ -105,6 +244,15 @@ public class Cell {
         return this.colour;
     }
 
+    /**
+     * Gets the index of the cell in the grid.
+     *
+     * @return the index of the cell
+     */
+    public int getIndex() {
+        return this.index;
+    }
+
     /**
      * Gets the number of canopy points in the cell.
      *
@@ -123,6 +271,25 @@ public class Cell {
         return this.numUPoints;
     }
 
+    /**
+     * Gets the number of canopy points that could not be placed in the cell.
+     *
+     * @return the canopy quota minus the points placed, at least 0
+     */
+    public int getCanopyShortfall() {
+        return Math.max(0, this.numCPoints - getCanopyCount());
+    }
+
+    /**
+     * Gets the number of undergrowth points that could not be placed in the
+     * cell.
+     *
+     * @return the undergrowth quota minus the points placed, at least 0
+     */
+    public int getUndergrowthShortfall() {
+        return Math.max(0, this.numUPoints - getUndergrowthCount());
+    }
+
     /**
      * Sets the number of canopy points in the cell.
      *
@@ -141,6 +308,15 @@ public class Cell {
         this.numUPoints = numUPoints;
     }
 
+    /**
+     * Sets the index of the cell in the grid.
+     *
+     * @param index the index to set
+     */
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
     /**
      * Sets the colour of the cell.
      *
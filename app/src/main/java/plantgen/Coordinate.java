@@ -1,16 +1,17 @@
 package plantgen;
 
-import java.util.ArrayList;
-
 /**
- * Class representing a coordinate with x and y values and a list of
- * viabilities.
+ * Class representing a coordinate with x and y values and the viability of
+ * each species at it.
  */
 public class Coordinate {
     private float x;
     private float y;
 
-    private ArrayList<Double> viabilities;
+    private static final double[] NO_VIABILITIES = new double[0];
+
+    // Viability of each species, indexed like the species data
+    private double[] viabilities;
 
     /**
      * Constructor to initialize the coordinate with x and y values.
@@ -22,7 +23,7 @@ public class Coordinate {
         this.x = x;
         this.y = y;
 
-        this.viabilities = new ArrayList<>();
+        this.viabilities = NO_VIABILITIES;
     }
 
     /**
@@ -54,20 +55,20 @@ public class Coordinate {
     }
 
     /**
-     * Gets the list of viabilities.
+     * Gets the viabilities, one per species.
      * 
-     * @return the list of viabilities
+     * @return the viabilities
      */
-    public ArrayList<Double> getViabilities() {
+    public double[] getViabilities() {
         return this.viabilities;
     }
 
     /**
-     * Sets the list of viabilities.
+     * Sets the viabilities, one per species.
      * 
-     * @param v the new list of viabilities
+     * @param v the new viabilities
      */
-    public void setViabilities(ArrayList<Double> v) {
+    public void setViabilities(double[] v) {
         this.viabilities = v;
     }
 
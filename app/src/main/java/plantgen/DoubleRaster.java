@@ -0,0 +1,58 @@
+package plantgen;
+
+import java.util.Arrays;
+
+/**
+ * TerrainRaster stored as a double[].
+ */
+public class DoubleRaster extends TerrainRaster {
+    private final double[] data;
+
+    /**
+     * Constructs an empty raster.
+     *
+     * @param dimX      X dimensions of the raster
+     * @param dimY      Y dimensions of the raster
+     * @param numLayers number of values per pixel
+     */
+    public DoubleRaster(int dimX, int dimY, int numLayers) {
+        super(dimX, dimY, numLayers);
+        this.data = new double[dimX * dimY * numLayers];
+    }
+
+    @Override
+    public double get(int i) {
+        return data[i];
+    }
+
+    @Override
+    public void set(int i, double value) {
+        data[i] = value;
+    }
+
+    /**
+     * Returns the backing array, in (x, y, layer) order.
+     *
+     * @return the backing array
+     */
+    public double[] getData() {
+        return this.data;
+    }
+
+    @Override
+    public TerrainRaster copy() {
+        DoubleRaster copy = new DoubleRaster(dimX, dimY, numLayers);
+        System.arraycopy(this.data, 0, copy.data, 0, this.data.length);
+        return copy;
+    }
+
+    @Override
+    public void fill(double value) {
+        Arrays.fill(this.data, value);
+    }
+
+    @Override
+    public Precision getPrecision() {
+        return Precision.DOUBLE;
+    }
+}
@@ -1,19 +1,27 @@
 package plantgen;
 
 import java.util.SplittableRandom;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Ecosystem class to store the ecosystem data and manage plant placement and
  * attributes.
  */
 public class Ecosystem {
+    // Threads the pipeline stages wait on their phases from, kept off the
+    // scheduler's pool so that a waiting stage never holds up a phase
+    private static final ExecutorService STAGES = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "plantgen-stage");
+        t.setDaemon(true);
+        return t;
+    });
+
     // Species Data
     private Species[] speciesData;
 
@@ -23,7 +31,8 @@ public class Ecosystem {
 
     Grid grid;
     private SplittableRandom random;
-    private HashMap<String, AttributeCalculator> nameCalculatorMap = null;
+    // Attribute calculator of each species, by species id
+    private AttributeCalculator[] attributeCalculators = null;
 
     // System input
     private String[] filepaths;
@@ -34,17 +43,30 @@ public class Ecosystem {
     private Terrain terrain = new Terrain(); // Stores terrain data
 
     // Handlers
+    private SamplerType samplerType = SamplerType.DART_THROWING;
+    private int maxRejections = Sampler.DEFAULT_MAX_REJECTIONS;
+    private boolean precomputeViability = false;
+    private boolean cacheViability = false;
+    private boolean stampAbiotics = false;
+    private boolean neighbourAttributes = false;
+    private boolean fillSlopeBorder = false;
+    private PhaseScheduler scheduler = PhaseScheduler.getShared();
     private Sampler sampler = null;
     private SlopeCalculator slopeCalculator = null;
     private ViabilityCalculator viabilityCalculator = null;
     private AbioticsUpdater abioticsUpdater = null;
-    private RouletteWheel wheel = new RouletteWheel();
+    private RouletteWheel wheel;
 
     // Derived attributes
-    private double[][] slopeData = null;
-    private ArrayList<Coordinate> canopyCoords = null;
-    private ArrayList<Coordinate> undergrowthCoords = null;
-    private CopyOnWriteArrayList<Plant> placedPlants = new CopyOnWriteArrayList<>();
+    private TerrainRaster slopeData = null;
+    private TerrainRaster staticAdaptation = null;
+    private PointStore points = null;
+    private PlantStore placedPlants = new PlantStore();
+    private PlantIndex plantIndex = null;
+
+    // Pipeline stage deriving the slope, started at most once
+    private CompletableFuture<Void> slopeStage = null;
+    private boolean phaseTimesCleared = false;
 
     public Ecosystem(String[] filepaths, float[] samplerArgs, int seed, double viabilityThreshold) {
         this.random = new SplittableRandom(seed);
@@ -54,37 +76,169 @@ public class Ecosystem {
         this.dCanopy = samplerArgs[2];
         this.viabilityThreshold = viabilityThreshold;
 
-        Species.initialiseSpeciesData(filepaths[4]);
-
-        Species[] data = {
-                new Species("Boxwood"),
-                new Species("Snowy Mespilus"),
-                new Species("Mountain Pine"),
-                new Species("Silve Fir"),
-                new Species("Silver Birch"),
-                new Species("Sessile Oak"),
-                new Species("European Beech")
-        };
-
-        this.speciesData = data;
+        this.speciesData = loadSpecies(filepaths[4]);
+        this.wheel = new RouletteWheel(this.speciesData);
 
         this.filepaths = filepaths;
         this.samplerArgs = samplerArgs;
-        this.createHashMap();
+        this.createAttributeCalculators();
+    }
+
+    /**
+     * Method to load the species data from the species CSV file
+     * Every species in the file is loaded, in file order, and is referred to
+     * by its index in that order.
+     * 
+     * @param filepath path to the species CSV file
+     * @return the species data
+     */
+    public static Species[] loadSpecies(String filepath) {
+        Species.initialiseSpeciesData(filepath);
+        return Species.getAllSpecies();
+    }
+
+    /**
+     * Method to get the species data, in the order of the viabilities
+     * 
+     * @return the species data
+     */
+    public Species[] getSpeciesData() {
+        return this.speciesData;
+    }
+
+    /**
+     * Method to set the storage precision of the terrain and slope data.
+     * Must be called before the terrain data is loaded.
+     * 
+     * @param precision the storage precision
+     */
+    public void setPrecision(Precision precision) {
+        this.terrain.setPrecision(precision);
+    }
+
+    /**
+     * Method to set whether the terrain inputs are kept in a
+     * {@link TerrainCache} next to the elevation file, and read from it when
+     * the input files have not changed.
+     * Must be called before the terrain data is loaded.
+     * 
+     * @param cacheTerrain true to use the terrain cache
+     */
+    public void setCacheTerrain(boolean cacheTerrain) {
+        this.terrain.setCacheData(cacheTerrain);
+    }
+
+    /**
+     * Method to set the sampling algorithm used for the pink noise.
+     * Must be called before the terrain data is loaded.
+     * 
+     * @param samplerType the sampling algorithm
+     */
+    public void setSamplerType(SamplerType samplerType) {
+        this.samplerType = samplerType;
+    }
+
+    /**
+     * Method to set the number of consecutive rejected candidates after which
+     * a cell stops sampling and keeps the points it has.
+     * Must be called before the terrain data is loaded.
+     * 
+     * @param maxRejections the rejection limit, 0 to sample until every quota
+     *                      is met
+     */
+    public void setMaxRejections(int maxRejections) {
+        this.maxRejections = maxRejections;
+    }
+
+    /**
+     * Method to set whether the temperature and slope adaptation are
+     * precomputed for every pixel before plants are assigned, which pays off
+     * when there are several points per pixel.
+     * 
+     * @param precomputeViability true to precompute the adaptation raster
+     */
+    public void setPrecomputeViability(boolean precomputeViability) {
+        this.precomputeViability = precomputeViability;
+    }
+
+    /**
+     * Method to set whether the slope and the temperature and slope adaptation
+     * are kept in a {@link ViabilityCache} next to the elevation file, and
+     * read from it when the input files have not changed. Implies
+     * precomputing the adaptation.
+     * 
+     * @param cacheViability true to use the viability cache
+     */
+    public void setCacheViability(boolean cacheViability) {
+        this.cacheViability = cacheViability;
+    }
+
+    /**
+     * Method to set whether placed plants update the abiotics over their whole
+     * footprint with a {@link RasterStampUpdater}, rather than only at the
+     * candidate points near them.
+     * Must be called before the terrain data is loaded.
+     * 
+     * @param stampAbiotics whether to stamp the abiotic updates
+     */
+    public void setStampAbiotics(boolean stampAbiotics) {
+        this.stampAbiotics = stampAbiotics;
+    }
+
+    /**
+     * Method to set whether a plant placed under the canopy of a canopy plant
+     * placed before it grows in closed conditions, whatever its vigour. The
+     * placed plants are then kept in a {@link PlantIndex} to find the canopy
+     * plants near each new plant.
+     * Must be called before the terrain data is loaded.
+     * 
+     * @param neighbourAttributes whether the attributes take the placed
+     *                            neighbours into account
+     */
+    public void setNeighbourAttributes(boolean neighbourAttributes) {
+        this.neighbourAttributes = neighbourAttributes;
+    }
+
+    /**
+     * Method to set whether the border coordinates get a slope from one-sided
+     * differences, rather than being left at 0.
+     * Must be called before the terrain data is loaded.
+     * 
+     * @param fillSlopeBorder whether to fill the slope border
+     */
+    public void setFillSlopeBorder(boolean fillSlopeBorder) {
+        this.fillSlopeBorder = fillSlopeBorder;
     }
 
     /**
-     * Method to load the canopy coords
+     * Method to set the scheduler that the sampling and plant assignment
+     * phases run on, for example to use a different number of threads than
+     * the shared scheduler.
+     * Must be called before the terrain data is loaded.
+     * 
+     * @param scheduler the scheduler
      */
-    private void loadCanopyCoords() {
-        this.canopyCoords = this.sampler.getCanopyCoords();
+    public void setScheduler(PhaseScheduler scheduler) {
+        this.scheduler = scheduler;
     }
 
     /**
-     * Method to load the undergrowth coords
+     * Method to get the scheduler that the sampling and plant assignment
+     * phases run on
+     * 
+     * @return the scheduler
      */
-    private void loadUndergrowthCoords() {
-        this.undergrowthCoords = this.sampler.getUndergrowthCoords();
+    public PhaseScheduler getScheduler() {
+        return this.scheduler;
+    }
+
+    /**
+     * Method to get the number of requested points that could not be placed
+     * 
+     * @return the number of missing points
+     */
+    public int getSamplingShortfall() {
+        return this.sampler.getShortfall();
     }
 
     /**
@@ -100,9 +254,9 @@ public class Ecosystem {
      * Method to generate the pink noise
      */
     public void generatePinkNoise() {
+        this.clearPhaseTimes();
         this.sampler.generatePinkNoise();
-        this.loadCanopyCoords();
-        this.loadUndergrowthCoords();
+        this.points = this.sampler.getPoints();
     }
 
     /**
@@ -124,18 +278,137 @@ public class Ecosystem {
 
     /**
      * Method to derive the slope
+     * Waits for the slope stage if it has already been started.
      */
     public void deriveSlope() {
-        this.slopeData = this.slopeCalculator.deriveSlope();
+        this.deriveSlopeAsync().join();
         this.updateHandlers();
     }
 
+    /**
+     * Method to start deriving the slope, and reading or writing the viability
+     * cache, in the background. The slope only depends on the elevation, so
+     * it can start as soon as the terrain data is loaded. The stage is only
+     * started once; later calls return the same future.
+     * 
+     * @return the slope stage
+     */
+    public synchronized CompletableFuture<Void> deriveSlopeAsync() {
+        if (this.slopeStage == null) {
+            this.clearPhaseTimes();
+            this.slopeStage = CompletableFuture.runAsync(() -> {
+                if (this.cacheViability) {
+                    this.loadViabilityCache();
+                } else {
+                    this.slopeData = this.slopeCalculator.deriveSlope(this.terrain.getPrecision(), this.scheduler);
+                }
+            }, STAGES);
+        }
+        return this.slopeStage;
+    }
+
+    /**
+     * Method to clear the scheduler's phase times before the first stage of
+     * the generation, whichever stage that is, so that the times of a stage
+     * started early, like the slope, are kept.
+     */
+    private synchronized void clearPhaseTimes() {
+        if (!this.phaseTimesCleared) {
+            this.scheduler.clearPhaseTimes();
+            this.phaseTimesCleared = true;
+        }
+    }
+
+    /**
+     * Method to run the generation as a graph of stages once the terrain data
+     * is loaded. Sampling runs alongside the slope followed by the temperature
+     * and slope adaptation, and plants are assigned once both are done.
+     * Sampling and the slope branch share nothing, so their phases run at the
+     * same time on the scheduler. The adaptation raster is only precomputed in
+     * its own stage when it is enabled and not read from the viability cache.
+     * Plants are not assigned if the sampling failed, see
+     * {@link #getPinkNoiseStatus}. The placements are the same as running the
+     * stages one after another.
+     * 
+     * @return the future of the whole generation
+     */
+    public CompletableFuture<Void> generateAsync() {
+        this.clearPhaseTimes();
+
+        CompletableFuture<Void> sampling = CompletableFuture.runAsync(() -> {
+            this.sampler.generatePinkNoise();
+            this.points = this.sampler.getPoints();
+        }, STAGES);
+
+        CompletableFuture<Void> adaptation = this.deriveSlopeAsync().thenRunAsync(() -> {
+            if (this.precomputeViability && this.staticAdaptation == null) {
+                ViabilityCalculator calculator = new ViabilityCalculator(terrain, speciesData, this.slopeData);
+                calculator.precomputeStaticAdaptation(this.scheduler);
+                this.staticAdaptation = calculator.getStaticAdaptation();
+            }
+        }, STAGES);
+
+        return sampling.runAfterBothAsync(adaptation, () -> {
+            this.updateHandlers();
+            if (!this.getPinkNoiseStatus()) {
+                this.assignPlants();
+            }
+        }, STAGES);
+    }
+
+    /**
+     * Method to run the generation stages and wait for them, see
+     * {@link #generateAsync}.
+     */
+    public void generate() {
+        this.generateAsync().join();
+    }
+
+    /**
+     * Method to read the slope and the temperature and slope adaptation from
+     * the viability cache, writing the cache first if the inputs have changed.
+     * As with the terrain cache, the data is always read from the cache so that
+     * a run gives the same results whether or not the cache existed.
+     */
+    private void loadViabilityCache() {
+        Path cachePath = ViabilityCache.getCachePath(this.filepaths[0]);
+
+        try {
+            long startTime = System.nanoTime();
+            byte[] key = ViabilityCache.computeKey(this.filepaths, this.speciesData, this.fillSlopeBorder,
+                    this.terrain.getPrecision());
+
+            if (!ViabilityCache.isValid(cachePath, key)) {
+                TerrainRaster slope = this.slopeCalculator.deriveSlope(this.terrain.getPrecision(), this.scheduler);
+
+                // The cached adaptation is exact whatever the table settings
+                ViabilityCalculator calculator = new ViabilityCalculator(terrain, speciesData, slope);
+                calculator.setTable(null);
+                calculator.precomputeStaticAdaptation(this.scheduler);
+
+                ViabilityCache.write(cachePath, key, slope, calculator.getStaticAdaptation());
+                System.out.println("Wrote viability cache " + cachePath);
+            }
+
+            ViabilityCache cache = ViabilityCache.open(cachePath);
+            this.slopeData = cache.getSlopeData();
+            this.staticAdaptation = cache.getStaticAdaptation();
+            System.out.println(String.format("Loaded viability cache %s in %.0f ms", cachePath.getFileName(),
+                    (System.nanoTime() - startTime) / 1e6));
+        } catch (IOException e) {
+            // Fall back to deriving the slope, the adaptation is then
+            // calculated per point
+            e.printStackTrace();
+            this.slopeData = this.slopeCalculator.deriveSlope(this.terrain.getPrecision(), this.scheduler);
+        }
+    }
+
     /**
      * Method to get the slope data
      * 
      * @return the slope data
      */
-    public double[][] getSlopeData() {
+    public TerrainRaster getSlopeData() {
         return this.slopeData;
     }
 
@@ -144,19 +417,33 @@ public class Ecosystem {
      */
     public void updateHandlers() {
         if (this.sampler == null && this.terrain != null) {
-            this.sampler = new Sampler(this.terrain, this.grid, this.samplerArgs, this.random);
+            if (this.samplerType == SamplerType.POISSON_DISK) {
+                this.sampler = new PoissonDiskSampler(this.terrain, this.grid, this.samplerArgs, this.random);
+            } else {
+                this.sampler = new Sampler(this.terrain, this.grid, this.samplerArgs, this.random);
+            }
+            this.sampler.setMaxRejections(this.maxRejections);
+            this.sampler.setScheduler(this.scheduler);
         }
 
         if (this.slopeCalculator == null && this.terrain != null) {
             this.slopeCalculator = new SlopeCalculator(this.terrain);
+            this.slopeCalculator.setFillBorder(this.fillSlopeBorder);
         }
 
-        if (this.viabilityCalculator == null && (this.slopeData != null && this.canopyCoords != null)) {
+        if (this.viabilityCalculator == null && (this.slopeData != null && this.points != null)) {
             this.viabilityCalculator = new ViabilityCalculator(terrain, speciesData, this.slopeData);
+            this.viabilityCalculator.setStaticAdaptation(this.staticAdaptation);
         }
 
         if (this.abioticsUpdater == null && this.terrain != null) {
-            this.abioticsUpdater = new AbioticsUpdater(this.grid, this.getGridSpacing());
+            this.abioticsUpdater = this.stampAbiotics ? new RasterStampUpdater(this.grid, this.getGridSpacing())
+                    : new AbioticsUpdater(this.grid, this.getGridSpacing());
+        }
+
+        if (this.plantIndex == null && this.neighbourAttributes && this.terrain != null) {
+            this.plantIndex = PlantIndex.forSpecies(terrain.getDimX(), terrain.getDimY(), speciesData,
+                    this.getGridSpacing());
         }
     }
 
@@ -179,44 +466,76 @@ public class Ecosystem {
      * @return the plant placed
      */
     public Plant placePlant(Coordinate c, RouletteWheel wheel, int seed) {
+        return placePlant(c, wheel, seed, this.placedPlants);
+    }
+
+    /**
+     * Method to assign a plant to a coordinate, adding it to the given list.
+     * Uses the roulette wheel to decide what plant (if any) to place.
+     * 
+     * @param c      Coordinate in the grid.
+     * @param wheel  Roulette wheel for plant selection.
+     * @param seed   Seed for random number generation.
+     * @param placed List the placed plant is added to.
+     * @return the plant placed
+     */
+    public Plant placePlant(Coordinate c, RouletteWheel wheel, int seed, List<Plant> placed) {
         Plant plant = wheel.spinWheel(c, seed);
         if (plant != null)
-            placedPlants.add(plant);
+            placed.add(plant);
         return plant;
     }
 
     /**
-     * Method to create a hash map such that each species has its own attribute
-     * calculator
+     * Method to create an attribute calculator for each species, indexed like
+     * the species data
      * Since each species has different parameters
      */
-    public void createHashMap() {
+    public void createAttributeCalculators() {
         AttributeCalculator.setCohortAge(cohortAges);
         AttributeCalculator.setViabilityThreshold(viabilityThreshold);
-        nameCalculatorMap = new HashMap<>();
+        attributeCalculators = new AttributeCalculator[speciesData.length];
         for (int i = 0; i < speciesData.length; i++) {
-            nameCalculatorMap.put(speciesData[i].getName(), new AttributeCalculator(speciesData[i]));
+            attributeCalculators[i] = new AttributeCalculator(speciesData[i]);
         }
     }
 
+    /**
+     * Method to return the species id of a plant. A plant created without one
+     * gets the index of the species with its name, which is resolved once and
+     * kept on the plant.
+     * 
+     * @param p the plant
+     * @return index of the plant's species in the species data
+     */
+    private int getSpeciesId(Plant p) {
+        if (p.getSpeciesId() < 0) {
+            for (int i = 0; i < speciesData.length; i++) {
+                if (speciesData[i].getName().equals(p.getSpecies())) {
+                    p.setSpeciesId(i);
+                    break;
+                }
+            }
+            if (p.getSpeciesId() < 0) {
+                throw new IllegalArgumentException("Unknown species: " + p.getSpecies());
+            }
+        }
+        return p.getSpeciesId();
+    }
+
     /**
      * Method to calculate the attributes of the plant placed.
-     * Uses the hashmap to get the plant placed's attribute calculator.
+     * Uses the plant's species id to get its attribute calculator.
      * 
      * @param p    Plant placed.
      * @param seed Seed for random number generation.
      */
     public void calculateAttributes(Plant p, int seed) {
-        String name = p.getSpecies();
-        double vigour = 0;
-        // Get the vigour of the plant
-        for (int i = 0; i < speciesData.length; i++) {
-            if (speciesData[i].getName() == name) {
-                vigour = p.getPosition().getViabilities().get(i);
-            }
-        }
+        int id = getSpeciesId(p);
+        // The vigour of the plant is the viability of its species
+        double vigour = p.getPosition().getViabilities()[id];
 
-        nameCalculatorMap.get(name).calculateAttributes(vigour, p, this.placedPlants, this.getGridSpacing(), seed);
+        attributeCalculators[id].calculateAttributes(vigour, p, this.plantIndex, this.getGridSpacing(), seed);
     }
 
     /**
@@ -226,18 +545,13 @@ public class Ecosystem {
      * @param p plant
      */
     public void updateAbiotics(Plant p) {
-        double leafTransparency = 0;
-        double moistureAbsorption = 0;
         // Get the leaf transparency and moisture absorption of the plant
-        for (int i = 0; i < speciesData.length; i++) {
-            if (p.getSpecies() == speciesData[i].getName()) {
-                leafTransparency = speciesData[i].getLeafTransparency();
-                moistureAbsorption = speciesData[i].getMoistureAbsorption();
-            }
-        }
+        Species species = speciesData[getSpeciesId(p)];
+        double leafTransparency = species.getLeafTransparency();
+        double moistureAbsorption = species.getMoistureAbsorption();
 
         this.abioticsUpdater.updateSunlight(getSunlight(), p, leafTransparency);
-        this.abioticsUpdater.updateMoisture(getSunlight(), p, moistureAbsorption);
+        this.abioticsUpdater.updateMoisture(getMoisture(), p, moistureAbsorption);
     }
 
     /**
@@ -254,10 +568,19 @@ public class Ecosystem {
      * 
      * @return sunlight abiotic data
      */
-    public double[][][] getSunlight() {
+    public TerrainRaster getSunlight() {
         return this.terrain.getSunlightData();
     }
 
+    /**
+     * Method to return the moisture data
+     * 
+     * @return moisture abiotic data
+     */
+    public TerrainRaster getMoisture() {
+        return this.terrain.getWetData();
+    }
+
     /**
      * Method to set the cohort ages to the provided ones
      * @param cohortAge provided cohort ages
@@ -271,26 +594,30 @@ public class Ecosystem {
      * 
      * @return placed plants
      */
-    public CopyOnWriteArrayList<Plant> getPlacedPlants() {
+    public List<Plant> getPlacedPlants() {
         return this.placedPlants;
     }
 
     /**
-     * Method to return an ArrayList of potential canopy plant coordinates
+     * Method to return the spatial index of the placed plants, which holds
+     * each plant as soon as its attributes are calculated. Only kept when the
+     * attributes take the neighbours into account, see
+     * {@link #setNeighbourAttributes}.
      * 
-     * @return canopy coordinates
+     * @return plant index, or null
      */
-    public ArrayList<Coordinate> getCanopyCoords() {
-        return this.canopyCoords;
+    public PlantIndex getPlantIndex() {
+        return this.plantIndex;
     }
 
     /**
-     * Method to return an ArrayList of potential undergrowth plant coordinates
+     * Method to return the store of potential canopy and undergrowth plant
+     * coordinates
      * 
-     * @return undergrowth coordinates
+     * @return point store
      */
-    public ArrayList<Coordinate> getUndergrowthCoords() {
-        return this.undergrowthCoords;
+    public PointStore getPoints() {
+        return this.points;
     }
 
     /**
@@ -309,73 +636,129 @@ public class Ecosystem {
      * @param seed   Seed for random number generation.
      */
     public void assignPlant(Coordinate c, boolean canopy, int seed) {
+        assignPlant(c, canopy, seed, this.placedPlants);
+    }
+
+    /**
+     * Method to assign a plant to a coordinate, adding it to the given list.
+     * 
+     * @param c      Coordinate to assign the plant to.
+     * @param canopy Boolean indicating if the plant is a canopy plant.
+     * @param seed   Seed for random number generation.
+     * @param placed List the placed plant is added to.
+     */
+    public void assignPlant(Coordinate c, boolean canopy, int seed, List<Plant> placed) {
         calculateViabilities(c);
-        Plant p = placePlant(c, wheel, seed);
+        Plant p = placePlant(c, wheel, seed, placed);
+        // If no plant is placed, return
+        if (p == null)
+            return;
+        if (canopy)
+            p.setIsCanopy();
+
+        calculateAttributes(p, ++seed);
+        updateAbiotics(p);
+        if (plantIndex != null) {
+            plantIndex.add(p);
+        }
+    }
+
+    /**
+     * Method to assign a plant to a point of the point store, adding it to the
+     * given list. No objects are created unless a plant is placed.
+     * 
+     * @param i           Index of the point in the point store.
+     * @param canopy      Boolean indicating if the plant is a canopy plant.
+     * @param seed        Seed for random number generation.
+     * @param placed      List the placed plant is added to.
+     * @param viabilities Array to calculate the viabilities into, one per
+     *                    species.
+     */
+    public void assignPlant(int i, boolean canopy, int seed, List<Plant> placed, double[] viabilities) {
+        float x = points.getX(i);
+        float y = points.getY(i);
+
+        viabilityCalculator.calculateAverageViability(x, y, viabilities);
+        Plant p = wheel.spinWheel(x, y, viabilities, seed);
         // If no plant is placed, return
         if (p == null)
             return;
+        placed.add(p);
         if (canopy)
             p.setIsCanopy();
 
         calculateAttributes(p, ++seed);
         updateAbiotics(p);
+        if (plantIndex != null) {
+            plantIndex.add(p);
+        }
     }
 
     /**
      * Method to assign plants to the ecosystem.
      */
     public void assignPlants() {
+        if (precomputeViability && !viabilityCalculator.hasStaticAdaptation()) {
+            viabilityCalculator.precomputeStaticAdaptation(this.scheduler);
+        }
+
         System.out.println("Assigning Plants...");
-        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 
         // Assign canopy plants first to ensure they are placed before undergrowth
-        for (int colour = 0; colour < 8; colour++) {
+        for (int colour : grid.getColours()) {
             List<Cell> cells = grid.cellsByColour.getOrDefault(colour, new ArrayList<>());
+            List<Runnable> tasks = new ArrayList<>(cells.size());
             for (Cell cell : cells) {
                 int cellSeed = random.nextInt();
-                ;
-                executor.submit(() -> {
+                List<Plant> placed = placedPlants.newSegment();
+                tasks.add(() -> {
                     SplittableRandom r = new SplittableRandom(cellSeed);
                     int coordSeed = r.nextInt();
-                    for (Coordinate coord : cell.canopyCoords) {
-                        assignPlant(coord, true, coordSeed);
+                    double[] viabilities = new double[speciesData.length];
+                    int start = cell.getCanopyStart();
+                    for (int i = start; i < start + cell.getCanopyCount(); i++) {
+                        assignPlant(i, true, coordSeed, placed, viabilities);
                     }
                 });
             }
-
-            // Assign undergrowth plants
-            executor.shutdown();
-            try {
-                executor.awaitTermination(60, TimeUnit.HOURS);
-                executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+            this.scheduler.runPhase("assign canopy colour " + (colour + 1), tasks);
+            placedPlants.merge();
         }
 
         // Assign undergrowth plants
-        for (int colour = 0; colour < 8; colour++) {
+        for (int colour : grid.getColours()) {
             List<Cell> cells = grid.cellsByColour.getOrDefault(colour, new ArrayList<>());
+            List<Runnable> tasks = new ArrayList<>(cells.size());
             for (Cell cell : cells) {
                 int cellSeed = random.nextInt();
-                executor.submit(() -> {
+                List<Plant> placed = placedPlants.newSegment();
+                tasks.add(() -> {
                     SplittableRandom r = new SplittableRandom(cellSeed);
                     int coordSeed = r.nextInt();
-                    for (Coordinate coord : cell.undergrowthCoords) {
-                        assignPlant(coord, false, coordSeed);
+                    double[] viabilities = new double[speciesData.length];
+                    int start = cell.getUndergrowthStart();
+                    for (int i = start; i < start + cell.getUndergrowthCount(); i++) {
+                        assignPlant(i, false, coordSeed, placed, viabilities);
                     }
                 });
             }
-            executor.shutdown();
-            try {
-                executor.awaitTermination(60, TimeUnit.HOURS);
-                executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+            this.scheduler.runPhase("assign undergrowth colour " + (colour + 1), tasks);
+            placedPlants.merge();
         }
 
-        executor.shutdown();
+        if (Boolean.getBoolean("plantgen.viabilityCompare")) {
+            System.out.println("Largest viability difference from the exact calculation: "
+                    + viabilityCalculator.getMaxCompareError());
+        }
+    }
+
+    /**
+     * Method to print the time taken by each colour phase of the sampling and
+     * plant assignment
+     */
+    public void printPhaseTimes() {
+        System.out.println("Phase times (" + this.scheduler.getParallelism() + " threads):");
+        this.scheduler.printPhaseTimes();
     }
 
     /**
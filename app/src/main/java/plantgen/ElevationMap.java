@@ -1,7 +1,5 @@
 package plantgen;
 
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.io.IOException;
 
 /**
@@ -75,6 +73,7 @@ public class ElevationMap extends DataMap {
      * Overwritten method from parent class to read the elevation data.
      * The X and Y dimensions, the grid spacing, and the latitude are also read.
      * The elevation data is stored in a 2D array [X][Y].
+     * Values are streamed from the file straight into the array.
      * 
      * @param filepath Path to the file containing elevation data.
      */
@@ -82,35 +81,27 @@ public class ElevationMap extends DataMap {
     public void readData(String filepath) {
         double[][] elvData = new double[0][0];
 
-        try {
-            // Read raw data
-            String content = new String(Files.readAllBytes(Paths.get(filepath)));
-            String[] lines = content.split("\n");
-
-            // Get header values
-            String[] headerValues = lines[0].split(" ");
-
+        try (NumberReader reader = NumberReader.open(filepath)) {
             // Parse header values
-            this.dimX = Integer.parseInt(headerValues[0]);
-            this.dimY = Integer.parseInt(headerValues[1]);
-            this.gridSpacing = Float.parseFloat(headerValues[2]);
-            this.latitude = Float.parseFloat(headerValues[3]);
+            this.dimX = reader.nextInt();
+            this.dimY = reader.nextInt();
+            this.gridSpacing = reader.nextFloat();
+            this.latitude = reader.nextFloat();
+            reader.skipLine();
 
             // Initialize the elevation data array with parsed dimensions
             elvData = new double[dimX][dimY];
-            int fileIndex = 0;
-            String[] lineData = lines[1].trim().split(" ");
 
             // Populate the elevation data array
             for (int x = 0; x < dimX; x++) {
                 for (int y = 0; y < dimY; y++) {
-                    elvData[x][y] = Double.parseDouble(lineData[fileIndex]);
+                    elvData[x][y] = reader.nextDouble();
                     minElv = Math.min(elvData[x][y], minElv);
                     maxElv = Math.max(elvData[x][y], maxElv);
-                    fileIndex++;
                 }
             }
 
+            reader.printThroughput(filepath);
         } catch (IOException e) {
             e.printStackTrace();
         }
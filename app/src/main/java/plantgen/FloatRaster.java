@@ -0,0 +1,80 @@
+package plantgen;
+
+import java.nio.FloatBuffer;
+
+/**
+ * TerrainRaster stored as 32 bit floats.
+ * The values live in a FloatBuffer, which is either a heap array or a view
+ * of a memory mapped terrain cache, so a cached terrain can be used without
+ * copying it.
+ */
+public class FloatRaster extends TerrainRaster {
+    private final FloatBuffer data;
+
+    /**
+     * Constructs an empty raster backed by a heap array.
+     *
+     * @param dimX      X dimensions of the raster
+     * @param dimY      Y dimensions of the raster
+     * @param numLayers number of values per pixel
+     */
+    public FloatRaster(int dimX, int dimY, int numLayers) {
+        this(dimX, dimY, numLayers, FloatBuffer.wrap(new float[dimX * dimY * numLayers]));
+    }
+
+    /**
+     * Constructs a raster over existing values in (x, y, layer) order.
+     *
+     * @param dimX      X dimensions of the raster
+     * @param dimY      Y dimensions of the raster
+     * @param numLayers number of values per pixel
+     * @param data      the values, which are used directly rather than copied
+     */
+    public FloatRaster(int dimX, int dimY, int numLayers, FloatBuffer data) {
+        super(dimX, dimY, numLayers);
+        if (data.capacity() != dimX * dimY * numLayers) {
+            throw new IllegalArgumentException("Buffer holds " + data.capacity() + " values, expected "
+                    + dimX * dimY * numLayers);
+        }
+        this.data = data;
+    }
+
+    @Override
+    public double get(int i) {
+        return data.get(i);
+    }
+
+    @Override
+    public void set(int i, double value) {
+        data.put(i, (float) value);
+    }
+
+    /**
+     * Returns the backing buffer, in (x, y, layer) order.
+     *
+     * @return the backing buffer
+     */
+    public FloatBuffer getBuffer() {
+        return this.data;
+    }
+
+    @Override
+    public TerrainRaster copy() {
+        FloatRaster copy = new FloatRaster(dimX, dimY, numLayers);
+        copy.data.put(0, this.data, 0, this.data.capacity());
+        return copy;
+    }
+
+    @Override
+    public void fill(double value) {
+        float f = (float) value;
+        for (int i = 0; i < data.capacity(); i++) {
+            data.put(i, f);
+        }
+    }
+
+    @Override
+    public Precision getPrecision() {
+        return Precision.FLOAT;
+    }
+}
@@ -2,11 +2,9 @@ package plantgen;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.stream.Collectors;
 import java.util.Map;
-import java.util.Set;
 import java.util.SplittableRandom;
 
 /**
@@ -18,13 +16,19 @@ public class Grid {
     int width, height;
 
     private ArrayList<Cell> cells;
-    private ArrayList<Double> xCellBounds; // Store the x boundaries of cells
-    private ArrayList<Double> yCellBounds; // Store the y boundaries of cells
+    private double cellSize;
+    private double[] xCellBounds = new double[0]; // Store the x boundaries of cells
+    private double[] yCellBounds = new double[0]; // Store the y boundaries of cells
 
-    private final Map<Double, Set<Cell>> hashTable = new HashMap<>();
+    // Cells in the same row parity and column parity are never neighbours, so
+    // 4 colours are enough for cells of the same colour to run in parallel
+    public static final int NUM_COLOURS = 4;
 
     public Map<Integer, List<Cell>> cellsByColour;
 
+    // Canopy and undergrowth coordinates of every cell
+    private PointStore points;
+
     int numRows, numCols;
 
     /**
@@ -36,8 +40,6 @@ public class Grid {
         this.width = this.height = dimensions - 1;
 
         this.cells = new ArrayList<>();
-        this.xCellBounds = new ArrayList<>();
-        this.yCellBounds = new ArrayList<>();
     }
 
     /**
@@ -51,8 +53,6 @@ public class Grid {
         this.height = height - 1;
 
         this.cells = new ArrayList<>();
-        this.xCellBounds = new ArrayList<>();
-        this.yCellBounds = new ArrayList<>();
     }
 
     /**
@@ -64,39 +64,43 @@ public class Grid {
     public ArrayList<Cell> divideGrid(double d) {
         int numCellsX = (int) Math.floor(width / d);
         int numCellsY = (int) Math.floor(height / d);
+        this.cellSize = d;
+        this.xCellBounds = new double[numCellsX];
+        this.yCellBounds = new double[numCellsY];
 
         double currentX = 0;
         for (int i = 0; i < numCellsX; i++) {
             double nextX = (i == numCellsX - 1) ? width : currentX + d;
-            xCellBounds.add(nextX);
+            xCellBounds[i] = nextX;
             currentX = nextX;
         }
 
         double currentY = 0;
         for (int j = 0; j < numCellsY; j++) {
             double nextY = (j == numCellsY - 1) ? height : currentY + d;
-            yCellBounds.add(nextY);
+            yCellBounds[j] = nextY;
             currentY = nextY;
         }
 
         // Create cells and add them to the grid
+        cells.ensureCapacity(cells.size() + numCellsX * numCellsY);
 
         for (int i = 0; i < numCellsY; i++) {
             for (int j = 0; j < numCellsX; j++) {
-                int cellStartX = (int) (j == 0 ? 0 : xCellBounds.get(j - 1));
-                int cellStartY = (int) (i == 0 ? 0 : yCellBounds.get(i - 1));
-                int cellEndX = (int) Math.floor(xCellBounds.get(j));
-                int cellEndY = (int) Math.floor(yCellBounds.get(i));
+                int cellStartX = (int) (j == 0 ? 0 : xCellBounds[j - 1]);
+                int cellStartY = (int) (i == 0 ? 0 : yCellBounds[i - 1]);
+                int cellEndX = (int) Math.floor(xCellBounds[j]);
+                int cellEndY = (int) Math.floor(yCellBounds[i]);
 
                 Cell c = new Cell(cellStartX, cellStartY, cellEndX, cellEndY);
+                c.setIndex(cells.size());
 
                 cells.add(c);
-                addCell(c);
             }
         }
 
-        this.numRows = yCellBounds.size();
-        this.numCols = xCellBounds.size();
+        this.numRows = yCellBounds.length;
+        this.numCols = xCellBounds.length;
 
         return cells;
     }
@@ -127,8 +131,8 @@ public class Grid {
      */
 
     public int[] getCellPosition(Cell cell) {
-        int index = this.cells.indexOf(cell);
-        if (index == -1) {
+        int index = cell.getIndex();
+        if (index < 0 || index >= cells.size() || cells.get(index) != cell) {
             throw new IllegalArgumentException("Cell not found in the grid");
         }
 
@@ -145,57 +149,83 @@ public class Grid {
      */
     public void findCellNeighbours(Cell c) {
         int[] cellPosition = getCellPosition(c);
-        int row = cellPosition[0];
-        int col = cellPosition[1];
-
-        if (col != 0) {
-            c.neighbours.put("left", getCell(row, col - 1));
-            if (row != 0) {
-                c.neighbours.put("top-left", getCell(row - 1, col - 1));
-            }
-            if (row != numRows - 1) {
-                c.neighbours.put("bottom-left", getCell(row + 1, col - 1));
-            }
-        }
-
-        if (row != 0) {
-            c.neighbours.put("top", getCell(row - 1, col));
-        }
-
-        if (row != numRows - 1) {
-            c.neighbours.put("bottom", getCell(row + 1, col));
-        }
+        findCellNeighbours(c, cellPosition[0], cellPosition[1]);
+    }
 
-        if (col != numCols - 1) {
-            c.neighbours.put("right", getCell(row, col + 1));
-            if (row != 0) {
-                c.neighbours.put("top-right", getCell(row - 1, col + 1));
-            }
-            if (row != numRows - 1) {
-                c.neighbours.put("bottom-right", getCell(row + 1, col + 1));
-            }
-        }
+    /**
+     * Assigns the neighbours of the cell at the given row and column, one per
+     * slot, leaving the slots past the edge of the grid empty.
+     */
+    private void findCellNeighbours(Cell c, int row, int col) {
+        boolean top = row != 0;
+        boolean bottom = row != numRows - 1;
+        boolean left = col != 0;
+        boolean right = col != numCols - 1;
+        int index = row * numCols + col;
 
+        Cell[] neighbours = c.neighbours;
+        neighbours[Cell.TOP_LEFT] = top && left ? cells.get(index - numCols - 1) : null;
+        neighbours[Cell.TOP] = top ? cells.get(index - numCols) : null;
+        neighbours[Cell.TOP_RIGHT] = top && right ? cells.get(index - numCols + 1) : null;
+        neighbours[Cell.LEFT] = left ? cells.get(index - 1) : null;
+        neighbours[Cell.RIGHT] = right ? cells.get(index + 1) : null;
+        neighbours[Cell.BOTTOM_LEFT] = bottom && left ? cells.get(index + numCols - 1) : null;
+        neighbours[Cell.BOTTOM] = bottom ? cells.get(index + numCols) : null;
+        neighbours[Cell.BOTTOM_RIGHT] = bottom && right ? cells.get(index + numCols + 1) : null;
     }
 
     /**
      * Assigns a color to the specified cell based on its position.
+     * The colour is (row % 2) * 2 + (col % 2). Any two neighbours, including
+     * diagonal ones, differ by one in their row or column, so they never
+     * share a colour.
      *
      * @param c the cell to be colored
      */
     public void assignCellColour(Cell c) {
         int[] cellPosition = getCellPosition(c);
-        int row = cellPosition[0];
-        int col = cellPosition[1];
+        assignCellColour(c, cellPosition[0], cellPosition[1]);
+    }
+
+    private static void assignCellColour(Cell c, int row, int col) {
+        c.setColour((row % 2) * 2 + (col % 2));
+    }
+
+    /**
+     * Checks that no cell has the same colour as one of its neighbours, so
+     * that the cells of one colour can be processed in parallel.
+     *
+     * @throws IllegalStateException if two neighbouring cells share a colour
+     */
+    public void verifyColouring() {
+        for (Cell c : cells) {
+            for (Cell n : c.neighbours) {
+                if (n != null && c.getColour() == n.getColour()) {
+                    throw new IllegalStateException(c + " and its neighbour " + n + " share colour " + c.getColour());
+                }
+            }
+        }
+    }
 
-        c.setColour((row % 2) * 4 + (col % 2) * 2 + ((row + col) % 2));
+    /**
+     * Retrieves the colours that have at least one cell, in ascending order.
+     *
+     * @return the colours in use
+     */
+    public List<Integer> getColours() {
+        List<Integer> colours = new ArrayList<>(cellsByColour.keySet());
+        Collections.sort(colours);
+        return colours;
     }
 
     /**
      * Groups cells by their color.
      */
     public void groupCellsbyColour() {
-        cellsByColour = cells.stream().collect(Collectors.groupingBy(Cell::getColour));
+        cellsByColour = new HashMap<>();
+        for (Cell c : cells) {
+            cellsByColour.computeIfAbsent(c.getColour(), k -> new ArrayList<>(cells.size() / NUM_COLOURS + 1)).add(c);
+        }
     }
 
     /**
@@ -208,56 +238,75 @@ public class Grid {
     }
 
     /**
-     * Computes a hash value for the given x and y coordinates.
+     * Creates an empty point store sized by the current quotas of the cells,
+     * and gives it to every cell.
      *
-     * @param x the x coordinate
-     * @param y the y coordinate
-     * @return the hash value
+     * @return the point store
      */
-    private double hash(double x, double y) {
-        return 31 * x + y; // Simple hash function
+    public PointStore createPointStore() {
+        this.points = new PointStore(cells);
+        for (Cell c : cells) {
+            c.setPoints(this.points);
+        }
+
+        return this.points;
     }
 
     /**
-     * Adds a cell to the hash table for efficient lookup.
+     * Retrieves the store holding the coordinates of every cell.
      *
-     * @param cell the cell to be added
+     * @return the point store
      */
-    public void addCell(Cell cell) {
-        // Calculate the bucket indices for the cell's bounding box
-        int minXBucket = (int) Math.floor(cell.getStartX());
-        int maxXBucket = (int) Math.floor(cell.getEndX());
-        int minYBucket = (int) Math.floor(cell.getStartY());
-        int maxYBucket = (int) Math.floor(cell.getEndY());
-
-        // Add the cell to all buckets it overlaps
-        for (int x = minXBucket; x <= maxXBucket; x++) {
-            for (int y = minYBucket; y <= maxYBucket; y++) {
-                double hash = hash(x, y);
-                hashTable.computeIfAbsent(hash, k -> new HashSet<>()).add(cell);
-            }
+    public PointStore getPoints() {
+        return this.points;
+    }
+
+    /**
+     * Finds the index of the band of cells holding a coordinate.
+     * A band ends at the floor of its bound, which is also where the next band
+     * starts, so the coordinate belongs to the first band whose end is at or
+     * above it. The bands are cellSize wide apart from the last, which ends at
+     * the edge of the grid, so dividing gives the band up to rounding and a
+     * step or two corrects it.
+     *
+     * @param v      the coordinate
+     * @param bounds the upper bounds of the bands
+     * @return the band index, or -1 if the coordinate is outside the grid
+     */
+    private int findBand(double v, double[] bounds) {
+        int n = bounds.length;
+        if (!(v >= 0) || n == 0 || v > Math.floor(bounds[n - 1])) {
+            return -1;
+        }
+
+        int i = Math.min(n - 1, Math.max(0, (int) Math.ceil(v / cellSize) - 1));
+        while (i > 0 && v <= Math.floor(bounds[i - 1])) {
+            i--;
+        }
+        while (v > Math.floor(bounds[i])) {
+            i++;
         }
+        return i;
     }
 
     /**
      * Finds the cell that contains the specified x and y coordinates.
+     * Cells share their edge pixels with the next cell along; a coordinate
+     * on a shared edge belongs to the cell before it, the cell with the lower
+     * row and column.
      *
      * @param x the x coordinate
      * @param y the y coordinate
      * @return the cell that contains the coordinates, or null if no cell is found
      */
     public Cell findCell(double x, double y) {
-        double hash = hash(x, y);
-        Set<Cell> candidateCells = hashTable.get(hash);
-
-        if (candidateCells != null) {
-            for (Cell cell : candidateCells) {
-                if (cell.contains(x, y)) {
-                    return cell;
-                }
-            }
+        int col = findBand(x, xCellBounds);
+        int row = findBand(y, yCellBounds);
+        if (col < 0 || row < 0) {
+            return null;
         }
-        return null; // or handle the case where no cell is found
+
+        return this.cells.get(row * numCols + col);
     }
 
     /**
@@ -279,8 +328,8 @@ public class Grid {
         int cPointVariance = baseCpoints / 20;
         int uPointVariance = baseUpoints / 40;
 
-        ArrayList<Integer> cPointsPerCell = new ArrayList<>();
-        ArrayList<Integer> uPointsPerCell = new ArrayList<>();
+        int[] cPointsPerCell = new int[cells.size()];
+        int[] uPointsPerCell = new int[cells.size()];
 
         int remainingCpoints = numCPoints;
         int remainingUpoints = numUPoints;
@@ -290,8 +339,8 @@ public class Grid {
             int cPointValue = Math.max(0, baseCpoints + random.nextInt(0 - cPointVariance, cPointVariance + 1));
             int uPointValue = Math.max(0, baseUpoints + random.nextInt(0 - uPointVariance, uPointVariance + 1));
 
-            cPointsPerCell.add(cPointValue);
-            uPointsPerCell.add(uPointValue);
+            cPointsPerCell[i] = cPointValue;
+            uPointsPerCell[i] = uPointValue;
 
             remainingCpoints -= cPointValue;
             remainingUpoints -= uPointValue;
@@ -302,44 +351,49 @@ public class Grid {
         if (remainingCpoints > 0) {
             for (int i = 0; i < remainingCpoints; i++) {
                 int index = random.nextInt(0, cells.size());
-                cPointsPerCell.set(index, cPointsPerCell.get(index) + 1);
+                cPointsPerCell[index]++;
             }
         }
 
         if (remainingCpoints < 0) {
             for (int i = 0; i < remainingCpoints * -1; i++) {
                 int index = random.nextInt(0, cells.size());
-                cPointsPerCell.set(index, cPointsPerCell.get(index) - 1);
+                cPointsPerCell[index]--;
             }
         }
 
         if (remainingUpoints > 0) {
             for (int i = 0; i < remainingUpoints; i++) {
                 int index = random.nextInt(0, cells.size());
-                uPointsPerCell.set(index, uPointsPerCell.get(index) + 1);
+                uPointsPerCell[index]++;
             }
         }
 
         if (remainingUpoints < 0) {
             for (int i = 0; i < remainingUpoints * -1; i++) {
                 int index = random.nextInt(0, cells.size());
-                uPointsPerCell.set(index, uPointsPerCell.get(index) - 1);
+                uPointsPerCell[index]--;
             }
         }
 
-        // Assign points to cells
+        // Assign points to cells, in row order so that the row and column
+        // follow from the index
 
         for (int i = 0; i < cells.size(); i++) {
             Cell c = cells.get(i);
+            int row = i / numCols;
+            int col = i % numCols;
 
-            assignCellColour(c);
-            findCellNeighbours(c);
+            assignCellColour(c, row, col);
+            findCellNeighbours(c, row, col);
 
-            c.setNumCPoints(cPointsPerCell.get(i));
-            c.setNumUPoints(uPointsPerCell.get(i));
+            c.setNumCPoints(cPointsPerCell[i]);
+            c.setNumUPoints(uPointsPerCell[i]);
         }
 
         groupCellsbyColour();
+        verifyColouring();
+        createPointStore();
     }
 
 }
@@ -1,11 +1,39 @@
 package plantgen;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Class to handle the abiotics file inputs
  */
 public class InputHandler {
     protected ElevationMap eMap = new ElevationMap();
     protected AbioticMap aMap = new AbioticMap();
+    private Precision precision = Precision.DOUBLE;
+    private boolean cacheTerrain = false;
+
+    /**
+     * Method to set the storage precision of the abiotic data
+     * 
+     * @param precision the storage precision
+     */
+    public void setPrecision(Precision precision) {
+        this.precision = precision;
+        this.aMap.setPrecision(precision);
+    }
+
+    /**
+     * Method to set whether the terrain inputs are kept in a binary
+     * {@link TerrainCache} next to the elevation file
+     * 
+     * @param cacheTerrain true to use the terrain cache
+     */
+    public void setCacheTerrain(boolean cacheTerrain) {
+        this.cacheTerrain = cacheTerrain;
+    }
 
     /**
      * Method that reads and returns formatted elevation data
@@ -26,8 +54,116 @@ public class InputHandler {
      * @param filepath
      */
 
-    public double[][][] readAbiotic(String filepath) {
+    public TerrainRaster readAbiotic(String filepath) {
         this.aMap.readData(filepath);
         return this.aMap.getData();
     }
+
+    /**
+     * Method that reads the dimensions from the header of the elevation file
+     * 
+     * @param filepath path to the elevation file
+     * @return the x and y dimensions
+     */
+    public int[] readDimensions(String filepath) {
+        try (NumberReader reader = NumberReader.open(filepath)) {
+            return new int[] { reader.nextInt(), reader.nextInt() };
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new int[] { 0, 0 };
+        }
+    }
+
+    /**
+     * Method that reads and formats abiotic data into a new abiotic map, so
+     * that several files can be read at once
+     * 
+     * @param filepath path to the abiotic file
+     * @param dimX     x dimension of the terrain
+     * @param dimY     y dimension of the terrain
+     * @return the abiotic data
+     */
+    public TerrainRaster readAbiotic(String filepath, int dimX, int dimY) {
+        AbioticMap map = new AbioticMap();
+        map.setPrecision(this.precision);
+        map.setDimX(dimX);
+        map.setDimY(dimY);
+        map.readData(filepath);
+        return map.getData();
+    }
+
+    /**
+     * Method that loads all of the terrain inputs into a terrain.
+     * When the terrain cache is turned on and an up to date cache for this
+     * precision exists next to the elevation file it is used; otherwise the
+     * text files are parsed and the cache is written so that later runs can
+     * skip parsing.
+     * The cache holds exactly the parsed data, so a run gives the same results
+     * whether or not the cache existed beforehand or could be written.
+     * 
+     * @param terrain   the terrain to load into
+     * @param filepaths elevation, sun, temperature and moisture file paths
+     */
+    public void readTerrain(Terrain terrain, String[] filepaths) {
+        if (!this.cacheTerrain) {
+            readText(terrain, filepaths);
+            return;
+        }
+
+        Path cachePath = TerrainCache.getCachePath(filepaths[0]);
+
+        if (TerrainCache.isValid(cachePath, filepaths, this.precision)) {
+            try {
+                long startTime = System.nanoTime();
+                TerrainCache.open(cachePath).loadInto(terrain, this.precision);
+                System.out.println(String.format("Loaded terrain cache %s in %.0f ms", cachePath.getFileName(),
+                        (System.nanoTime() - startTime) / 1e6));
+                return;
+            } catch (IOException e) {
+                // Fall back to the text files if the cache cannot be mapped
+                e.printStackTrace();
+            }
+        }
+
+        readText(terrain, filepaths);
+
+        try {
+            TerrainCache.write(cachePath, filepaths, this.eMap, terrain.getSunlightData(),
+                    terrain.getTemperatureData(), terrain.getWetData());
+            System.out.println("Wrote terrain cache " + cachePath);
+        } catch (IOException e) {
+            // The parsed text data is kept if the cache cannot be written
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Method that parses the terrain text inputs into a terrain, without using
+     * the binary cache.
+     * 
+     * @param terrain   the terrain to load into
+     * @param filepaths elevation, sun, temperature and moisture file paths
+     */
+    public void readText(Terrain terrain, String[] filepaths) {
+        // The four files are parsed at the same time, each abiotic file into
+        // its own map sized from the elevation header
+        int[] dims = readDimensions(filepaths[0]);
+        CompletableFuture<double[][]> elevation = CompletableFuture.supplyAsync(() -> readElevation(filepaths[0]));
+        List<CompletableFuture<TerrainRaster>> abiotics = new ArrayList<>();
+        for (int i = 1; i < 4; i++) {
+            String filepath = filepaths[i];
+            abiotics.add(CompletableFuture.supplyAsync(() -> readAbiotic(filepath, dims[0], dims[1])));
+        }
+
+        terrain.setElevationData(elevation.join());
+        terrain.setSunlightData(abiotics.get(0).join());
+        terrain.setTemperatureData(abiotics.get(1).join());
+        terrain.setWetData(abiotics.get(2).join());
+
+        terrain.setDimX(this.eMap.getDimX());
+        terrain.setDimY(this.eMap.getDimY());
+        terrain.setGridSpacing(this.eMap.getGridSpacing());
+        terrain.setMinElv(this.eMap.minElv);
+        terrain.setMaxElv(this.eMap.maxElv);
+    }
 }
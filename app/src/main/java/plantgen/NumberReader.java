@@ -0,0 +1,297 @@
+package plantgen;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Streaming reader for the whitespace separated number files (.elv and the
+ * abiotic text files).
+ * Numbers are parsed straight out of a reusable byte buffer, so no String is
+ * created per value and the file is never held in memory as a whole.
+ */
+public class NumberReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Powers of ten that are exactly representable as doubles
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    // Largest mantissas that are exactly representable as a double (2^53) and a
+    // float (2^24)
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final long MAX_EXACT_FLOAT_MANTISSA = 1L << 24;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private long bytesRead = 0;
+
+    // Characters of the current token, only turned into a String on the slow path
+    private char[] token = new char[32];
+    private int tokenLength = 0;
+    private long mantissa;
+    private int exponent;
+    private boolean negative;
+
+    private final long startTime = System.nanoTime();
+
+    /**
+     * Constructs a NumberReader over the given input stream.
+     *
+     * @param in the stream to read from
+     */
+    public NumberReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Opens a NumberReader on the file at the given path.
+     *
+     * @param filepath path to the file
+     * @return a reader positioned at the start of the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static NumberReader open(String filepath) throws IOException {
+        return new NumberReader(Files.newInputStream(Paths.get(filepath)));
+    }
+
+    /**
+     * Refills the buffer from the stream.
+     *
+     * @return false if the end of the stream has been reached
+     */
+    private boolean fill() throws IOException {
+        int n = in.read(buffer, 0, BUFFER_SIZE);
+        if (n <= 0) {
+            position = limit = 0;
+            return false;
+        }
+
+        position = 0;
+        limit = n;
+        bytesRead += n;
+        return true;
+    }
+
+    /**
+     * Returns the next byte without consuming it, or -1 at the end of the stream.
+     */
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    /**
+     * Skips spaces, tabs and line breaks.
+     */
+    private void skipWhitespace() throws IOException {
+        int b;
+        while ((b = peek()) == ' ' || b == '\n' || b == '\r' || b == '\t') {
+            position++;
+        }
+    }
+
+    /**
+     * Skips the remainder of the current line, including the line break.
+     *
+     * @throws IOException if the stream cannot be read
+     */
+    public void skipLine() throws IOException {
+        int b;
+        while ((b = peek()) != -1) {
+            position++;
+            if (b == '\n') {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads the next integer token.
+     *
+     * @return the parsed integer
+     * @throws IOException if the stream cannot be read or has ended
+     */
+    public int nextInt() throws IOException {
+        skipWhitespace();
+        int b = peek();
+        if (b == -1) {
+            throw new EOFException("Expected an integer but reached the end of the file");
+        }
+
+        boolean negative = b == '-';
+        if (negative || b == '+') {
+            position++;
+        }
+
+        long value = 0;
+        int digits = 0;
+        while ((b = peek()) >= '0' && b <= '9') {
+            value = value * 10 + (b - '0');
+            position++;
+            digits++;
+        }
+
+        if (digits == 0 || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Invalid integer after byte " + (bytesRead - limit + position));
+        }
+
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Reads the next decimal token as a float.
+     * Values with at most 7 significant digits are evaluated as mantissa / 10^k
+     * in float arithmetic, which is correctly rounded and so identical to
+     * Float.parseFloat. Anything else falls back to Float.parseFloat.
+     *
+     * @return the parsed float
+     * @throws IOException if the stream cannot be read or has ended
+     */
+    public float nextFloat() throws IOException {
+        if (!scanToken() || mantissa >= MAX_EXACT_FLOAT_MANTISSA || -exponent >= FLOAT_POWERS_OF_TEN.length) {
+            return Float.parseFloat(new String(token, 0, tokenLength));
+        }
+
+        float value = mantissa / FLOAT_POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Reads the next decimal token as a double.
+     * Values with at most 15 significant digits are evaluated as mantissa / 10^k,
+     * which is correctly rounded and so identical to Double.parseDouble.
+     * Anything else falls back to Double.parseDouble.
+     *
+     * @return the parsed double
+     * @throws IOException if the stream cannot be read or has ended
+     */
+    public double nextDouble() throws IOException {
+        if (!scanToken() || -exponent >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(new String(token, 0, tokenLength));
+        }
+
+        double value = mantissa / POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Scans the next token into the token buffer, accumulating its decimal
+     * mantissa and exponent on the way.
+     *
+     * @return false if the token has to be handed to the JDK parser
+     */
+    private boolean scanToken() throws IOException {
+        skipWhitespace();
+        int b = peek();
+        if (b == -1) {
+            throw new EOFException("Expected a number but reached the end of the file");
+        }
+
+        tokenLength = 0;
+        mantissa = 0;
+        exponent = 0;
+        boolean fast = true;
+
+        negative = b == '-';
+        if (negative || b == '+') {
+            appendToken(b);
+            position++;
+        }
+
+        int digits = 0;
+        boolean seenPoint = false;
+
+        while ((b = peek()) != -1) {
+            if (b >= '0' && b <= '9') {
+                if (mantissa < MAX_EXACT_MANTISSA / 10) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (seenPoint) {
+                        exponent--;
+                    }
+                } else {
+                    fast = false;
+                }
+                digits++;
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                break;
+            } else {
+                // Exponents are rare in the input files, leave them to the JDK parser
+                fast = false;
+            }
+
+            appendToken(b);
+            position++;
+        }
+
+        if (digits == 0 && fast) {
+            throw new NumberFormatException("Invalid number: \"" + new String(token, 0, tokenLength) + "\"");
+        }
+
+        return fast;
+    }
+
+    /**
+     * Appends a byte to the current token, growing the token buffer if needed.
+     */
+    private void appendToken(int b) {
+        if (tokenLength == token.length) {
+            token = Arrays.copyOf(token, token.length * 2);
+        }
+        token[tokenLength++] = (char) b;
+    }
+
+    /**
+     * Returns the number of bytes read from the underlying stream so far.
+     *
+     * @return bytes read
+     */
+    public long getBytesRead() {
+        return this.bytesRead;
+    }
+
+    /**
+     * Returns the read throughput since this reader was opened.
+     *
+     * @return throughput in MB/s
+     */
+    public double getThroughput() {
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        return seconds > 0 ? (bytesRead / 1e6) / seconds : 0;
+    }
+
+    /**
+     * Prints the amount of data read and the throughput achieved.
+     *
+     * @param filepath the file that was read, used in the message
+     */
+    public void printThroughput(String filepath) {
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.println(String.format("Read %s: %.1f MB in %.0f ms (%.1f MB/s)", Paths.get(filepath).getFileName(),
+                bytesRead / 1e6, seconds * 1000, getThroughput()));
+    }
+
+    /**
+     * Closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,136 @@
+package plantgen;
+
+import java.util.Arrays;
+
+/**
+ * Background grid that buckets points by position, so that checking whether
+ * a point is too close to any other only looks at the buckets within the
+ * minimum distance rather than at every point.
+ * Each bucket is a chain of point indices, so a bucket may hold any number
+ * of points. With buckets of size r / sqrt(2) and points at least r apart,
+ * every bucket holds at most one point.
+ * Distances are compared squared and in grid units.
+ */
+public class OccupancyGrid {
+    private final float minX;
+    private final float minY;
+    private final double bucketSize;
+    private final int cols;
+    private final int rows;
+
+    // First point of each bucket and the next point in the same bucket, or -1
+    private final int[] head;
+    private int[] next;
+    private float[] xs;
+    private float[] ys;
+    private int size = 0;
+
+    /**
+     * Constructs an empty grid covering the given bounds.
+     *
+     * @param minX       smallest x coordinate covered
+     * @param minY       smallest y coordinate covered
+     * @param maxX       largest x coordinate covered
+     * @param maxY       largest y coordinate covered
+     * @param bucketSize side length of a bucket
+     */
+    public OccupancyGrid(double minX, double minY, double maxX, double maxY, double bucketSize) {
+        this.minX = (float) minX;
+        this.minY = (float) minY;
+        this.bucketSize = bucketSize;
+        this.cols = (int) Math.floor((maxX - minX) / bucketSize) + 1;
+        this.rows = (int) Math.floor((maxY - minY) / bucketSize) + 1;
+
+        this.head = new int[cols * rows];
+        Arrays.fill(this.head, -1);
+
+        this.next = new int[16];
+        this.xs = new float[16];
+        this.ys = new float[16];
+    }
+
+    /**
+     * Adds a point to the grid. Points outside the bounds are ignored.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return true if the point was added
+     */
+    public boolean add(float x, float y) {
+        int col = (int) Math.floor((x - minX) / bucketSize);
+        int row = (int) Math.floor((y - minY) / bucketSize);
+        if (col < 0 || col >= cols || row < 0 || row >= rows) {
+            return false;
+        }
+
+        if (size == xs.length) {
+            next = Arrays.copyOf(next, size * 2);
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+        }
+
+        int bucket = row * cols + col;
+        xs[size] = x;
+        ys[size] = y;
+        next[size] = head[bucket];
+        head[bucket] = size;
+        size++;
+
+        return true;
+    }
+
+    /**
+     * Adds the position of a coordinate to the grid.
+     *
+     * @param c the coordinate
+     * @return true if the point was added
+     */
+    public boolean add(Coordinate c) {
+        return add(c.getX(), c.getY());
+    }
+
+    /**
+     * Checks that no point in the grid is closer than the given distance.
+     *
+     * @param x        the x coordinate
+     * @param y        the y coordinate
+     * @param distance the minimum distance, in grid units
+     * @return true if every point is at least the distance away
+     */
+    public boolean isClear(float x, float y, double distance) {
+        if (size == 0) {
+            return true;
+        }
+
+        double distanceSq = distance * distance;
+
+        // Buckets overlapping the square of side 2 * distance around the point
+        int fromCol = Math.max(0, (int) Math.floor((x - distance - minX) / bucketSize));
+        int toCol = Math.min(cols - 1, (int) Math.floor((x + distance - minX) / bucketSize));
+        int fromRow = Math.max(0, (int) Math.floor((y - distance - minY) / bucketSize));
+        int toRow = Math.min(rows - 1, (int) Math.floor((y + distance - minY) / bucketSize));
+
+        for (int r = fromRow; r <= toRow; r++) {
+            for (int c = fromCol; c <= toCol; c++) {
+                for (int i = head[r * cols + c]; i != -1; i = next[i]) {
+                    double dx = xs[i] - x;
+                    double dy = ys[i] - y;
+                    if (dx * dx + dy * dy < distanceSq) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the number of points in the grid.
+     *
+     * @return number of points
+     */
+    public int size() {
+        return this.size;
+    }
+}
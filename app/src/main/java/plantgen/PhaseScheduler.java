@@ -0,0 +1,175 @@
+package plantgen;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the per-colour cell phases of the sampler and the plant assignment on
+ * one long-lived ForkJoinPool.
+ * The tasks of a phase are handed out to at most parallelism workers through
+ * a shared counter, so a worker that finishes its cells early takes the next
+ * ones. A Phaser separates the phases: runPhase returns once every task of
+ * the phase has finished, so cells of the next colour never run alongside
+ * them. The wall-clock time of each phase is recorded by name.
+ */
+public class PhaseScheduler {
+    private static PhaseScheduler shared;
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final Map<String, Long> phaseTimes = new LinkedHashMap<>();
+
+    /**
+     * Constructs a scheduler with its own pool.
+     *
+     * @param parallelism number of worker threads
+     */
+    public PhaseScheduler(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, got " + parallelism);
+        }
+
+        this.parallelism = parallelism;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Returns the scheduler shared by every Ecosystem that has not been given
+     * its own. Its parallelism is read from the plantgen.parallelism system
+     * property, defaulting to the number of available processors.
+     *
+     * @return the shared scheduler
+     */
+    public static synchronized PhaseScheduler getShared() {
+        if (shared == null) {
+            shared = new PhaseScheduler(
+                    Integer.getInteger("plantgen.parallelism", Runtime.getRuntime().availableProcessors()));
+        }
+        return shared;
+    }
+
+    /**
+     * Runs the tasks of a phase and waits for all of them to finish.
+     *
+     * @param name  name the phase time is recorded under
+     * @param tasks the tasks of the phase, which must be independent
+     */
+    public void runPhase(String name, List<Runnable> tasks) {
+        runPhase(name, tasks, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Runs the tasks of a phase and waits for them to finish, for at most the
+     * given time. On a timeout no further tasks of the phase are started, but
+     * tasks that are already running are not stopped; the caller has to make
+     * them return.
+     *
+     * @param name    name the phase time is recorded under
+     * @param tasks   the tasks of the phase, which must be independent
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return false if the phase timed out or the wait was interrupted
+     */
+    public boolean runPhase(String name, List<Runnable> tasks, long timeout, TimeUnit unit) {
+        long startTime = System.nanoTime();
+
+        AtomicInteger next = new AtomicInteger();
+        int workers = Math.min(parallelism, tasks.size());
+        Phaser phaser = new Phaser(workers + 1);
+
+        for (int w = 0; w < workers; w++) {
+            pool.execute(() -> {
+                try {
+                    int i;
+                    while ((i = next.getAndIncrement()) < tasks.size()) {
+                        try {
+                            tasks.get(i).run();
+                        } catch (RuntimeException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                } finally {
+                    phaser.arriveAndDeregister();
+                }
+            });
+        }
+
+        boolean finished = true;
+        try {
+            phaser.awaitAdvanceInterruptibly(phaser.arrive(), timeout, unit);
+        } catch (TimeoutException e) {
+            finished = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finished = false;
+        }
+
+        if (!finished) {
+            // Stop handing out the remaining tasks
+            next.set(tasks.size());
+        }
+
+        synchronized (phaseTimes) {
+            phaseTimes.put(name, System.nanoTime() - startTime);
+        }
+
+        return finished;
+    }
+
+    /**
+     * Returns the wall-clock time of each phase run so far, in the order the
+     * phases first ran. A phase that runs again under the same name keeps its
+     * latest time.
+     *
+     * @return phase times in milliseconds by phase name
+     */
+    public Map<String, Double> getPhaseTimes() {
+        Map<String, Double> times = new LinkedHashMap<>();
+        synchronized (phaseTimes) {
+            for (Map.Entry<String, Long> entry : phaseTimes.entrySet()) {
+                times.put(entry.getKey(), entry.getValue() / 1e6);
+            }
+        }
+        return times;
+    }
+
+    /**
+     * Forgets the recorded phase times.
+     */
+    public void clearPhaseTimes() {
+        synchronized (phaseTimes) {
+            phaseTimes.clear();
+        }
+    }
+
+    /**
+     * Prints the recorded phase times.
+     */
+    public void printPhaseTimes() {
+        for (Map.Entry<String, Double> entry : getPhaseTimes().entrySet()) {
+            System.out.println(String.format("  %-28s %8.1f ms", entry.getKey(), entry.getValue()));
+        }
+    }
+
+    /**
+     * Returns the number of worker threads.
+     *
+     * @return the parallelism
+     */
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * Shuts down the pool once the running phases have finished.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
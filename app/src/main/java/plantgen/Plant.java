@@ -5,6 +5,7 @@ package plantgen;
  */
 public class Plant {
     private String species;
+    private int speciesId = -1;
     private Coordinate position;
 
     // Calculated attributes
@@ -24,6 +25,20 @@ public class Plant {
         this.position = position;
     }
 
+    /**
+     * Constructor to initialize the Plant object with species, its index in
+     * the species data and position
+     * 
+     * @param species   The species of the plant
+     * @param speciesId The index of the species in the species data
+     * @param position  The position of the plant
+     */
+    public Plant(String species, int speciesId, Coordinate position) {
+        this.species = species;
+        this.speciesId = speciesId;
+        this.position = position;
+    }
+
     /**
      * Method to load the attributes of the plant
      * 
@@ -46,6 +61,27 @@ public class Plant {
         return this.species;
     }
 
+    /**
+     * Method to return the index of the species of the plant in the species
+     * data, or -1 if the plant was created without one and the ecosystem has
+     * not resolved it from the species name yet
+     * 
+     * @return index of the species
+     */
+    public int getSpeciesId() {
+        return this.speciesId;
+    }
+
+    /**
+     * Method to set the index of the species of the plant in the species data,
+     * for plants created without one
+     * 
+     * @param speciesId index of the species
+     */
+    void setSpeciesId(int speciesId) {
+        this.speciesId = speciesId;
+    }
+
     /**
      * Method to return the age of the plant
      * 
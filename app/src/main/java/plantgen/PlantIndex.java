@@ -0,0 +1,159 @@
+package plantgen;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Uniform grid spatial index of the placed plants, for finding the plants
+ * near a position without scanning every placed plant.
+ * The buckets are square, sized to the largest footprint of a plant, so a
+ * query for the plants whose footprint can reach a point only looks at the
+ * surrounding 3 x 3 buckets and costs O(k) in the number of plants found.
+ *
+ * Each bucket is an immutable linked list whose head is swapped in with a
+ * compare and set, so plants can be added from the colour phase worker
+ * threads without locking, and queries running alongside see every plant
+ * whose add has completed. The order in which a query visits the plants of
+ * a bucket is not specified.
+ * Positions and distances are in grid coordinates.
+ */
+public class PlantIndex {
+    private final double bucketSize;
+    private final int bucketsX;
+    private final int bucketsY;
+    private final AtomicReferenceArray<Node> buckets;
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Node of a bucket's list of plants.
+     */
+    private static final class Node {
+        final Plant plant;
+        final float x;
+        final float y;
+        final Node next;
+
+        Node(Plant plant, Node next) {
+            this.plant = plant;
+            this.x = plant.getPosition().getX();
+            this.y = plant.getPosition().getY();
+            this.next = next;
+        }
+    }
+
+    /**
+     * Constructs an empty index over a terrain.
+     *
+     * @param dimX       x dimension of the terrain
+     * @param dimY       y dimension of the terrain
+     * @param bucketSize side of a bucket, at least the usual query radius
+     */
+    public PlantIndex(int dimX, int dimY, double bucketSize) {
+        if (!(bucketSize > 0)) {
+            throw new IllegalArgumentException("The bucket size must be positive: " + bucketSize);
+        }
+        this.bucketSize = bucketSize;
+        this.bucketsX = (int) Math.ceil(dimX / bucketSize) + 1;
+        this.bucketsY = (int) Math.ceil(dimY / bucketSize) + 1;
+        this.buckets = new AtomicReferenceArray<>(bucketsX * bucketsY);
+    }
+
+    /**
+     * Creates an index with buckets the size of the largest footprint of the
+     * species, 1.5 times their largest canopy radius.
+     *
+     * @param dimX        x dimension of the terrain
+     * @param dimY        y dimension of the terrain
+     * @param species     the species that can be placed
+     * @param gridSpacing the grid spacing, in metres
+     * @return the index
+     */
+    public static PlantIndex forSpecies(int dimX, int dimY, Species[] species, double gridSpacing) {
+        double maxRadius = 0;
+        for (Species s : species) {
+            // The height stays below the species' maximum height
+            maxRadius = Math.max(maxRadius, s.getMaxHeightOpen() * s.getRadiusMultipierOpen());
+            maxRadius = Math.max(maxRadius, s.getMaxHeightClosed() * s.getRadiusMultipierClosed());
+        }
+        return new PlantIndex(dimX, dimY, Math.max(1, 1.5 * maxRadius / gridSpacing));
+    }
+
+    /**
+     * Adds a placed plant to the index. Safe to call from several threads.
+     *
+     * @param plant the plant
+     */
+    public void add(Plant plant) {
+        Coordinate position = plant.getPosition();
+        int b = bucket(position.getX(), position.getY());
+        Node head;
+        do {
+            head = buckets.get(b);
+        } while (!buckets.compareAndSet(b, head, new Node(plant, head)));
+        size.incrementAndGet();
+    }
+
+    /**
+     * Finds the plants strictly within a distance of a position.
+     *
+     * @param x        x coordinate
+     * @param y        y coordinate
+     * @param distance the distance
+     * @param found    list the plants found are added to
+     * @return the number of plants found
+     */
+    public int findWithin(float x, float y, double distance, List<Plant> found) {
+        int minX = clamp((int) Math.floor((x - distance) / bucketSize), bucketsX);
+        int maxX = clamp((int) Math.floor((x + distance) / bucketSize), bucketsX);
+        int minY = clamp((int) Math.floor((y - distance) / bucketSize), bucketsY);
+        int maxY = clamp((int) Math.floor((y + distance) / bucketSize), bucketsY);
+        double distanceSq = distance * distance;
+
+        int count = 0;
+        for (int bx = minX; bx <= maxX; bx++) {
+            for (int by = minY; by <= maxY; by++) {
+                for (Node n = buckets.get(bx * bucketsY + by); n != null; n = n.next) {
+                    double dx = n.x - x;
+                    double dy = n.y - y;
+                    if (dx * dx + dy * dy < distanceSq) {
+                        found.add(n.plant);
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the bucket of a position, clamped to the index.
+     */
+    private int bucket(float x, float y) {
+        int bx = clamp((int) Math.floor(x / bucketSize), bucketsX);
+        int by = clamp((int) Math.floor(y / bucketSize), bucketsY);
+        return bx * bucketsY + by;
+    }
+
+    private static int clamp(int b, int numBuckets) {
+        return Math.max(0, Math.min(numBuckets - 1, b));
+    }
+
+    /**
+     * Returns the side of a bucket.
+     *
+     * @return bucket size, in grid coordinates
+     */
+    public double getBucketSize() {
+        return this.bucketSize;
+    }
+
+    /**
+     * Returns the number of plants in the index.
+     *
+     * @return number of plants
+     */
+    public int size() {
+        return this.size.get();
+    }
+}
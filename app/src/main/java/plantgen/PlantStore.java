@@ -0,0 +1,71 @@
+package plantgen;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only store of the placed plants.
+ * Each cell task appends to its own segment, which is a plain ArrayList
+ * owned by that task, so placing a plant costs no copying or locking. The
+ * segments are merged into the store in the order they were created once
+ * the phase that filled them has finished, which makes the order of the
+ * plants independent of thread timing.
+ * Reading the store (get, size, iteration) only sees merged plants.
+ */
+public class PlantStore extends AbstractList<Plant> {
+    private final ArrayList<Plant> plants = new ArrayList<>();
+    private final ArrayList<List<Plant>> segments = new ArrayList<>();
+
+    /**
+     * Creates a segment for one task to append plants to.
+     * The segment must only be written by that task and is merged by the next
+     * call to merge.
+     *
+     * @return the new segment
+     */
+    public synchronized List<Plant> newSegment() {
+        List<Plant> segment = new ArrayList<>();
+        segments.add(segment);
+        return segment;
+    }
+
+    /**
+     * Appends the plants of every segment to the store, in the order the
+     * segments were created. Must only be called once the tasks writing to
+     * the segments have finished.
+     */
+    public synchronized void merge() {
+        int total = plants.size();
+        for (List<Plant> segment : segments) {
+            total += segment.size();
+        }
+        plants.ensureCapacity(total);
+
+        for (List<Plant> segment : segments) {
+            plants.addAll(segment);
+        }
+        segments.clear();
+    }
+
+    /**
+     * Appends a single plant to the store directly.
+     *
+     * @param plant the plant to add
+     * @return true
+     */
+    @Override
+    public synchronized boolean add(Plant plant) {
+        return plants.add(plant);
+    }
+
+    @Override
+    public synchronized Plant get(int index) {
+        return plants.get(index);
+    }
+
+    @Override
+    public synchronized int size() {
+        return plants.size();
+    }
+}
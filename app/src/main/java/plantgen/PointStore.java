@@ -0,0 +1,231 @@
+package plantgen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Columnar store of the canopy and undergrowth points of every cell.
+ * The points live in parallel x, y and layer arrays rather than as
+ * Coordinate objects, so that the sampler, viability, placement and abiotic
+ * update stages can scan them without allocating anything per point.
+ * Each cell owns a fixed range of slots sized by its quotas: its canopy
+ * slots followed by its undergrowth slots. A cell's points are added in
+ * order from the start of its range, and slots that were never filled keep
+ * the EMPTY layer.
+ * Different cells may be filled from different threads, but each cell must
+ * only be filled by one thread at a time.
+ */
+public class PointStore {
+    public static final byte EMPTY = 0;
+    public static final byte CANOPY = 1;
+    public static final byte UNDERGROWTH = 2;
+
+    private final float[] x;
+    private final float[] y;
+    private final byte[] layer;
+
+    // Per cell: first slot and quota of each layer, and number of points added
+    private final int[] canopyStart;
+    private final int[] canopyQuota;
+    private final int[] canopyCount;
+    private final int[] undergrowthStart;
+    private final int[] undergrowthQuota;
+    private final int[] undergrowthCount;
+
+    /**
+     * Constructs a store with room for the canopy and undergrowth quota of
+     * each cell. Cell i of the list is referred to by index i.
+     *
+     * @param cells the cells, in index order
+     */
+    public PointStore(List<Cell> cells) {
+        int numCells = cells.size();
+        canopyStart = new int[numCells];
+        canopyQuota = new int[numCells];
+        canopyCount = new int[numCells];
+        undergrowthStart = new int[numCells];
+        undergrowthQuota = new int[numCells];
+        undergrowthCount = new int[numCells];
+
+        int capacity = 0;
+        for (int i = 0; i < numCells; i++) {
+            Cell c = cells.get(i);
+            canopyStart[i] = capacity;
+            canopyQuota[i] = Math.max(0, c.getNumCPoints());
+            capacity += canopyQuota[i];
+
+            undergrowthStart[i] = capacity;
+            undergrowthQuota[i] = Math.max(0, c.getNumUPoints());
+            capacity += undergrowthQuota[i];
+        }
+
+        x = new float[capacity];
+        y = new float[capacity];
+        layer = new byte[capacity];
+    }
+
+    /**
+     * Adds a canopy point to a cell.
+     *
+     * @param cell the index of the cell
+     * @param px   the x coordinate
+     * @param py   the y coordinate
+     * @return the index of the point
+     * @throws IllegalStateException if the cell already holds its canopy quota
+     */
+    public int addCanopy(int cell, float px, float py) {
+        if (canopyCount[cell] == canopyQuota[cell]) {
+            throw new IllegalStateException("Cell " + cell + " already holds its canopy quota");
+        }
+
+        int i = canopyStart[cell] + canopyCount[cell]++;
+        set(i, px, py, CANOPY);
+        return i;
+    }
+
+    /**
+     * Adds an undergrowth point to a cell.
+     *
+     * @param cell the index of the cell
+     * @param px   the x coordinate
+     * @param py   the y coordinate
+     * @return the index of the point
+     * @throws IllegalStateException if the cell already holds its undergrowth
+     *                               quota
+     */
+    public int addUndergrowth(int cell, float px, float py) {
+        if (undergrowthCount[cell] == undergrowthQuota[cell]) {
+            throw new IllegalStateException("Cell " + cell + " already holds its undergrowth quota");
+        }
+
+        int i = undergrowthStart[cell] + undergrowthCount[cell]++;
+        set(i, px, py, UNDERGROWTH);
+        return i;
+    }
+
+    private void set(int i, float px, float py, byte l) {
+        x[i] = px;
+        y[i] = py;
+        layer[i] = l;
+    }
+
+    /**
+     * Returns the x coordinate of a point.
+     *
+     * @param i the index of the point
+     * @return the x coordinate
+     */
+    public float getX(int i) {
+        return x[i];
+    }
+
+    /**
+     * Returns the y coordinate of a point.
+     *
+     * @param i the index of the point
+     * @return the y coordinate
+     */
+    public float getY(int i) {
+        return y[i];
+    }
+
+    /**
+     * Returns the layer of a slot: CANOPY, UNDERGROWTH or EMPTY.
+     *
+     * @param i the index of the slot
+     * @return the layer
+     */
+    public byte getLayer(int i) {
+        return layer[i];
+    }
+
+    /**
+     * Returns the index of the first canopy point of a cell.
+     *
+     * @param cell the index of the cell
+     * @return the index of the first canopy slot
+     */
+    public int getCanopyStart(int cell) {
+        return canopyStart[cell];
+    }
+
+    /**
+     * Returns the number of canopy points of a cell.
+     *
+     * @param cell the index of the cell
+     * @return the number of canopy points
+     */
+    public int getCanopyCount(int cell) {
+        return canopyCount[cell];
+    }
+
+    /**
+     * Returns the index of the first undergrowth point of a cell.
+     *
+     * @param cell the index of the cell
+     * @return the index of the first undergrowth slot
+     */
+    public int getUndergrowthStart(int cell) {
+        return undergrowthStart[cell];
+    }
+
+    /**
+     * Returns the number of undergrowth points of a cell.
+     *
+     * @param cell the index of the cell
+     * @return the number of undergrowth points
+     */
+    public int getUndergrowthCount(int cell) {
+        return undergrowthCount[cell];
+    }
+
+    /**
+     * Returns the number of slots, filled or not.
+     *
+     * @return the capacity of the store
+     */
+    public int capacity() {
+        return layer.length;
+    }
+
+    /**
+     * Returns the number of points of a layer over all cells.
+     *
+     * @param l CANOPY or UNDERGROWTH
+     * @return the number of points
+     */
+    public int count(byte l) {
+        int[] counts = l == CANOPY ? canopyCount : undergrowthCount;
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of bytes used by the point arrays.
+     *
+     * @return size of the point arrays in bytes
+     */
+    public long getSizeInBytes() {
+        return (long) capacity() * (2 * Float.BYTES + 1) + (long) canopyStart.length * 6 * Integer.BYTES;
+    }
+
+    /**
+     * Copies the points of a layer into new coordinates, in cell order.
+     * Intended for callers that need Coordinate objects, such as the tests.
+     *
+     * @param l CANOPY or UNDERGROWTH
+     * @return the coordinates
+     */
+    public ArrayList<Coordinate> toCoordinates(byte l) {
+        ArrayList<Coordinate> coords = new ArrayList<>(count(l));
+        for (int i = 0; i < layer.length; i++) {
+            if (layer[i] == l) {
+                coords.add(new Coordinate(x[i], y[i]));
+            }
+        }
+        return coords;
+    }
+}
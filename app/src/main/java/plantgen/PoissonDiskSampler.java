@@ -0,0 +1,307 @@
+package plantgen;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Sampler that fills each cell with Bridson's Poisson disk algorithm instead
+ * of dart throwing.
+ * Starting from a random seed point, new points are generated in the annulus
+ * between r and 2r around points on an active list, and an active point is
+ * retired once k candidates around it have failed. Proximity is checked
+ * against r / sqrt(2) background grids, so each check is O(1) and a cell
+ * is saturated in time linear in the number of points.
+ * The spacing is widened to match the cell's quota, and the saturated set is
+ * randomly thinned down to exactly the quota; a subset of a Poisson disk set
+ * keeps its minimum distance. Cells are still
+ * processed colour by colour, so neighbouring cells never run at the same
+ * time and their points act as fixed constraints.
+ */
+public class PoissonDiskSampler extends Sampler {
+    // Candidates tried around an active point before it is retired
+    private static final int MAX_ATTEMPTS = 30;
+
+    // A saturated Bridson set holds about 0.62 / r^2 points per unit area, so
+    // a spacing of sqrt(0.5 * area / quota) gives about 1.25 times the quota
+    private static final double TARGET_DENSITY = 0.5;
+
+    /**
+     * Constructs a PoissonDiskSampler object.
+     *
+     * @param terrain     The terrain object containing grid spacing information.
+     * @param grid        The grid object containing cells.
+     * @param samplerArgs Array of sampler arguments.
+     * @param random      The random number generator.
+     */
+    public PoissonDiskSampler(Terrain terrain, Grid grid, float[] samplerArgs, SplittableRandom random) {
+        super(terrain, grid, samplerArgs, random);
+    }
+
+    /**
+     * Generates canopy points for a given cell.
+     *
+     * @param cell The cell for which canopy points are generated.
+     * @param seed The seed for random number generation.
+     */
+    @Override
+    public void generateCanopy(Cell cell, int seed) {
+        double r = dCanopy / gridSpacing;
+
+        OccupancyGrid canopy = createGrid(cell, r);
+        for (Cell n : cell.neighbours) {
+            if (n != null) {
+                addAll(canopy, n.getPoints(), n.getCanopyStart(), n.getCanopyCount());
+            }
+        }
+
+        Constraints constraints = new Constraints(cell, canopy, r, null, 0);
+        PointList points = sampleCell(cell, cell.getNumCPoints(), constraints, new SplittableRandom(seed));
+        for (int i = 0; i < points.size; i++) {
+            cell.addCanopyCoord(points.xs[i], points.ys[i]);
+        }
+    }
+
+    /**
+     * Generates undergrowth points for a given cell.
+     *
+     * @param cell The cell for which undergrowth points are generated.
+     * @param seed The seed for random number generation.
+     */
+    @Override
+    public void generateUndergrowth(Cell cell, int seed) {
+        double r = dUndergrowth / gridSpacing;
+        double rMid = dMid / gridSpacing;
+
+        OccupancyGrid undergrowth = createGrid(cell, r);
+        OccupancyGrid canopy = createGrid(cell, Math.max(rMid, dCanopy / gridSpacing));
+        addAll(canopy, cell.getPoints(), cell.getCanopyStart(), cell.getCanopyCount());
+        for (Cell n : cell.neighbours) {
+            if (n == null) {
+                continue;
+            }
+            addAll(canopy, n.getPoints(), n.getCanopyStart(), n.getCanopyCount());
+            addAll(undergrowth, n.getPoints(), n.getUndergrowthStart(), n.getUndergrowthCount());
+        }
+
+        Constraints constraints = new Constraints(cell, undergrowth, r, canopy, rMid);
+        PointList points = sampleCell(cell, cell.getNumUPoints(), constraints, new SplittableRandom(seed));
+        for (int i = 0; i < points.size; i++) {
+            cell.addUndergrowthCoord(points.xs[i], points.ys[i]);
+        }
+    }
+
+    /**
+     * Adds a range of points of the point store to a background grid.
+     */
+    private static void addAll(OccupancyGrid grid, PointStore points, int start, int count) {
+        for (int i = start; i < start + count; i++) {
+            grid.add(points.getX(i), points.getY(i));
+        }
+    }
+
+    /**
+     * Creates a background grid over a cell and a margin of r around it, with
+     * buckets of size r / sqrt(2).
+     */
+    private static OccupancyGrid createGrid(Cell cell, double r) {
+        return new OccupancyGrid(cell.getStartX() - r, cell.getStartY() - r, cell.getEndX() + r,
+                cell.getEndY() + r, r / Math.sqrt(2));
+    }
+
+    /**
+     * Samples up to quota points in a cell.
+     * Sampling at the minimum distance r would saturate the cell however small
+     * the quota, so the cell is first saturated at the larger spacing that is
+     * expected to give slightly more points than the quota. Any shortfall is
+     * then filled in at r, and the result is thinned down to the quota. A
+     * cell that cannot hold its quota at r keeps as many points as fit.
+     *
+     * @param cell        the cell to fill
+     * @param quota       number of points wanted
+     * @param constraints the fixed points the new points must keep clear of
+     * @param random      the random number generator
+     * @return the points placed
+     */
+    private PointList sampleCell(Cell cell, int quota, Constraints constraints, SplittableRandom random) {
+        PointList placed = new PointList();
+        if (quota > 0) {
+            double area = (double) (cell.getEndX() - cell.getStartX()) * (cell.getEndY() - cell.getStartY());
+            double spacing = Math.max(constraints.r, Math.sqrt(TARGET_DENSITY * area / quota));
+
+            OccupancyGrid own = createGrid(cell, spacing);
+            saturate(cell, spacing, own, constraints, random, placed);
+            if (placed.size < quota && spacing > constraints.r) {
+                saturate(cell, constraints.r, own, constraints, random, placed);
+            }
+
+            // Gaps left by the wider spacing pack less densely than sampling
+            // at r from the start, so a cell that is still short is resampled
+            if (placed.size < quota && spacing > constraints.r) {
+                PointList dense = new PointList();
+                saturate(cell, constraints.r, createGrid(cell, constraints.r), constraints, random, dense);
+                if (dense.size > placed.size) {
+                    placed = dense;
+                }
+            }
+        }
+
+        return thin(placed, quota, random);
+    }
+
+    /**
+     * Fills a cell with points that are at least spacing apart from each other
+     * and that satisfy the constraints.
+     * New seed points are thrown until MAX_ATTEMPTS consecutive ones fail, so
+     * regions that the active list cannot reach are filled as well.
+     *
+     * @param cell        the cell to fill
+     * @param spacing     minimum distance between the new points
+     * @param own         grid of the points placed in this cell
+     * @param constraints the fixed points the new points must keep clear of
+     * @param random      the random number generator
+     * @param placed      list the new points are added to
+     */
+    private static void saturate(Cell cell, double spacing, OccupancyGrid own, Constraints constraints,
+            SplittableRandom random, PointList placed) {
+        // Indices into placed of the active points
+        int[] active = new int[16];
+        int numActive = 0;
+
+        int failedSeeds = 0;
+        while (failedSeeds < MAX_ATTEMPTS) {
+            float x = random.nextFloat(cell.getStartX(), cell.getEndX());
+            float y = random.nextFloat(cell.getStartY(), cell.getEndY());
+            if (!own.isClear(x, y, spacing) || !constraints.isValid(x, y)) {
+                failedSeeds++;
+                continue;
+            }
+
+            failedSeeds = 0;
+            active = place(x, y, own, placed, active, numActive++);
+
+            while (numActive > 0) {
+                int index = random.nextInt(numActive);
+                float centreX = placed.xs[active[index]];
+                float centreY = placed.ys[active[index]];
+
+                boolean found = false;
+                for (int attempt = 0; attempt < MAX_ATTEMPTS && !found; attempt++) {
+                    // Uniform by area over the annulus between spacing and 2 * spacing
+                    double angle = random.nextDouble(2 * Math.PI);
+                    double radius = spacing * Math.sqrt(random.nextDouble(1, 4));
+                    float cx = (float) (centreX + radius * Math.cos(angle));
+                    float cy = (float) (centreY + radius * Math.sin(angle));
+
+                    if (constraints.isValid(cx, cy) && own.isClear(cx, cy, spacing)) {
+                        active = place(cx, cy, own, placed, active, numActive++);
+                        found = true;
+                    }
+                }
+
+                if (!found) {
+                    // Retire the point by swapping it with the last active point
+                    active[index] = active[--numActive];
+                }
+            }
+        }
+    }
+
+    /**
+     * Places a point and makes it active at the given position of the active
+     * list, growing the list if needed.
+     *
+     * @return the active list
+     */
+    private static int[] place(float x, float y, OccupancyGrid own, PointList placed, int[] active,
+            int numActive) {
+        own.add(x, y);
+        if (numActive == active.length) {
+            active = Arrays.copyOf(active, numActive * 2);
+        }
+        active[numActive] = placed.size;
+        placed.add(x, y);
+
+        return active;
+    }
+
+    /**
+     * Selects a random subset of the points with a partial Fisher-Yates
+     * shuffle, keeping all of them if there are not more than the quota.
+     *
+     * @param points the points to select from
+     * @param quota  number of points wanted
+     * @param random the random number generator
+     * @return the selected points
+     */
+    private static PointList thin(PointList points, int quota, SplittableRandom random) {
+        if (points.size > quota) {
+            for (int i = 0; i < quota; i++) {
+                points.swap(i, random.nextInt(i, points.size));
+            }
+            points.size = quota;
+        }
+
+        return points;
+    }
+
+    /**
+     * Growable list of points held as parallel coordinate arrays.
+     */
+    private static class PointList {
+        private float[] xs = new float[16];
+        private float[] ys = new float[16];
+        private int size = 0;
+
+        void add(float x, float y) {
+            if (size == xs.length) {
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
+            }
+            xs[size] = x;
+            ys[size] = y;
+            size++;
+        }
+
+        void swap(int i, int j) {
+            float x = xs[i];
+            float y = ys[i];
+            xs[i] = xs[j];
+            ys[i] = ys[j];
+            xs[j] = x;
+            ys[j] = y;
+        }
+    }
+
+    /**
+     * The fixed points of a cell's neighbourhood that new points must keep
+     * clear of: points of the same layer at distance r, and optionally points
+     * of another layer at a different distance.
+     */
+    private static class Constraints {
+        private final Cell cell;
+        private final OccupancyGrid same;
+        private final double r;
+        private final OccupancyGrid other;
+        private final double otherDistance;
+
+        Constraints(Cell cell, OccupancyGrid same, double r, OccupancyGrid other, double otherDistance) {
+            this.cell = cell;
+            this.same = same;
+            this.r = r;
+            this.other = other;
+            this.otherDistance = otherDistance;
+        }
+
+        /**
+         * Checks that a candidate lies in the cell and keeps its distance to
+         * the fixed points.
+         */
+        boolean isValid(float x, float y) {
+            if (x < cell.getStartX() || x >= cell.getEndX() || y < cell.getStartY() || y >= cell.getEndY()) {
+                return false;
+            }
+
+            return same.isClear(x, y, r) && (other == null || other.isClear(x, y, otherDistance));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package plantgen;
+
+/**
+ * Storage precision of the terrain rasters.
+ * DOUBLE keeps every value as a 64 bit double. FLOAT stores 32 bit floats,
+ * which halves the memory used by the abiotic and slope data; the input files
+ * only carry about 6 significant digits, which a float holds exactly enough.
+ * Calculations are carried out in double precision in both modes.
+ */
+public enum Precision {
+    DOUBLE,
+    FLOAT;
+
+    /**
+     * Returns the precision selected with the plantgen.precision system
+     * property ("double" or "float"), defaulting to DOUBLE.
+     *
+     * @return the selected precision
+     */
+    public static Precision fromSystemProperty() {
+        return Precision.valueOf(System.getProperty("plantgen.precision", "double").trim().toUpperCase());
+    }
+}
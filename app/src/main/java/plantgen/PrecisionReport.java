@@ -0,0 +1,145 @@
+package plantgen;
+
+import java.util.SplittableRandom;
+
+/**
+ * Compares the float storage mode against the double storage mode on a
+ * dataset and prints the accuracy and memory use of both.
+ * Both terrains are parsed from the text inputs.
+ *
+ * Usage: PrecisionReport elevation sun temperature moisture species [samples]
+ */
+public class PrecisionReport {
+    private Terrain doubleTerrain;
+    private Terrain floatTerrain;
+    private TerrainRaster doubleSlope;
+    private TerrainRaster floatSlope;
+    private Species[] species;
+
+    /**
+     * Loads the dataset in both precisions.
+     *
+     * @param filepaths elevation, sun, temperature, moisture and species paths
+     */
+    public PrecisionReport(String[] filepaths) {
+        this.species = Ecosystem.loadSpecies(filepaths[4]);
+
+        this.doubleTerrain = load(filepaths, Precision.DOUBLE);
+        this.floatTerrain = load(filepaths, Precision.FLOAT);
+
+        this.doubleSlope = new SlopeCalculator(doubleTerrain).deriveSlope(Precision.DOUBLE);
+        this.floatSlope = new SlopeCalculator(floatTerrain).deriveSlope(Precision.FLOAT);
+    }
+
+    /**
+     * Parses the text inputs into a terrain with the given precision.
+     */
+    private static Terrain load(String[] filepaths, Precision precision) {
+        Terrain terrain = new Terrain();
+        terrain.setPrecision(precision);
+        terrain.loadData(filepaths);
+        return terrain;
+    }
+
+    /**
+     * Returns the largest absolute difference between two rasters.
+     *
+     * @param expected the reference raster
+     * @param actual   the raster to compare
+     * @return the largest absolute difference
+     */
+    public static double maxAbsError(TerrainRaster expected, TerrainRaster actual) {
+        double max = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            max = Math.max(max, Math.abs(expected.get(i) - actual.get(i)));
+        }
+        return max;
+    }
+
+    /**
+     * Returns the largest difference between two rasters relative to the
+     * reference value. Values that are zero in the reference are skipped.
+     *
+     * @param expected the reference raster
+     * @param actual   the raster to compare
+     * @return the largest relative difference
+     */
+    public static double maxRelError(TerrainRaster expected, TerrainRaster actual) {
+        double max = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            if (expected.get(i) != 0) {
+                max = Math.max(max, Math.abs((expected.get(i) - actual.get(i)) / expected.get(i)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the largest difference in average viability between the two
+     * precisions over randomly sampled coordinates.
+     *
+     * @param samples number of coordinates to sample
+     * @param seed    seed of the sampled coordinates
+     * @return the largest absolute viability difference
+     */
+    public double maxViabilityError(int samples, int seed) {
+        ViabilityCalculator doubleCalc = new ViabilityCalculator(doubleTerrain, species, doubleSlope);
+        ViabilityCalculator floatCalc = new ViabilityCalculator(floatTerrain, species, floatSlope);
+        SplittableRandom random = new SplittableRandom(seed);
+
+        double max = 0;
+        for (int i = 0; i < samples; i++) {
+            Coordinate c = new Coordinate((float) random.nextDouble(doubleTerrain.getDimX() - 1),
+                    (float) random.nextDouble(doubleTerrain.getDimY() - 1));
+
+            double[] expected = doubleCalc.calculateAverageViability(c);
+            double[] actual = floatCalc.calculateAverageViability(c);
+            for (int j = 0; j < expected.length; j++) {
+                max = Math.max(max, Math.abs(expected[j] - actual[j]));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the bytes used by the abiotic and slope rasters of a terrain.
+     */
+    private static long abioticBytes(Terrain terrain, TerrainRaster slope) {
+        return terrain.getSunlightData().getSizeInBytes() + terrain.getTemperatureData().getSizeInBytes()
+                + terrain.getWetData().getSizeInBytes() + slope.getSizeInBytes();
+    }
+
+    /**
+     * Prints the report.
+     *
+     * @param samples number of coordinates to compare the viability at
+     */
+    public void print(int samples) {
+        System.out.println("Precision report (float against double)");
+        printLayer("Sunlight", doubleTerrain.getSunlightData(), floatTerrain.getSunlightData());
+        printLayer("Temperature", doubleTerrain.getTemperatureData(), floatTerrain.getTemperatureData());
+        printLayer("Moisture", doubleTerrain.getWetData(), floatTerrain.getWetData());
+        printLayer("Slope", doubleSlope, floatSlope);
+
+        System.out.println(String.format("%-12s max abs %.3e over %d coordinates", "Viability",
+                maxViabilityError(samples, 0), samples));
+
+        System.out.println(String.format("%-12s double %.1f MB, float %.1f MB", "Memory",
+                abioticBytes(doubleTerrain, doubleSlope) / 1e6, abioticBytes(floatTerrain, floatSlope) / 1e6));
+    }
+
+    private static void printLayer(String name, TerrainRaster expected, TerrainRaster actual) {
+        System.out.println(String.format("%-12s max abs %.3e, max rel %.3e", name, maxAbsError(expected, actual),
+                maxRelError(expected, actual)));
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 5) {
+            System.out.println("Usage: PrecisionReport elevation sun temperature moisture species [samples]");
+            return;
+        }
+
+        int samples = args.length > 5 ? Integer.parseInt(args[5]) : 10000;
+        new PrecisionReport(args).print(samples);
+    }
+}
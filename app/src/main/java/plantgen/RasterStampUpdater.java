@@ -0,0 +1,160 @@
+package plantgen;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Abiotics updater that stamps the whole footprint of a placed plant onto the
+ * abiotic rasters.
+ * Where {@link AbioticsUpdater} only updates the pixels of the candidate
+ * points near the plant, every pixel within 1.5 canopy radii is updated here,
+ * so that later candidates anywhere under the canopy see its shade and
+ * moisture uptake. The cost follows the footprint area rather than the point
+ * density.
+ *
+ * The footprint is the disk of pixels strictly within 1.5 canopy radii,
+ * converted to pixels with the grid spacing, of the plant's nearest pixel.
+ * Pixel offsets are whole numbers, so the disk only depends on the squared
+ * radius rounded up to a whole number, and masks are shared between plants of
+ * nearby sizes without changing the footprint. Masks are built the first time
+ * they are used and kept as the half height of each column, so that each
+ * column of the footprint is one contiguous run of pixels and months in the
+ * raster. The masks are shared by the scheduler's workers, which stamp plants
+ * in different cells at the same time.
+ */
+public class RasterStampUpdater extends AbioticsUpdater {
+    private double gridSpacing;
+
+    // Disk mask of each rounded up squared radius: the half height of each
+    // column from -extent to extent, or -1 where the column is empty
+    private final ConcurrentHashMap<Integer, int[]> masks = new ConcurrentHashMap<>();
+
+    public RasterStampUpdater(Grid grid, double gridSpacing) {
+        super(grid, gridSpacing);
+        this.gridSpacing = gridSpacing;
+    }
+
+    /**
+     * Method to update the sunlight abiotics of the terrain
+     * Every pixel of the plant's footprint is multiplicatively updated
+     *
+     * @param sunlight         the sunlight data of the terrain
+     * @param p                the plant that's being placed
+     * @param leafTransparency the species leaf transparency
+     * @return the updated sunlight data
+     */
+    @Override
+    public TerrainRaster updateSunlight(TerrainRaster sunlight, Plant p, double leafTransparency) {
+        stamp(sunlight, p, leafTransparency, 0);
+        return sunlight;
+    }
+
+    /**
+     * Method to update the moisture abiotics of the terrain
+     * Every pixel of the plant's footprint is subtractively updated
+     *
+     * @param moisture           the moisture data of the terrain
+     * @param p                  the plant that's being placed
+     * @param moistureAbsorption the species moisture absorption data
+     * @return the updated moisture data
+     */
+    @Override
+    public TerrainRaster updateMoisture(TerrainRaster moisture, Plant p, double moistureAbsorption) {
+        stamp(moisture, p, 1, moistureAbsorption);
+        return moisture;
+    }
+
+    /**
+     * Returns the footprint size of a plant: its squared footprint radius in
+     * pixels, rounded up. A pixel offset (dx, dy) is in the footprint when
+     * dx^2 + dy^2 is less than it.
+     *
+     * @param p the plant
+     * @return the rounded up squared radius
+     */
+    int getRadiusSq(Plant p) {
+        double radius = 1.5 * p.getCanopyRadius() / gridSpacing;
+        return (int) Math.ceil(radius * radius);
+    }
+
+    /**
+     * Returns the disk mask of a rounded up squared radius, building it if
+     * needed.
+     *
+     * @param radiusSq the rounded up squared radius
+     * @return the half height of each column from -extent to extent
+     */
+    int[] getMask(int radiusSq) {
+        return masks.computeIfAbsent(radiusSq, RasterStampUpdater::createMask);
+    }
+
+    /**
+     * Builds the mask of the pixel offsets (dx, dy) with dx^2 + dy^2 less than
+     * the squared radius.
+     */
+    private static int[] createMask(int radiusSq) {
+        int extent = (int) Math.ceil(Math.sqrt(radiusSq));
+
+        int[] halfHeights = new int[2 * extent + 1];
+        for (int dx = -extent; dx <= extent; dx++) {
+            long remaining = radiusSq - (long) dx * dx;
+            if (remaining <= 0) {
+                halfHeights[dx + extent] = -1;
+                continue;
+            }
+
+            // Largest w with w^2 < remaining
+            int w = (int) Math.sqrt(remaining);
+            while (w > 0 && (long) w * w >= remaining) {
+                w--;
+            }
+            while ((long) (w + 1) * (w + 1) < remaining) {
+                w++;
+            }
+            halfHeights[dx + extent] = w;
+        }
+
+        return halfHeights;
+    }
+
+    /**
+     * Applies value * scale - offset to every month of the pixels of a plant's
+     * footprint, one contiguous run per column.
+     */
+    private void stamp(TerrainRaster data, Plant p, double scale, double offset) {
+        int[] mask = getMask(getRadiusSq(p));
+        int extent = mask.length / 2;
+
+        Coordinate position = p.getPosition();
+        int cx = Math.round(position.getX());
+        int cy = Math.round(position.getY());
+        int numLayers = data.getNumLayers();
+
+        int xStart = Math.max(0, cx - extent);
+        int xEnd = Math.min(data.getDimX() - 1, cx + extent);
+        for (int x = xStart; x <= xEnd; x++) {
+            int halfHeight = mask[x - cx + extent];
+            if (halfHeight < 0) {
+                continue;
+            }
+
+            int yStart = Math.max(0, cy - halfHeight);
+            int yEnd = Math.min(data.getDimY() - 1, cy + halfHeight);
+            if (yStart > yEnd) {
+                continue;
+            }
+
+            int start = data.index(x, yStart);
+            int end = data.index(x, yEnd) + numLayers;
+            if (data instanceof DoubleRaster) {
+                double[] values = ((DoubleRaster) data).getData();
+                for (int i = start; i < end; i++) {
+                    values[i] = values[i] * scale - offset;
+                }
+            } else {
+                for (int i = start; i < end; i++) {
+                    data.set(i, data.get(i) * scale - offset);
+                }
+            }
+        }
+    }
+}
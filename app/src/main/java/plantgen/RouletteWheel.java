@@ -1,30 +1,53 @@
 package plantgen;
 
-import java.util.List;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.SplittableRandom;
 
 /**
  * Class for the Roulette Wheel
+ * A spin picks a species with probability proportional to its viability,
+ * among the species with a positive viability, and then places it with
+ * probability equal to its viability. Species are referred to by their index
+ * in the viability vector.
  */
 public class RouletteWheel {
-    private static List<String> speciesName = new ArrayList<>(
-            Arrays.asList("Boxwood", "Snowy Mespilus", "Mountain Pine", "Silve Fir",
-                    "Silver Birch", "Sessile Oak", "European Beech"));
+    // Larger species sets are searched in a prefix sum rather than walked
+    static final int LINEAR_SCAN_LIMIT = 32;
+
+    // SplittableRandom constants, see {@link #spin}
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    // Prefix sums of the viabilities, per thread, for large species sets
+    private static final ThreadLocal<double[]> cumulativeScratch = ThreadLocal.withInitial(() -> new double[0]);
+
+    // Name of each species, by index
+    private final String[] speciesName;
+
+    /**
+     * Constructs a wheel for the given species.
+     * 
+     * @param species the species, in the order of the viabilities
+     */
+    public RouletteWheel(Species[] species) {
+        this.speciesName = new String[species.length];
+        for (int i = 0; i < species.length; i++) {
+            this.speciesName[i] = species[i].getName();
+        }
+    }
 
     /**
      * Method to calculate the cumulative viabilities
      * 
-     * @param validViabilities    List of valid viabilities
-     * @param cumulativeViability Array to store cumulative viabilities
+     * @param validViabilities    Array of valid viabilities
+     * @param cumulativeViability Array to store cumulative viabilities, one
+     *                            longer than the number of valid viabilities
      */
-    public void getCumulativeViability(ArrayList<Double> validViabilities, double[] cumulativeViability) {
+    public void getCumulativeViability(double[] validViabilities, double[] cumulativeViability) {
         cumulativeViability[0] = 0;
 
         // Calculate cumulative viabilities
         for (int i = 1; i < cumulativeViability.length; i++) {
-            cumulativeViability[i] = cumulativeViability[i - 1] + validViabilities.get(i - 1);
+            cumulativeViability[i] = cumulativeViability[i - 1] + validViabilities[i - 1];
         }
     }
 
@@ -37,39 +60,185 @@ public class RouletteWheel {
      * @return Plant object or null
      */
     public Plant spinWheel(Coordinate c, int seed) {
-        ArrayList<String> validSpecies = new ArrayList<>();
-        ArrayList<Double> validViabilities = new ArrayList<>();
+        int species = spin(c.getViabilities(), seed);
+        if (species < 0)
+            return null;
+        return new Plant(speciesName[species], species, c);
+    }
+
+    /**
+     * Method to randomly select a plant or nothing to place at a point
+     * depending on the viabilities.
+     * A coordinate is only created for the plant if one is placed, holding a
+     * copy of the viabilities.
+     * 
+     * @param x           x coordinate of the point
+     * @param y           y coordinate of the point
+     * @param viabilities Viability of each species at the point
+     * @param seed        Seed for random number generator
+     * @return Plant object or null
+     */
+    public Plant spinWheel(float x, float y, double[] viabilities, int seed) {
+        int species = spin(viabilities, seed);
+        if (species < 0)
+            return null;
 
-        SplittableRandom r = new SplittableRandom(seed);
+        Coordinate c = new Coordinate(x, y);
+        c.setViabilities(viabilities.clone());
+        return new Plant(speciesName[species], species, c);
+    }
 
-        getValidViabilites(c.getViabilities(), validSpecies, validViabilities);
+    /**
+     * Method to select a species or nothing depending on the viabilities,
+     * without allocating.
+     * Draws the same two random numbers as new SplittableRandom(seed) and
+     * accumulates the viabilities in the same order as
+     * {@link #selectSpecies}, so it selects exactly the same species. Up to
+     * LINEAR_SCAN_LIMIT species the cumulative viabilities are walked, above
+     * it they are binary searched.
+     * 
+     * @param viabilities Viability of each species
+     * @param seed        Seed for the random numbers
+     * @return index of the species selected, or -1 for nothing
+     */
+    public int spin(double[] viabilities, int seed) {
+        if (viabilities.length > LINEAR_SCAN_LIMIT) {
+            return spinSearch(viabilities, seed);
+        }
 
-        double[] cumulativeViability = new double[validViabilities.size() + 1];
+        double total = 0;
+        for (double v : viabilities) {
+            total += Math.max(v, 0);
+        }
 
-        getCumulativeViability(validViabilities, cumulativeViability);
+        // If there are no valid species, return nothing
+        if (total == 0)
+            return -1;
 
-        Plant potentialPlant = null;
+        long state = seed;
+        double randomNum = nextDouble(state += GOLDEN_GAMMA) * total;
+        if (randomNum >= total)
+            randomNum = Math.nextDown(total);
+
+        // Determine which plant to potentially select
+        int species = -1;
         double pViability = -1;
-        // If there are no valid species, return null
-        if (cumulativeViability[cumulativeViability.length - 1] == 0)
-            return null;
+        double cumulative = 0;
+        for (int i = 0; i < viabilities.length; i++) {
+            if (viabilities[i] > 0) {
+                double previous = cumulative;
+                cumulative += viabilities[i];
+                if (randomNum < cumulative) {
+                    species = i;
+                    pViability = cumulative - previous;
+                    break;
+                }
+            }
+        }
 
-        double randomNum = r.nextDouble(0, cumulativeViability[cumulativeViability.length - 1]);
+        // If the random number is less than the potential viability, select the plant
+        if (nextDouble(state + GOLDEN_GAMMA) < pViability)
+            return species;
+        return -1;
+    }
+
+    /**
+     * Spins the wheel by binary searching the prefix sums of the viabilities,
+     * see {@link #spin}. Species without a positive viability add nothing to
+     * the sums, so they can never be the first species whose sum is above the
+     * random number, and the sums equal those of the valid species alone.
+     */
+    private int spinSearch(double[] viabilities, int seed) {
+        double[] cumulative = cumulativeScratch.get();
+        if (cumulative.length < viabilities.length + 1) {
+            cumulative = new double[viabilities.length + 1];
+            cumulativeScratch.set(cumulative);
+        }
+
+        // Branch free, as the valid species are usually scattered
+        for (int i = 0; i < viabilities.length; i++) {
+            cumulative[i + 1] = cumulative[i] + Math.max(viabilities[i], 0);
+        }
+
+        double total = cumulative[viabilities.length];
+        if (total == 0)
+            return -1;
+
+        long state = seed;
+        double randomNum = nextDouble(state += GOLDEN_GAMMA) * total;
+        if (randomNum >= total)
+            randomNum = Math.nextDown(total);
+
+        // First species whose cumulative viability is above the number
+        int low = 1;
+        int high = viabilities.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (randomNum < cumulative[mid]) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+
+        if (nextDouble(state + GOLDEN_GAMMA) < cumulative[low] - cumulative[low - 1])
+            return low - 1;
+        return -1;
+    }
+
+    /**
+     * Returns the double that SplittableRandom derives from a state, in [0, 1).
+     */
+    private static double nextDouble(long state) {
+        long z = (state ^ (state >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * DOUBLE_UNIT;
+    }
+
+    /**
+     * Method to select a species or nothing depending on the viabilities,
+     * walking the cumulative viabilities of the valid species in place.
+     * The reference for {@link #spin}.
+     * 
+     * @param viabilities Viability of each species
+     * @param r           Random number generator
+     * @return index of the species selected, or -1 for nothing
+     */
+    int selectSpecies(double[] viabilities, SplittableRandom r) {
+        double total = 0;
+        for (double v : viabilities) {
+            if (v > 0)
+                total += v;
+        }
+
+        // If there are no valid species, return nothing
+        if (total == 0)
+            return -1;
+
+        double randomNum = r.nextDouble(0, total);
 
         // Determine which plant to potentially select
-        for (int i = 0; i < cumulativeViability.length; i++) {
-            if (randomNum < cumulativeViability[i]) {
-                potentialPlant = new Plant(validSpecies.get(i - 1), c);
-                pViability = cumulativeViability[i] - cumulativeViability[i - 1];
-                break;
+        int species = -1;
+        double pViability = -1;
+        double cumulative = 0;
+        for (int i = 0; i < viabilities.length; i++) {
+            if (viabilities[i] > 0) {
+                double previous = cumulative;
+                cumulative += viabilities[i];
+                if (randomNum < cumulative) {
+                    species = i;
+                    pViability = cumulative - previous;
+                    break;
+                }
             }
         }
 
         randomNum = r.nextDouble(0, 1);
-        // If the random number is less than the potential viability, return the plant
+        // If the random number is less than the potential viability, select the plant
         if (randomNum < pViability)
-            return potentialPlant;
-        return null;
+            return species;
+        return -1;
     }
 
     /**
@@ -82,12 +251,13 @@ public class RouletteWheel {
      */
 
     public Plant testSpinWheel(Coordinate c, double randomNum1, double randomNum2) {
-        ArrayList<String> validSpecies = new ArrayList<>();
-        ArrayList<Double> validViabilities = new ArrayList<>();
+        double[] viabilities = c.getViabilities();
+        int[] validSpecies = new int[viabilities.length];
+        double[] validViabilities = new double[viabilities.length];
 
-        getValidViabilites(c.getViabilities(), validSpecies, validViabilities);
+        int numValid = getValidViabilites(viabilities, validSpecies, validViabilities);
 
-        double[] cumulativeViability = new double[validViabilities.size() + 1];
+        double[] cumulativeViability = new double[numValid + 1];
 
         getCumulativeViability(validViabilities, cumulativeViability);
 
@@ -99,7 +269,7 @@ public class RouletteWheel {
         // Determine which plant to potentially select
         for (int i = 0; i < cumulativeViability.length; i++) {
             if (randomNum1 < cumulativeViability[i]) {
-                potentialPlant = new Plant(validSpecies.get(i - 1), c);
+                potentialPlant = new Plant(speciesName[validSpecies[i - 1]], validSpecies[i - 1], c);
                 pViability = cumulativeViability[i] - cumulativeViability[i - 1];
                 break;
             }
@@ -115,18 +285,22 @@ public class RouletteWheel {
     /**
      * Method to get the valid viabilities
      * 
-     * @param viabilities      List of viabilities
-     * @param validSpecies     List of valid species
-     * @param validViabilities List of valid viabilities
+     * @param viabilities      Array of viabilities, one per species
+     * @param validSpecies     Array to store the species index of each valid
+     *                         viability
+     * @param validViabilities Array to store the valid viabilities
+     * @return the number of valid viabilities
      */
 
-    public void getValidViabilites(ArrayList<Double> viabilities, ArrayList<String> validSpecies,
-            ArrayList<Double> validViabilities) {
-        for (int i = 0; i < viabilities.size(); i++) { // ensures that there are no 0 viabilities in the list
-            if (viabilities.get(i) > 0) {
-                validViabilities.add(viabilities.get(i));
-                validSpecies.add(RouletteWheel.speciesName.get(i));
+    public int getValidViabilites(double[] viabilities, int[] validSpecies, double[] validViabilities) {
+        int numValid = 0;
+        for (int i = 0; i < viabilities.length; i++) { // ensures that there are no 0 viabilities in the list
+            if (viabilities[i] > 0) {
+                validViabilities[numValid] = viabilities[i];
+                validSpecies[numValid] = i;
+                numValid++;
             }
         }
+        return numValid;
     }
 }
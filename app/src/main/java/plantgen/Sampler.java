@@ -2,10 +2,9 @@ package plantgen;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.SplittableRandom;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.ExecutorService;
 
 /**
  * The Sampler class is responsible for generating canopy and undergrowth
@@ -14,17 +13,28 @@ import java.util.concurrent.ExecutorService;
  * distribute points.
  */
 public class Sampler {
-    private float gridSpacing;
+    protected float gridSpacing;
 
-    private float dCanopy;
-    private float dMid;
-    private float dUndergrowth;
+    protected float dCanopy;
+    protected float dMid;
+    protected float dUndergrowth;
 
-    private SplittableRandom random;
+    protected SplittableRandom random;
 
-    private Grid grid;
+    protected Grid grid;
 
-    private static boolean NotgeneratePinkNoise = false;
+    // Consecutive rejected candidates after which a cell counts as saturated
+    public static final int DEFAULT_MAX_REJECTIONS = 5000;
+
+    // Maximum consecutive rejections per cell, 0 for no limit
+    protected int maxRejections = DEFAULT_MAX_REJECTIONS;
+
+    private boolean NotgeneratePinkNoise = false;
+
+    // Set when a phase times out, so that its running cells return
+    private volatile boolean cancelled = false;
+
+    protected PhaseScheduler scheduler = PhaseScheduler.getShared();
 
     /**
      * Constructs a Sampler object.
@@ -74,64 +84,79 @@ public class Sampler {
 
     /**
      * Generates pink noise for canopy and undergrowth points.
+     * With a rejection limit, cells that cannot fit their quota stop early and
+     * are listed in a shortfall report once sampling has finished.
      */
 
     public void generatePinkNoise() {
         System.out.println("Generating pink noise...");
-        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+        // Buckets of side d hold only a few points of a layer, and a check
+        // looks at no more than 3 x 3 of them
+        double canopyBucketSize = dCanopy / gridSpacing;
+        double undergrowthBucketSize = dUndergrowth / gridSpacing;
+        for (Cell c : grid.getCells()) {
+            c.initialiseOccupancy(canopyBucketSize, undergrowthBucketSize);
+        }
 
         // Generate canopy points for each cell in the grid using multithreading
-        for (int colour = 0; colour < 8; colour++) {
-            List<Cell> cells = grid.cellsByColour.getOrDefault(colour, new ArrayList<>());
-            for (Cell c : cells) {
-                int seed = random.nextInt();
-                executor.submit(() -> generateCanopy(c, seed));
-            }
-            executor.shutdown();
-            try {
-                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
-                    throw new InterruptedException();
-                }
-                executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-                NotgeneratePinkNoise = true;
+        for (int colour : grid.getColours()) {
+            if (!samplePhase(colour, true)) {
                 return;
             }
         }
 
         // Generate undergrowth points
-        for (int colour = 0; colour < 8; colour++) {
-            List<Cell> cells = grid.cellsByColour.getOrDefault(colour, new ArrayList<>());
-            for (Cell c : cells) {
-                int seed = random.nextInt();
-                executor.submit(() -> generateUndergrowth(c, seed));
-            }
-            executor.shutdown();
-            try {
-                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
-                    throw new InterruptedException();
-                }
-                ;
-                executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-                NotgeneratePinkNoise = true;
+        for (int colour : grid.getColours()) {
+            if (!samplePhase(colour, false)) {
                 return;
             }
         }
 
-        executor.shutdown();
-        try {
-            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
-                throw new InterruptedException();
+        printShortfallReport();
+    }
+
+    /**
+     * Samples all cells of one colour in parallel.
+     *
+     * @param colour the colour of the cells to sample
+     * @param canopy true to sample canopy points, false for undergrowth
+     * @return false if the phase did not finish
+     */
+    private boolean samplePhase(int colour, boolean canopy) {
+        List<Cell> cells = grid.cellsByColour.getOrDefault(colour, new ArrayList<>());
+        List<Runnable> tasks = new ArrayList<>(cells.size());
+        for (Cell c : cells) {
+            int seed = random.nextInt();
+            if (canopy) {
+                tasks.add(() -> generateCanopy(c, seed));
+            } else {
+                tasks.add(() -> generateUndergrowth(c, seed));
             }
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        }
+
+        String layer = canopy ? "canopy" : "undergrowth";
+        String phase = "sample " + layer + " colour " + (colour + 1);
+
+        // Bounded sampling always finishes, unbounded sampling can spin
+        // forever on a cell that is full
+        boolean finished = maxRejections > 0 ? scheduler.runPhase(phase, tasks, 60, TimeUnit.HOURS)
+                : scheduler.runPhase(phase, tasks, 10, TimeUnit.SECONDS);
+        if (!finished) {
+            System.out.println("Pink noise generation timed out in " + phase);
+            cancelled = true;
             NotgeneratePinkNoise = true;
-            return;
+            return false;
         }
 
+        int points = 0;
+        for (Cell c : cells) {
+            points += canopy ? c.getCanopyCount() : c.getUndergrowthCount();
+        }
+        System.out.println(String.format("Sampled %s colour %d of %d: %d cells, %d points in %.0f ms",
+                layer, colour + 1, grid.getColours().size(), cells.size(), points, scheduler.getPhaseTimes().get(phase)));
+
+        return true;
     }
 
     /**
@@ -141,30 +166,31 @@ public class Sampler {
      * @param seed The seed for random number generation.
      */
     public void generateCanopy(Cell cell, int seed) {
-        // Get all coordinates to check for proximity
-        ArrayList<Coordinate> coordsToCheck = new ArrayList<>();
-        for (Cell n : cell.neighbours.values()) {
-            coordsToCheck.addAll(n.canopyCoords);
-        }
+        // Distances are checked in grid units
+        double rCanopy = dCanopy / gridSpacing;
+        Cell[] cellsToCheck = getCellsToCheck(cell);
 
         SplittableRandom r = new SplittableRandom(seed);
         int pointsPlaced = 0;
-        while (pointsPlaced < cell.getNumCPoints()) {
-            boolean invalid = false;
-            Coordinate newPoint = new Coordinate(r.nextFloat(cell.getStartX(), cell.getEndX()),
-                    r.nextFloat(cell.getStartY(), cell.getEndY()));
+        int rejections = 0;
+        while (pointsPlaced < cell.getNumCPoints() && !isSaturated(rejections)) {
+            float x = r.nextFloat(cell.getStartX(), cell.getEndX());
+            float y = r.nextFloat(cell.getStartY(), cell.getEndY());
 
-            for (Coordinate coord : coordsToCheck) {
-                if (newPoint.distanceFrom(coord) * gridSpacing < dCanopy) {
+            boolean invalid = false;
+            for (Cell c : cellsToCheck) {
+                if (!c.isCanopyClear(x, y, rCanopy)) {
                     invalid = true;
                     break;
                 }
             }
 
             if (!invalid) {
-                cell.canopyCoords.add(newPoint);
-                coordsToCheck.add(newPoint);
+                cell.addCanopyCoord(x, y);
                 pointsPlaced++;
+                rejections = 0;
+            } else {
+                rejections++;
             }
         }
     }
@@ -176,82 +202,194 @@ public class Sampler {
      * @param seed The seed for random number generation.
      */
     public void generateUndergrowth(Cell cell, int seed) {
-        ArrayList<Coordinate> cCoordsToCheck = new ArrayList<>();
-        ArrayList<Coordinate> uCoordsToCheck = new ArrayList<>();
-        // Get all coordinates to check for proximity
-        for (Cell n : cell.neighbours.values()) {
-            cCoordsToCheck.addAll(cell.canopyCoords);
-            cCoordsToCheck.addAll(n.canopyCoords);
-            uCoordsToCheck.addAll(n.undergrowthCoords);
-        }
+        // Distances are checked in grid units
+        double rMid = dMid / gridSpacing;
+        double rUndergrowth = dUndergrowth / gridSpacing;
+        Cell[] cellsToCheck = getCellsToCheck(cell);
 
         SplittableRandom r = new SplittableRandom(seed);
 
         int pointsPlaced = 0;
+        int rejections = 0;
 
-        while (pointsPlaced < cell.getNumUPoints()) {
-            boolean invalid = false;
-            Coordinate newPoint = new Coordinate(r.nextFloat(cell.getStartX(), cell.getEndX()),
-                    r.nextFloat(cell.getStartY(), cell.getEndY()));
+        while (pointsPlaced < cell.getNumUPoints() && !isSaturated(rejections)) {
+            float x = r.nextFloat(cell.getStartX(), cell.getEndX());
+            float y = r.nextFloat(cell.getStartY(), cell.getEndY());
 
-            for (Coordinate coord : cCoordsToCheck) {
-                if (newPoint.distanceFrom(coord) * gridSpacing < dMid) {
+            boolean invalid = false;
+            for (Cell c : cellsToCheck) {
+                if (!c.isCanopyClear(x, y, rMid)) {
                     invalid = true;
                     break;
                 }
             }
 
-            if (invalid)
+            if (invalid) {
+                rejections++;
                 continue;
+            }
 
-            for (Coordinate coord : uCoordsToCheck) {
-                if (newPoint.distanceFrom(coord) * gridSpacing < dUndergrowth) {
+            for (Cell c : cellsToCheck) {
+                if (!c.isUndergrowthClear(x, y, rUndergrowth)) {
                     invalid = true;
                     break;
                 }
             }
 
             if (!invalid) {
-                cell.undergrowthCoords.add(newPoint);
-                uCoordsToCheck.add(newPoint);
+                cell.addUndergrowthCoord(x, y);
                 pointsPlaced++;
+                rejections = 0;
+            } else {
+                rejections++;
+            }
+        }
+    }
+
+    /**
+     * Checks whether a cell should stop sampling after the given number of
+     * consecutive rejections.
+     *
+     * @param rejections consecutive rejected candidates
+     * @return true if the rejection limit has been reached
+     */
+    protected boolean isSaturated(int rejections) {
+        return cancelled || (maxRejections > 0 && rejections >= maxRejections);
+    }
+
+    /**
+     * Returns the cell followed by its neighbours, which together hold every
+     * point a new point in the cell can be too close to.
+     *
+     * @param cell the cell being sampled
+     * @return the cells to check
+     */
+    protected Cell[] getCellsToCheck(Cell cell) {
+        Cell[] cells = new Cell[Cell.NUM_NEIGHBOURS + 1];
+        cells[0] = cell;
+
+        int i = 1;
+        for (Cell n : cell.neighbours) {
+            if (n != null) {
+                cells[i++] = n;
             }
         }
+
+        return i == cells.length ? cells : Arrays.copyOf(cells, i);
     }
 
     /**
-     * Gets all canopy coordinates from the grid.
+     * Gets the store holding the canopy and undergrowth coordinates.
+     *
+     * @return the point store
+     */
+    public PointStore getPoints() {
+        return grid.getPoints();
+    }
+
+    /**
+     * Gets all canopy coordinates from the grid, copied into new Coordinate
+     * objects. The other stages read the point store directly.
      *
      * @return A list of canopy coordinates.
      */
 
     public ArrayList<Coordinate> getCanopyCoords() {
-        ArrayList<Coordinate> coords = new ArrayList<>();
+        return grid.getPoints().toCoordinates(PointStore.CANOPY);
+    }
+
+    /**
+     * Gets all undergrowth coordinates from the grid, copied into new
+     * Coordinate objects. The other stages read the point store directly.
+     *
+     * @return A list of undergrowth coordinates.
+     */
+
+    public ArrayList<Coordinate> getUndergrowthCoords() {
+        return grid.getPoints().toCoordinates(PointStore.UNDERGROWTH);
+    }
+
+    public boolean getNotgeneratePinkNoise() {
+        return NotgeneratePinkNoise;
+    }
+
+    /**
+     * Sets the scheduler the colour phases are run on.
+     *
+     * @param scheduler the scheduler
+     */
+    public void setScheduler(PhaseScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Sets the number of consecutive rejected candidates after which a cell
+     * stops sampling and keeps the points it has.
+     *
+     * @param maxRejections the rejection limit, 0 to sample until every quota
+     *                      is met
+     */
+    public void setMaxRejections(int maxRejections) {
+        this.maxRejections = maxRejections;
+    }
+
+    /**
+     * Gets the cells that did not reach their canopy or undergrowth quota.
+     *
+     * @return the saturated cells
+     */
+    public List<Cell> getSaturatedCells() {
+        List<Cell> saturated = new ArrayList<>();
 
         for (Cell c : grid.getCells()) {
-            coords.addAll(c.canopyCoords);
+            if (c.getCanopyShortfall() > 0 || c.getUndergrowthShortfall() > 0) {
+                saturated.add(c);
+            }
         }
 
-        return coords;
+        return saturated;
     }
 
     /**
-     * Gets all undergrowth coordinates from the grid.
+     * Gets the total number of requested points that could not be placed.
      *
-     * @return A list of undergrowth coordinates.
+     * @return the number of missing points
      */
-
-    public ArrayList<Coordinate> getUndergrowthCoords() {
-        ArrayList<Coordinate> coords = new ArrayList<>();
+    public int getShortfall() {
+        int shortfall = 0;
 
         for (Cell c : grid.getCells()) {
-            coords.addAll(c.undergrowthCoords);
+            shortfall += c.getCanopyShortfall() + c.getUndergrowthShortfall();
         }
 
-        return coords;
+        return shortfall;
     }
 
-    public boolean getNotgeneratePinkNoise() {
-        return NotgeneratePinkNoise;
+    /**
+     * Prints the cells that did not reach their quota, with the number of
+     * points placed and the density achieved in points per square metre.
+     */
+    public void printShortfallReport() {
+        List<Cell> saturated = getSaturatedCells();
+        if (saturated.isEmpty()) {
+            return;
+        }
+
+        int canopyShortfall = 0;
+        int undergrowthShortfall = 0;
+        for (Cell c : saturated) {
+            canopyShortfall += c.getCanopyShortfall();
+            undergrowthShortfall += c.getUndergrowthShortfall();
+        }
+
+        System.out.println(String.format("%d of %d cells saturated: %d canopy and %d undergrowth points not placed",
+                saturated.size(), grid.getCells().size(), canopyShortfall, undergrowthShortfall));
+
+        for (Cell c : saturated) {
+            double area = (c.getEndX() - c.getStartX()) * (c.getEndY() - c.getStartY()) * gridSpacing * gridSpacing;
+            System.out.println(String.format("  %s canopy %d/%d (%.3f/m2), undergrowth %d/%d (%.3f/m2)", c,
+                    c.getCanopyCount(), c.getNumCPoints(), c.getCanopyCount() / area,
+                    c.getUndergrowthCount(), c.getNumUPoints(), c.getUndergrowthCount() / area));
+        }
     }
 }
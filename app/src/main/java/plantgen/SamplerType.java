@@ -0,0 +1,21 @@
+package plantgen;
+
+/**
+ * The point sampling algorithm used to generate the pink noise.
+ * DART_THROWING is the original {@link Sampler}, POISSON_DISK is the
+ * {@link PoissonDiskSampler}.
+ */
+public enum SamplerType {
+    DART_THROWING,
+    POISSON_DISK;
+
+    /**
+     * Returns the sampler selected with the plantgen.sampler system property
+     * ("dart_throwing" or "poisson_disk"), defaulting to DART_THROWING.
+     *
+     * @return the selected sampler
+     */
+    public static SamplerType fromSystemProperty() {
+        return SamplerType.valueOf(System.getProperty("plantgen.sampler", "dart_throwing").trim().toUpperCase());
+    }
+}
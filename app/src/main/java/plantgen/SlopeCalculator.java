@@ -1,5 +1,8 @@
 package plantgen;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Class to calculate the slope at each coordinate using the elevation data
  */
@@ -9,6 +12,7 @@ public class SlopeCalculator {
 
     private double[][] elevation;
     private double gridSpacing;
+    private boolean fillBorder = false;
 
     /**
      * Constructs a SlopeCalculator with the given terrain data.
@@ -59,4 +63,122 @@ public class SlopeCalculator {
         }
         return slopes;
     }
+
+    /**
+     * Method to set whether the border coordinates get a slope from one-sided
+     * differences, rather than being left at 0.
+     *
+     * @param fillBorder whether to fill the border
+     */
+    public void setFillBorder(boolean fillBorder) {
+        this.fillBorder = fillBorder;
+    }
+
+    /**
+     * Derives the slope of each coordinate into a single layer raster, on the
+     * shared scheduler.
+     *
+     * @param precision storage precision of the raster
+     * @return a raster containing the slope at each coordinate in degrees
+     */
+    public TerrainRaster deriveSlope(Precision precision) {
+        return deriveSlope(precision, PhaseScheduler.getShared());
+    }
+
+    /**
+     * Derives the slope of each coordinate into a single layer raster.
+     * The elevation is copied into a flat array and the rows are split into
+     * strips calculated in parallel. The interior coordinates get exactly the
+     * values of {@link #deriveSlope()}: squares are multiplied out, which is
+     * what Math.pow does for an exponent of 2.
+     *
+     * @param precision storage precision of the raster
+     * @param scheduler scheduler to run the strips on
+     * @return a raster containing the slope at each coordinate in degrees
+     */
+    public TerrainRaster deriveSlope(Precision precision, PhaseScheduler scheduler) {
+        System.out.println("Calculating slope...");
+        TerrainRaster slopes = TerrainRaster.create(dimX, dimY, 1, precision);
+
+        double[] flat = new double[dimX * dimY];
+        for (int x = 0; x < dimX; x++) {
+            System.arraycopy(elevation[x], 0, flat, x * dimY, dimY);
+        }
+
+        // A few strips of rows per thread so that uneven strips even out
+        int numStrips = Math.max(1, Math.min(dimX, 4 * scheduler.getParallelism()));
+        List<Runnable> tasks = new ArrayList<>(numStrips);
+        for (int strip = 0; strip < numStrips; strip++) {
+            int startX = (int) ((long) dimX * strip / numStrips);
+            int endX = (int) ((long) dimX * (strip + 1) / numStrips);
+            tasks.add(() -> deriveSlopeRows(flat, slopes, startX, endX));
+        }
+        scheduler.runPhase("slope", tasks);
+
+        return slopes;
+    }
+
+    /**
+     * Derives the slope of the rows startX to endX from the flat elevation.
+     */
+    private void deriveSlopeRows(double[] flat, TerrainRaster slopes, int startX, int endX) {
+        double scale = 2 * gridSpacing;
+
+        for (int x = startX; x < endX; x++) {
+            boolean borderRow = x == 0 || x == dimX - 1;
+            if (borderRow && !fillBorder) {
+                continue;
+            }
+
+            int row = x * dimY;
+            if (!borderRow) {
+                // Central differences over the interior of the row
+                for (int y = 1; y < dimY - 1; y++) {
+                    int i = row + y;
+                    double dzdx = (flat[i + dimY] - flat[i - dimY]) / scale;
+                    double dzdy = (flat[i + 1] - flat[i - 1]) / scale;
+                    slopes.set(i, Math.toDegrees(Math.atan(Math.sqrt(dzdx * dzdx + dzdy * dzdy))));
+                }
+            }
+
+            if (fillBorder) {
+                if (borderRow) {
+                    for (int y = 0; y < dimY; y++) {
+                        slopes.set(row + y, borderSlope(flat, x, y));
+                    }
+                } else {
+                    slopes.set(row, borderSlope(flat, x, 0));
+                    slopes.set(row + dimY - 1, borderSlope(flat, x, dimY - 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the slope at a coordinate using a one-sided difference along
+     * each axis where the coordinate is on the edge, and a central difference
+     * otherwise.
+     */
+    private double borderSlope(double[] flat, int x, int y) {
+        double dzdx = difference(flat, x, dimX, dimY, x * dimY + y);
+        double dzdy = difference(flat, y, dimY, 1, x * dimY + y);
+        return Math.toDegrees(Math.atan(Math.sqrt(dzdx * dzdx + dzdy * dzdy)));
+    }
+
+    /**
+     * Returns the derivative along one axis at flat index i, with position v
+     * of n along the axis and the given stride between neighbours.
+     */
+    private double difference(double[] flat, int v, int n, int stride, int i) {
+        if (n < 2) {
+            return 0;
+        }
+        if (v == 0) {
+            return (flat[i + stride] - flat[i]) / gridSpacing;
+        }
+        if (v == n - 1) {
+            return (flat[i] - flat[i - stride]) / gridSpacing;
+        }
+        return (flat[i + stride] - flat[i - stride]) / (2 * gridSpacing);
+    }
 }
@@ -1,12 +1,20 @@
 package plantgen;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Species class to hold species specific data
+ * The species are read from a CSV file with a header line followed by one
+ * line per species, in any number.
  */
 public class Species {
     private static CSVReader reader;
     private static String[][] speciesData;
 
+    // Row of each species in the CSV, by common name, in file order
+    private static Map<String, String[]> rowsByName = new LinkedHashMap<>();
+
     private String name;
     private int lifespan;
     private int maxHeightOpen;
@@ -37,6 +45,17 @@ public class Species {
     public Species() {
     }
 
+    /**
+     * Constructor to initialize a Species object from a row of species data,
+     * in the column order of the species CSV
+     * 
+     * @param data the species data, starting with the common name
+     */
+    public Species(String[] data) {
+        this.name = data[0];
+        this.setValues(data);
+    }
+
     /**
      * Method to call the readCSV method to read in the species data and its
      * parameters
@@ -49,34 +68,24 @@ public class Species {
 
     /**
      * Method to set the parameters of each species from the CSV
+     * 
+     * @throws IllegalArgumentException if the species is not in the CSV
      */
     public void setValues() {
-        String[] data = new String[20];
-
-        // Switch case to assign species data based on the species name
-        switch (name) {
-            case "Boxwood":
-                data = speciesData[1];
-                break;
-            case "Snowy Mespilus":
-                data = speciesData[2];
-                break;
-            case "Mountain Pine":
-                data = speciesData[3];
-                break;
-            case "Silve Fir":
-                data = speciesData[4];
-                break;
-            case "Silver Birch":
-                data = speciesData[5];
-                break;
-            case "Sessile Oak":
-                data = speciesData[6];
-                break;
-            case "European Beech":
-                data = speciesData[7];
+        String[] data = rowsByName.get(name);
+        if (data == null) {
+            throw new IllegalArgumentException("Species not found in the species data: " + name);
         }
 
+        this.setValues(data);
+    }
+
+    /**
+     * Method to set the parameters of the species from a row of species data
+     * 
+     * @param data the species data, in the column order of the species CSV
+     */
+    private void setValues(String[] data) {
         // Parsing and setting the species parameters from the data array
         this.lifespan = Integer.parseInt(data[4]);
         this.maxHeightOpen = Integer.parseInt(data[5]);
@@ -223,10 +232,35 @@ public class Species {
      * Method to read and format the csv data into the species
      * 
      * @param filepath
+     * @throws IllegalArgumentException if two rows have the same species name
      */
     public static void initialiseSpeciesData(String filepath) {
         Species.reader = new CSVReader(filepath);
         Species.speciesData = Species.readSpeciesData();
+
+        // Skip the header line
+        LinkedHashMap<String, String[]> rows = new LinkedHashMap<>();
+        for (int i = 1; i < speciesData.length; i++) {
+            if (rows.putIfAbsent(speciesData[i][0], speciesData[i]) != null) {
+                throw new IllegalArgumentException("Duplicate species name in row " + (i + 1) + " of "
+                        + filepath + ": " + speciesData[i][0]);
+            }
+        }
+        Species.rowsByName = rows;
+    }
+
+    /**
+     * Method to create every species in the species data, in file order
+     * 
+     * @return the species, indexed as in the file without its header
+     */
+    public static Species[] getAllSpecies() {
+        Species[] species = new Species[rowsByName.size()];
+        int i = 0;
+        for (String[] data : rowsByName.values()) {
+            species[i++] = new Species(data);
+        }
+        return species;
     }
 
     // Setters for testing
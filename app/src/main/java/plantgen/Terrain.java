@@ -2,7 +2,8 @@ package plantgen;
 
 /**
  * Terrain Class to store the dimensions and elevation, sunlight data,
- * temperature data and moisture data
+ * temperature data and moisture data.
+ * The monthly abiotic data is held in pixel-interleaved rasters.
  */
 public class Terrain {
     private int dimX;
@@ -13,29 +14,52 @@ public class Terrain {
     private double maxElv;
 
     private double[][] elvData;
-    private double[][][] sunData;
-    private double[][][] tempData;
-    private double[][][] wetData;
+    private TerrainRaster sunData;
+    private TerrainRaster tempData;
+    private TerrainRaster wetData;
+
+    private Precision precision = Precision.DOUBLE;
 
     private InputHandler handler = new InputHandler();
 
     /**
      * Method to load and read the data into the terrain.
+     * When the terrain cache is turned on, a binary terrain cache is used
+     * instead of the text files when it is up to date.
      * 
      * @param filepaths Array of file paths to read data from.
      */
     public void loadData(String[] filepaths) {
-        this.elvData = this.handler.readElevation(filepaths[0]);
-        this.sunData = this.handler.readAbiotic(filepaths[1]);
-        this.tempData = this.handler.readAbiotic(filepaths[2]);
-        this.wetData = this.handler.readAbiotic(filepaths[3]);
+        this.handler.setPrecision(this.precision);
+        this.handler.readTerrain(this, filepaths);
+    }
+
+    /**
+     * Method to set whether the data is kept in a binary {@link TerrainCache}
+     * next to the elevation file, and read from it when it is up to date.
+     * 
+     * @param cacheData true to use the terrain cache.
+     */
+    public void setCacheData(boolean cacheData) {
+        this.handler.setCacheTerrain(cacheData);
+    }
 
-        this.dimX = this.handler.eMap.getDimX();
-        this.dimY = this.handler.eMap.getDimY();
-        this.gridSpacing = this.handler.eMap.getGridSpacing();
+    /**
+     * Method to return the storage precision of the terrain data.
+     * 
+     * @return Storage precision.
+     */
+    public Precision getPrecision() {
+        return this.precision;
+    }
 
-        this.maxElv = this.handler.eMap.maxElv;
-        this.minElv = this.handler.eMap.minElv;
+    /**
+     * Method to set the storage precision used when the data is loaded.
+     * 
+     * @param precision Storage precision to set.
+     */
+    public void setPrecision(Precision precision) {
+        this.precision = precision;
     }
 
     /**
@@ -115,7 +139,7 @@ public class Terrain {
      * 
      * @return sunlight data per month per coordinate
      */
-    public double[][][] getSunlightData() {
+    public TerrainRaster getSunlightData() {
         return sunData;
     }
 
@@ -124,7 +148,7 @@ public class Terrain {
      * 
      * @return Sunlight data per month per coordinate.
      */
-    public void setSunlightData(double[][][] sunData) {
+    public void setSunlightData(TerrainRaster sunData) {
         this.sunData = sunData;
     }
 
@@ -133,7 +157,7 @@ public class Terrain {
      * 
      * @return temperature data per month per coordinate
      */
-    public double[][][] getTemperatureData() {
+    public TerrainRaster getTemperatureData() {
         return tempData;
     }
 
@@ -142,7 +166,7 @@ public class Terrain {
      * 
      * @param tempData Temperature data to set.
      */
-    public void setTemperatureData(double[][][] tempData) {
+    public void setTemperatureData(TerrainRaster tempData) {
         this.tempData = tempData;
     }
 
@@ -151,7 +175,7 @@ public class Terrain {
      * 
      * @return moisture data per month per coordinate
      */
-    public double[][][] getWetData() {
+    public TerrainRaster getWetData() {
         return wetData;
     }
 
@@ -160,7 +184,7 @@ public class Terrain {
      * 
      * @param wetData Moisture data to set.
      */
-    public void setWetData(double[][][] wetData) {
+    public void setWetData(TerrainRaster wetData) {
         this.wetData = wetData;
     }
 
@@ -189,4 +213,22 @@ public class Terrain {
     public double getMaxElv() {
         return maxElv;
     }
+
+    /**
+     * Method to set the minimum elevation.
+     * 
+     * @param minElv Minimum elevation to set.
+     */
+    public void setMinElv(double minElv) {
+        this.minElv = minElv;
+    }
+
+    /**
+     * Method to set the maximum elevation.
+     * 
+     * @param maxElv Maximum elevation to set.
+     */
+    public void setMaxElv(double maxElv) {
+        this.maxElv = maxElv;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,461 @@
+package plantgen;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary terrain cache (.pgt).
+ * Holds the elevation header (dimX, dimY, grid spacing, latitude) and planes
+ * for the elevation and each monthly sun, temperature and moisture layer, so
+ * that a dataset only has to be parsed from text once.
+ * The elevation is stored as doubles and the abiotic planes at the precision
+ * of the terrain's rasters, so loading the cache gives exactly the data that
+ * parsing the text files would.
+ * The file is opened through a private (copy on write) memory mapping. In
+ * float precision the abiotic rasters are views of the mapping, so loading
+ * copies nothing and updates to the abiotic data never reach the file.
+ *
+ * Layout (little endian):
+ * magic, version, dimX, dimY, numMonths, bytes per abiotic value,
+ * gridSpacing, latitude, minElv, maxElv, dataOffset, the source file paths,
+ * then the planes starting at dataOffset in the order elevation, sun,
+ * temperature, moisture.
+ * The elevation plane is in (x, y) order and the abiotic planes are in the
+ * pixel-interleaved (x, y, month) order of TerrainRaster.
+ */
+public class TerrainCache {
+    public static final String EXTENSION = ".pgt";
+
+    private static final int MAGIC = 0x31544750; // "PGT1"
+    private static final int VERSION = 3;
+    private static final int DATA_ALIGNMENT = 64;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final int MAX_HEADER_SIZE = 1 << 16;
+
+    private int dimX;
+    private int dimY;
+    private int numMonths;
+    private int valueSize;
+    private float gridSpacing;
+    private float latitude;
+    private double minElv;
+    private double maxElv;
+
+    private DoubleBuffer elevation;
+    private ByteBuffer sun;
+    private ByteBuffer temp;
+    private ByteBuffer wet;
+
+    private boolean writable;
+
+    /**
+     * Returns the path of the cache file belonging to an elevation file.
+     * The cache sits next to the elevation file, with the .pgt extension.
+     *
+     * @param elevationPath path to the .elv file
+     * @return path to the cache file
+     */
+    public static Path getCachePath(String elevationPath) {
+        Path path = Paths.get(elevationPath).toAbsolutePath();
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        return path.resolveSibling(name + EXTENSION);
+    }
+
+    /**
+     * Checks whether the cache at the given path can be used for the given input
+     * files. It has to exist, be newer than every source file, have been
+     * written from exactly the same source files at the given precision, and
+     * be complete.
+     *
+     * @param cachePath path to the cache file
+     * @param sources   elevation, sun, temperature and moisture file paths
+     * @param precision storage precision of the terrain's rasters
+     * @return true if the cache is up to date
+     */
+    public static boolean isValid(Path cachePath, String[] sources, Precision precision) {
+        if (!Files.isRegularFile(cachePath)) {
+            return false;
+        }
+
+        try {
+            long cacheTime = Files.getLastModifiedTime(cachePath).toMillis();
+            for (int i = 0; i < 4; i++) {
+                if (Files.getLastModifiedTime(Paths.get(sources[i])).toMillis() >= cacheTime) {
+                    return false;
+                }
+            }
+
+            try (FileChannel channel = FileChannel.open(cachePath, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate((int) Math.min(channel.size(), MAX_HEADER_SIZE))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                while (header.hasRemaining()) {
+                    if (channel.read(header) <= 0) {
+                        break;
+                    }
+                }
+                header.flip();
+
+                if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                    return false;
+                }
+
+                int dimX = header.getInt();
+                int dimY = header.getInt();
+                int numMonths = header.getInt();
+                int valueSize = header.getInt();
+                if (valueSize != getValueSize(precision)) {
+                    return false;
+                }
+
+                // Skip the grid spacing, latitude and elevation range
+                header.position(header.position() + 4 * 2 + 8 * 2);
+                int dataOffset = header.getInt();
+
+                // A truncated file is rebuilt rather than mapped
+                long planeSize = (long) dimX * dimY;
+                if (channel.size() != dataOffset + Double.BYTES * planeSize
+                        + (long) valueSize * planeSize * 3 * numMonths) {
+                    return false;
+                }
+
+                int numSources = header.getInt();
+                if (numSources != 4) {
+                    return false;
+                }
+                for (int i = 0; i < numSources; i++) {
+                    byte[] bytes = new byte[header.getInt()];
+                    header.get(bytes);
+                    String source = new String(bytes, StandardCharsets.UTF_8);
+                    if (!source.equals(Paths.get(sources[i]).toAbsolutePath().toString())) {
+                        return false;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // An unreadable or truncated cache is simply rebuilt
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the number of bytes an abiotic value is stored in at a precision.
+     */
+    private static int getValueSize(Precision precision) {
+        return precision == Precision.DOUBLE ? Double.BYTES : Float.BYTES;
+    }
+
+    /**
+     * Writes a cache file from parsed terrain data.
+     * The file is written next to its final location and moved into place once
+     * complete, so an interrupted write never leaves a partial cache behind.
+     * The abiotic planes are written at the precision of the sunlight raster.
+     *
+     * @param cachePath path to write the cache to
+     * @param sources   elevation, sun, temperature and moisture file paths
+     * @param eMap      the parsed elevation map
+     * @param sunData   sunlight data
+     * @param tempData  temperature data
+     * @param wetData   moisture data
+     * @throws IOException if the cache cannot be written
+     */
+    public static void write(Path cachePath, String[] sources, ElevationMap eMap, TerrainRaster sunData,
+            TerrainRaster tempData, TerrainRaster wetData) throws IOException {
+        int dimX = eMap.getDimX();
+        int dimY = eMap.getDimY();
+        int numMonths = sunData.getNumLayers();
+        int valueSize = getValueSize(sunData.getPrecision());
+
+        byte[][] sourceBytes = new byte[4][];
+        int headerSize = 4 * 2 + 4 * 4 + 4 * 2 + 8 * 2 + 4 + 4;
+        for (int i = 0; i < 4; i++) {
+            sourceBytes[i] = Paths.get(sources[i]).toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8);
+            headerSize += 4 + sourceBytes[i].length;
+        }
+
+        int dataOffset = (headerSize + DATA_ALIGNMENT - 1) / DATA_ALIGNMENT * DATA_ALIGNMENT;
+        long planeSize = (long) dimX * dimY;
+        Path tempPath = cachePath.resolveSibling(cachePath.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(dataOffset).order(ByteOrder.LITTLE_ENDIAN);
+
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(dimX);
+            header.putInt(dimY);
+            header.putInt(numMonths);
+            header.putInt(valueSize);
+            header.putFloat(eMap.getGridSpacing());
+            header.putFloat(eMap.getLatitude());
+            header.putDouble(eMap.minElv);
+            header.putDouble(eMap.maxElv);
+            header.putInt(dataOffset);
+            header.putInt(4);
+            for (byte[] bytes : sourceBytes) {
+                header.putInt(bytes.length);
+                header.put(bytes);
+            }
+
+            header.clear();
+            writeFully(channel, header);
+
+            // The planes are streamed through a small buffer rather than a writable
+            // mapping, so the file can be moved straight away on every platform
+            ByteBuffer chunk = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            DoubleBuffer doubles = chunk.asDoubleBuffer();
+            FloatBuffer floats = chunk.asFloatBuffer();
+
+            double[][] elvData = eMap.getData();
+            for (int x = 0; x < dimX; x++) {
+                for (int y = 0; y < dimY; y++) {
+                    if (!doubles.hasRemaining()) {
+                        flush(channel, chunk, doubles.position() * Double.BYTES);
+                        doubles.clear();
+                    }
+                    doubles.put(elvData[x][y]);
+                }
+            }
+            flush(channel, chunk, doubles.position() * Double.BYTES);
+            doubles.clear();
+
+            TerrainRaster[] layers = { sunData, tempData, wetData };
+            if (valueSize == Double.BYTES) {
+                for (TerrainRaster layer : layers) {
+                    for (int i = 0; i < layer.size(); i++) {
+                        if (!doubles.hasRemaining()) {
+                            flush(channel, chunk, doubles.position() * Double.BYTES);
+                            doubles.clear();
+                        }
+                        doubles.put(layer.get(i));
+                    }
+                }
+                flush(channel, chunk, doubles.position() * Double.BYTES);
+            } else {
+                for (TerrainRaster layer : layers) {
+                    for (int i = 0; i < layer.size(); i++) {
+                        if (!floats.hasRemaining()) {
+                            flush(channel, chunk, floats.position() * Float.BYTES);
+                            floats.clear();
+                        }
+                        floats.put((float) layer.get(i));
+                    }
+                }
+                flush(channel, chunk, floats.position() * Float.BYTES);
+            }
+        }
+
+        Files.move(tempPath, cachePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes the first bytes of the chunk, the values buffered so far, to the
+     * channel.
+     */
+    private static void flush(FileChannel channel, ByteBuffer chunk, int bytes) throws IOException {
+        chunk.clear();
+        chunk.limit(bytes);
+        writeFully(channel, chunk);
+    }
+
+    /**
+     * Writes the whole of a buffer to the channel.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Opens a cache file by memory mapping it.
+     *
+     * @param cachePath path to the cache file
+     * @return the opened cache
+     * @throws IOException if the file cannot be mapped or is not a terrain cache
+     */
+    public static TerrainCache open(Path cachePath) throws IOException {
+        TerrainCache cache = new TerrainCache();
+
+        // A private mapping needs a writable channel; a read only cache file is
+        // mapped read only and copied on load instead
+        cache.writable = Files.isWritable(cachePath);
+        FileChannel.MapMode mode = cache.writable ? FileChannel.MapMode.PRIVATE : FileChannel.MapMode.READ_ONLY;
+
+        try (FileChannel channel = cache.writable
+                ? FileChannel.open(cachePath, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(cachePath, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer in = channel.map(mode, 0, channel.size());
+            in.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                throw new IOException("Not a terrain cache: " + cachePath);
+            }
+
+            cache.dimX = in.getInt();
+            cache.dimY = in.getInt();
+            cache.numMonths = in.getInt();
+            cache.valueSize = in.getInt();
+            cache.gridSpacing = in.getFloat();
+            cache.latitude = in.getFloat();
+            cache.minElv = in.getDouble();
+            cache.maxElv = in.getDouble();
+            int dataOffset = in.getInt();
+
+            if (cache.valueSize != Double.BYTES && cache.valueSize != Float.BYTES) {
+                throw new IOException("Unsupported value size " + cache.valueSize + " in terrain cache: "
+                        + cachePath);
+            }
+
+            int planeBytes = cache.dimX * cache.dimY * Double.BYTES;
+            int layerBytes = cache.dimX * cache.dimY * cache.numMonths * cache.valueSize;
+
+            in.position(dataOffset);
+            ByteBuffer planes = in.slice();
+
+            cache.elevation = planes.slice(0, planeBytes).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            cache.sun = planes.slice(planeBytes, layerBytes).order(ByteOrder.LITTLE_ENDIAN);
+            cache.temp = planes.slice(planeBytes + layerBytes, layerBytes).order(ByteOrder.LITTLE_ENDIAN);
+            cache.wet = planes.slice(planeBytes + 2 * layerBytes, layerBytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        return cache;
+    }
+
+    /**
+     * Returns a monthly layer as a raster.
+     * A float plane is wrapped directly in float precision when the mapping is
+     * writable. Otherwise the values are copied, which is a straight copy as
+     * the plane is already in raster order.
+     *
+     * @param plane     the mapped plane
+     * @param precision storage precision of the raster
+     * @return the layer as a raster
+     */
+    private TerrainRaster toRaster(ByteBuffer plane, Precision precision) {
+        if (valueSize == Double.BYTES) {
+            DoubleBuffer values = plane.asDoubleBuffer();
+            if (precision == Precision.DOUBLE) {
+                DoubleRaster raster = new DoubleRaster(dimX, dimY, numMonths);
+                values.get(raster.getData());
+                return raster;
+            }
+
+            TerrainRaster raster = TerrainRaster.create(dimX, dimY, numMonths, precision);
+            for (int i = 0; i < raster.size(); i++) {
+                raster.set(i, values.get(i));
+            }
+            return raster;
+        }
+
+        FloatBuffer values = plane.asFloatBuffer();
+        if (precision == Precision.FLOAT && writable) {
+            return new FloatRaster(dimX, dimY, numMonths, values);
+        }
+
+        TerrainRaster raster = TerrainRaster.create(dimX, dimY, numMonths, precision);
+        for (int i = 0; i < raster.size(); i++) {
+            raster.set(i, values.get(i));
+        }
+        return raster;
+    }
+
+    /**
+     * Loads the cached data into a double precision terrain.
+     *
+     * @param terrain the terrain to load into
+     */
+    public void loadInto(Terrain terrain) {
+        loadInto(terrain, Precision.DOUBLE);
+    }
+
+    /**
+     * Loads the cached data into a terrain.
+     *
+     * @param terrain   the terrain to load into
+     * @param precision storage precision of the abiotic rasters
+     */
+    public void loadInto(Terrain terrain, Precision precision) {
+        terrain.setDimX(dimX);
+        terrain.setDimY(dimY);
+        terrain.setGridSpacing(gridSpacing);
+        terrain.setNumMonths(numMonths);
+        terrain.setMinElv(minElv);
+        terrain.setMaxElv(maxElv);
+
+        terrain.setElevationData(getElevationData());
+        terrain.setSunlightData(toRaster(sun, precision));
+        terrain.setTemperatureData(toRaster(temp, precision));
+        terrain.setWetData(toRaster(wet, precision));
+    }
+
+    /**
+     * Method to return the elevation data
+     *
+     * @return elevation data as [x][y]
+     */
+    public double[][] getElevationData() {
+        double[][] elvData = new double[dimX][dimY];
+        int i = 0;
+        for (int x = 0; x < dimX; x++) {
+            for (int y = 0; y < dimY; y++) {
+                elvData[x][y] = elevation.get(i++);
+            }
+        }
+        return elvData;
+    }
+
+    /**
+     * Method to return the X dimensions
+     *
+     * @return X dimensions
+     */
+    public int getDimX() {
+        return this.dimX;
+    }
+
+    /**
+     * Method to return the Y dimensions
+     *
+     * @return Y dimensions
+     */
+    public int getDimY() {
+        return this.dimY;
+    }
+
+    /**
+     * Method to return the grid spacing
+     *
+     * @return grid spacing
+     */
+    public float getGridSpacing() {
+        return this.gridSpacing;
+    }
+
+    /**
+     * Method to return the latitude
+     *
+     * @return latitude
+     */
+    public float getLatitude() {
+        return this.latitude;
+    }
+}
@@ -0,0 +1,213 @@
+package plantgen;
+
+/**
+ * A raster of per-pixel values stored in one contiguous block.
+ * Each pixel holds numLayers values (one per month for the abiotic data),
+ * stored in pixel-interleaved (x, y, layer) order so that all of the monthly
+ * values of a pixel sit next to each other in memory.
+ * Subclasses decide the storage precision, see {@link Precision}.
+ */
+public abstract class TerrainRaster {
+    protected final int dimX;
+    protected final int dimY;
+    protected final int numLayers;
+
+    /**
+     * Constructs a raster with the given dimensions.
+     *
+     * @param dimX      X dimensions of the raster
+     * @param dimY      Y dimensions of the raster
+     * @param numLayers number of values per pixel
+     */
+    protected TerrainRaster(int dimX, int dimY, int numLayers) {
+        this.dimX = dimX;
+        this.dimY = dimY;
+        this.numLayers = numLayers;
+    }
+
+    /**
+     * Creates an empty raster with the given storage precision.
+     *
+     * @param dimX      X dimensions of the raster
+     * @param dimY      Y dimensions of the raster
+     * @param numLayers number of values per pixel
+     * @param precision storage precision
+     * @return the raster
+     */
+    public static TerrainRaster create(int dimX, int dimY, int numLayers, Precision precision) {
+        if (precision == Precision.FLOAT) {
+            return new FloatRaster(dimX, dimY, numLayers);
+        }
+        return new DoubleRaster(dimX, dimY, numLayers);
+    }
+
+    /**
+     * Constructs a double precision raster from layered data.
+     *
+     * @param layers the data as [layer][x][y]
+     * @return the raster holding the same values
+     */
+    public static TerrainRaster fromLayers(double[][][] layers) {
+        return fromLayers(layers, Precision.DOUBLE);
+    }
+
+    /**
+     * Constructs a raster from layered data.
+     *
+     * @param layers    the data as [layer][x][y]
+     * @param precision storage precision
+     * @return the raster holding the same values
+     */
+    public static TerrainRaster fromLayers(double[][][] layers, Precision precision) {
+        int numLayers = layers.length;
+        int dimX = layers[0].length;
+        int dimY = layers[0][0].length;
+
+        TerrainRaster raster = create(dimX, dimY, numLayers, precision);
+        for (int l = 0; l < numLayers; l++) {
+            for (int x = 0; x < dimX; x++) {
+                for (int y = 0; y < dimY; y++) {
+                    raster.set(x, y, l, layers[l][x][y]);
+                }
+            }
+        }
+
+        return raster;
+    }
+
+    /**
+     * Returns the index of the first value of a pixel.
+     * The values of the pixel are at index(x, y) + layer.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return index of the pixel's first layer
+     */
+    public int index(int x, int y) {
+        return (x * dimY + y) * numLayers;
+    }
+
+    /**
+     * Returns the value at a flat index.
+     *
+     * @param i index into the (x, y, layer) ordered values
+     * @return the value
+     */
+    public abstract double get(int i);
+
+    /**
+     * Sets the value at a flat index.
+     *
+     * @param i     index into the (x, y, layer) ordered values
+     * @param value the value to set
+     */
+    public abstract void set(int i, double value);
+
+    /**
+     * Returns a single value.
+     *
+     * @param x     the x coordinate
+     * @param y     the y coordinate
+     * @param layer the layer (month)
+     * @return the value at that pixel and layer
+     */
+    public double get(int x, int y, int layer) {
+        return get(index(x, y) + layer);
+    }
+
+    /**
+     * Sets a single value.
+     *
+     * @param x     the x coordinate
+     * @param y     the y coordinate
+     * @param layer the layer (month)
+     * @param value the value to set
+     */
+    public void set(int x, int y, int layer, double value) {
+        set(index(x, y) + layer, value);
+    }
+
+    /**
+     * Returns a deep copy of this raster with the same precision.
+     *
+     * @return the copy
+     */
+    public abstract TerrainRaster copy();
+
+    /**
+     * Sets every value of the raster.
+     *
+     * @param value the value to fill with
+     */
+    public abstract void fill(double value);
+
+    /**
+     * Returns the storage precision of the raster.
+     *
+     * @return the precision
+     */
+    public abstract Precision getPrecision();
+
+    /**
+     * Returns the number of bytes used to store the values.
+     *
+     * @return size of the values in bytes
+     */
+    public long getSizeInBytes() {
+        return (long) size() * (getPrecision() == Precision.FLOAT ? Float.BYTES : Double.BYTES);
+    }
+
+    /**
+     * Returns the total number of values.
+     *
+     * @return dimX * dimY * numLayers
+     */
+    public int size() {
+        return dimX * dimY * numLayers;
+    }
+
+    /**
+     * Returns the data as separate layers.
+     *
+     * @return the data as [layer][x][y]
+     */
+    public double[][][] toLayers() {
+        double[][][] layers = new double[numLayers][dimX][dimY];
+        for (int l = 0; l < numLayers; l++) {
+            for (int x = 0; x < dimX; x++) {
+                for (int y = 0; y < dimY; y++) {
+                    layers[l][x][y] = get(x, y, l);
+                }
+            }
+        }
+
+        return layers;
+    }
+
+    /**
+     * Method to return the X dimensions
+     *
+     * @return X dimensions
+     */
+    public int getDimX() {
+        return this.dimX;
+    }
+
+    /**
+     * Method to return the Y dimensions
+     *
+     * @return Y dimensions
+     */
+    public int getDimY() {
+        return this.dimY;
+    }
+
+    /**
+     * Method to return the number of values per pixel
+     *
+     * @return number of layers
+     */
+    public int getNumLayers() {
+        return this.numLayers;
+    }
+}
@@ -0,0 +1,329 @@
+package plantgen;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Binary viability cache (.pgv).
+ * Holds the slope and the precomputed temperature and slope adaptation of a
+ * terrain (see {@link ViabilityCalculator#precomputeStaticAdaptation}), so that
+ * reruns on the same inputs skip the static part of the viability stage.
+ * The cache is keyed by a SHA-256 hash of the contents of the elevation,
+ * abiotic and species files, the species order and the storage precision,
+ * rather than by file paths and times, so a copied or touched dataset still
+ * hits.
+ * The planes are stored at the precision of the terrain's rasters, so a
+ * double precision run reads back exactly what it would have calculated.
+ * Neither raster changes during a run, so in float precision both are read
+ * only views of the memory mapping and loading copies nothing. In double
+ * precision they are copied out of the mapping.
+ *
+ * Layout (little endian):
+ * magic, version, dimX, dimY, numValues, dataOffset, bytes per value, the 32
+ * byte key, then the planes starting at dataOffset: slope in (x, y) order and
+ * the adaptation in (x, y, species x month) order.
+ */
+public class ViabilityCache {
+    public static final String EXTENSION = ".pgv";
+
+    private static final int MAGIC = 0x31564750; // "PGV1"
+    private static final int VERSION = 2;
+    private static final int KEY_SIZE = 32;
+    private static final int HEADER_SIZE = 4 * 7 + KEY_SIZE;
+    private static final int DATA_ALIGNMENT = 64;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private TerrainRaster slopeData;
+    private TerrainRaster staticAdaptation;
+
+    /**
+     * Returns the path of the cache file belonging to an elevation file.
+     * The cache sits next to the elevation file, with the .pgv extension.
+     *
+     * @param elevationPath path to the .elv file
+     * @return path to the cache file
+     */
+    public static Path getCachePath(String elevationPath) {
+        Path path = Paths.get(elevationPath).toAbsolutePath();
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        return path.resolveSibling(name + EXTENSION);
+    }
+
+    /**
+     * Computes the cache key of a set of inputs.
+     *
+     * @param sources elevation, sun, temperature, moisture and species file
+     *                paths
+     * @param species the species, in the order of the viabilities
+     * @return the SHA-256 hash of the inputs
+     * @throws IOException if a source file cannot be read
+     */
+    public static byte[] computeKey(String[] sources, Species[] species) throws IOException {
+        return computeKey(sources, species, false, Precision.FLOAT);
+    }
+
+    /**
+     * Computes the cache key of a set of inputs, slope settings and precision.
+     *
+     * @param sources     elevation, sun, temperature, moisture and species file
+     *                    paths
+     * @param species     the species, in the order of the viabilities
+     * @param slopeBorder whether the slope border is filled, see
+     *                    {@link SlopeCalculator#setFillBorder}
+     * @param precision   storage precision of the terrain's rasters
+     * @return the SHA-256 hash of the inputs
+     * @throws IOException if a source file cannot be read
+     */
+    public static byte[] computeKey(String[] sources, Species[] species, boolean slopeBorder, Precision precision)
+            throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        for (int i = 0; i < 5; i++) {
+            try (FileChannel channel = FileChannel.open(Paths.get(sources[i]), StandardOpenOption.READ)) {
+                // Each file is prefixed with its length so that content cannot
+                // move between files without changing the key
+                digest.update(ByteBuffer.allocate(8).putLong(0, channel.size()));
+                while (channel.read(buffer) > 0) {
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.clear();
+                }
+            }
+        }
+
+        for (Species s : species) {
+            digest.update(s.getName().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+
+        // Only added when set
+        if (slopeBorder) {
+            digest.update("slopeBorder".getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update(precision.name().getBytes(StandardCharsets.UTF_8));
+
+        return digest.digest();
+    }
+
+    /**
+     * Checks whether the cache at the given path was written for the given key.
+     *
+     * @param cachePath path to the cache file
+     * @param key       the key of the current inputs, see {@link #computeKey}
+     * @return true if the cache can be used
+     */
+    public static boolean isValid(Path cachePath, byte[] key) {
+        if (!Files.isRegularFile(cachePath)) {
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(cachePath, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header) <= 0) {
+                    return false;
+                }
+            }
+            header.flip();
+
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                return false;
+            }
+
+            int dimX = header.getInt();
+            int dimY = header.getInt();
+            int numValues = header.getInt();
+            int dataOffset = header.getInt();
+            int valueSize = header.getInt();
+            byte[] stored = new byte[KEY_SIZE];
+            header.get(stored);
+
+            // A truncated file is rebuilt rather than mapped
+            long expectedSize = dataOffset + (long) valueSize * dimX * dimY * (1 + numValues);
+            return Arrays.equals(stored, key) && channel.size() == expectedSize;
+        } catch (IOException | RuntimeException e) {
+            // An unreadable cache is simply rebuilt
+            return false;
+        }
+    }
+
+    /**
+     * Writes a cache file.
+     * The file is written next to its final location and moved into place once
+     * complete, so an interrupted write never leaves a partial cache behind.
+     * Both planes are written at the precision of the adaptation raster.
+     *
+     * @param cachePath        path to write the cache to
+     * @param key              the key of the inputs, see {@link #computeKey}
+     * @param slopeData        single layer slope raster
+     * @param staticAdaptation temperature and slope adaptation raster
+     * @throws IOException if the cache cannot be written
+     */
+    public static void write(Path cachePath, byte[] key, TerrainRaster slopeData, TerrainRaster staticAdaptation)
+            throws IOException {
+        int dimX = staticAdaptation.getDimX();
+        int dimY = staticAdaptation.getDimY();
+        int dataOffset = (HEADER_SIZE + DATA_ALIGNMENT - 1) / DATA_ALIGNMENT * DATA_ALIGNMENT;
+        boolean isDouble = staticAdaptation.getPrecision() == Precision.DOUBLE;
+
+        Path tempPath = cachePath.resolveSibling(cachePath.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(dataOffset).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(dimX);
+            header.putInt(dimY);
+            header.putInt(staticAdaptation.getNumLayers());
+            header.putInt(dataOffset);
+            header.putInt(isDouble ? Double.BYTES : Float.BYTES);
+            header.put(key);
+
+            header.clear();
+            writeFully(channel, header);
+
+            ByteBuffer chunk = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (isDouble) {
+                DoubleBuffer doubles = chunk.asDoubleBuffer();
+                for (TerrainRaster raster : new TerrainRaster[] { slopeData, staticAdaptation }) {
+                    for (int i = 0; i < raster.size(); i++) {
+                        if (!doubles.hasRemaining()) {
+                            flush(channel, chunk, doubles.position() * Double.BYTES);
+                            doubles.clear();
+                        }
+                        doubles.put(raster.get(i));
+                    }
+                }
+                flush(channel, chunk, doubles.position() * Double.BYTES);
+            } else {
+                FloatBuffer floats = chunk.asFloatBuffer();
+                for (TerrainRaster raster : new TerrainRaster[] { slopeData, staticAdaptation }) {
+                    for (int i = 0; i < raster.size(); i++) {
+                        if (!floats.hasRemaining()) {
+                            flush(channel, chunk, floats.position() * Float.BYTES);
+                            floats.clear();
+                        }
+                        floats.put((float) raster.get(i));
+                    }
+                }
+                flush(channel, chunk, floats.position() * Float.BYTES);
+            }
+        }
+
+        Files.move(tempPath, cachePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes the first bytes of the chunk, the values buffered so far, to the
+     * channel.
+     */
+    private static void flush(FileChannel channel, ByteBuffer chunk, int bytes) throws IOException {
+        chunk.clear();
+        chunk.limit(bytes);
+        writeFully(channel, chunk);
+    }
+
+    /**
+     * Writes the whole of a buffer to the channel.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Opens a cache file by memory mapping it read only.
+     *
+     * @param cachePath path to the cache file
+     * @return the opened cache
+     * @throws IOException if the file cannot be mapped or is not a viability
+     *                     cache
+     */
+    public static ViabilityCache open(Path cachePath) throws IOException {
+        ViabilityCache cache = new ViabilityCache();
+
+        try (FileChannel channel = FileChannel.open(cachePath, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            in.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                throw new IOException("Not a viability cache: " + cachePath);
+            }
+
+            int dimX = in.getInt();
+            int dimY = in.getInt();
+            int numValues = in.getInt();
+            int dataOffset = in.getInt();
+            int valueSize = in.getInt();
+            int planeSize = dimX * dimY;
+
+            in.position(dataOffset);
+            ByteBuffer data = in.slice().order(ByteOrder.LITTLE_ENDIAN);
+            if (valueSize == Double.BYTES) {
+                DoubleBuffer planes = data.asDoubleBuffer();
+                DoubleRaster slope = new DoubleRaster(dimX, dimY, 1);
+                planes.get(slope.getData());
+                DoubleRaster adaptation = new DoubleRaster(dimX, dimY, numValues);
+                planes.get(adaptation.getData());
+                cache.slopeData = slope;
+                cache.staticAdaptation = adaptation;
+            } else if (valueSize == Float.BYTES) {
+                FloatBuffer planes = data.asFloatBuffer();
+                cache.slopeData = new FloatRaster(dimX, dimY, 1, planes.slice(0, planeSize));
+                cache.staticAdaptation = new FloatRaster(dimX, dimY, numValues,
+                        planes.slice(planeSize, planeSize * numValues));
+            } else {
+                throw new IOException("Unsupported value size " + valueSize + " in viability cache: " + cachePath);
+            }
+        }
+
+        return cache;
+    }
+
+    /**
+     * Returns the cached slope. In float precision it is a read only view of
+     * the file.
+     *
+     * @return single layer slope raster
+     */
+    public TerrainRaster getSlopeData() {
+        return this.slopeData;
+    }
+
+    /**
+     * Returns the cached temperature and slope adaptation. In float precision
+     * it is a read only view of the file.
+     *
+     * @return adaptation raster with species x months values per pixel
+     */
+    public TerrainRaster getStaticAdaptation() {
+        return this.staticAdaptation;
+    }
+}
@@ -1,15 +1,41 @@
 package plantgen;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.DoubleAccumulator;
 
 /**
  * Class to calculate the viabilites
+ * The average viabilities are calculated by the vectorised
+ * {@link ViabilityKernel} when the Vector API is available. Otherwise the
+ * adaptation function is looked up in an {@link AdaptationTable}, or
+ * calculated exactly one value at a time if the system property
+ * plantgen.viabilityTable is false. Set the system property plantgen.vector
+ * to false to never use the kernel, and plantgen.viabilityCompare to true to
+ * check the kernel or table against the exact calculation.
+ * The temperature and slope adaptation can be precomputed for every pixel,
+ * see {@link #precomputeStaticAdaptation}, so that points on the same pixel
+ * only calculate the sunlight and moisture adaptation.
  */
 public class ViabilityCalculator {
     private Terrain terrain;
-    private double[][] slopeData;
+    private TerrainRaster slopeData;
     final private double maxStressVal = 0.2;
     private Species[] plants;
+    private ViabilityKernel kernel;
+
+    // Table lookup, with the ideal value and the inverse response of each
+    // species and factor
+    private AdaptationTable table;
+    private double[] tempC, tempInvR, moistC, moistInvR, sunC, sunInvR, slopeC, slopeInvR;
+
+    // Smaller of the temperature and slope adaptation per pixel, species and
+    // month, if precomputed
+    private TerrainRaster staticAdaptation;
+
+    // Largest difference from the exact calculation, if compared
+    private boolean compareWithExact = Boolean.getBoolean("plantgen.viabilityCompare");
+    private final DoubleAccumulator maxCompareError = new DoubleAccumulator(Math::max, 0);
 
     /**
      * Constructor to initialize the ViabilityCalculator.
@@ -20,9 +46,235 @@ public class ViabilityCalculator {
      * @param slopeData 2D array containing slope data for the terrain.
      */
     public ViabilityCalculator(Terrain t, Species[] plants, double[][] slopeData) {
+        this(t, plants, TerrainRaster.fromLayers(new double[][][] { slopeData }));
+    }
+
+    /**
+     * Constructor to initialize the ViabilityCalculator.
+     * 
+     * @param t         Terrain object containing environmental data.
+     * @param plants    Array of Species objects representing different plant
+     *                  species.
+     * @param slopeData single layer raster containing slope data for the terrain.
+     */
+    public ViabilityCalculator(Terrain t, Species[] plants, TerrainRaster slopeData) {
         this.terrain = t;
         this.plants = plants;
         this.slopeData = slopeData;
+        this.kernel = createKernel(plants, t.getNumMonths());
+        if (Boolean.parseBoolean(System.getProperty("plantgen.viabilityTable", "true"))) {
+            setTable(AdaptationTable.fromSystemProperty());
+        }
+    }
+
+    /**
+     * Sets the table the adaptation function is looked up in.
+     * 
+     * @param table the table, or null to calculate the viabilities exactly
+     */
+    public final void setTable(AdaptationTable table) {
+        this.table = table;
+        if (table == null) {
+            return;
+        }
+
+        int n = plants.length;
+        tempC = new double[n];
+        tempInvR = new double[n];
+        moistC = new double[n];
+        moistInvR = new double[n];
+        sunC = new double[n];
+        sunInvR = new double[n];
+        slopeC = new double[n];
+        slopeInvR = new double[n];
+        for (int j = 0; j < n; j++) {
+            tempC[j] = plants[j].getTempValues()[0];
+            tempInvR[j] = 1.0 / plants[j].getTempValues()[1];
+            moistC[j] = plants[j].getWetValues()[0];
+            moistInvR[j] = 1.0 / plants[j].getWetValues()[1];
+            sunC[j] = plants[j].getSunValues()[0];
+            sunInvR[j] = 1.0 / plants[j].getSunValues()[1];
+            slopeC[j] = plants[j].getSlopeValues()[0];
+            slopeInvR[j] = 1.0 / plants[j].getSlopeValues()[1];
+        }
+    }
+
+    /**
+     * Sets whether every table lookup or kernel calculation is checked against
+     * the exact scalar calculation, see {@link #getMaxCompareError()}.
+     * 
+     * @param compareWithExact true to compare with the exact calculation
+     */
+    public void setCompareWithExact(boolean compareWithExact) {
+        this.compareWithExact = compareWithExact;
+    }
+
+    /**
+     * Returns the largest difference between a viability from the table or the
+     * kernel and the exact viability, over the compared calculations.
+     * 
+     * @return the largest absolute difference
+     */
+    public double getMaxCompareError() {
+        return this.maxCompareError.get();
+    }
+
+    /**
+     * Checks whether the adaptation function is looked up in a table, which is
+     * only done when the vectorised kernel is not used.
+     * 
+     * @return true if a table is used
+     */
+    public boolean usesTable() {
+        return this.kernel == null && this.table != null;
+    }
+
+    /**
+     * Creates the vectorised kernel, unless it is disabled or the Vector API
+     * module is not available.
+     * 
+     * @param plants    Array of Species objects.
+     * @param numMonths Number of months of abiotic data.
+     * @return the kernel, or null to use the scalar calculation
+     */
+    private static ViabilityKernel createKernel(Species[] plants, int numMonths) {
+        if (!Boolean.parseBoolean(System.getProperty("plantgen.vector", "true"))) {
+            return null;
+        }
+
+        try {
+            return new ViabilityKernel(plants, numMonths);
+        } catch (LinkageError e) {
+            System.out.println("Vector API not available (run with --add-modules jdk.incubator.vector), "
+                    + "using the scalar viability calculation");
+            return null;
+        }
+    }
+
+    /**
+     * Precomputes the smaller of the temperature and slope adaptation of
+     * every species and month at every pixel, in parallel over the terrain.
+     * Neither factor changes as plants are placed, so the viability of a
+     * point then only needs its sunlight and moisture adaptation. Worth it
+     * when there are several points per pixel; the raster holds species x
+     * months values per pixel at the precision of the temperature data.
+     * 
+     * @param scheduler the scheduler to run the calculation on
+     */
+    public void precomputeStaticAdaptation(PhaseScheduler scheduler) {
+        int dimX = terrain.getDimX();
+        int dimY = terrain.getDimY();
+        int numMonths = terrain.getNumMonths();
+        int numValues = plants.length * numMonths;
+        TerrainRaster tempData = terrain.getTemperatureData();
+        TerrainRaster adaptation = TerrainRaster.create(dimX, dimY, numValues, tempData.getPrecision());
+
+        // A few strips of rows per thread so that uneven strips even out
+        int numStrips = Math.min(dimX, 4 * scheduler.getParallelism());
+        List<Runnable> tasks = new ArrayList<>(numStrips);
+        for (int strip = 0; strip < numStrips; strip++) {
+            int startX = (int) ((long) dimX * strip / numStrips);
+            int endX = (int) ((long) dimX * (strip + 1) / numStrips);
+            tasks.add(() -> {
+                double[] values = new double[numValues];
+                for (int x = startX; x < endX; x++) {
+                    for (int y = 0; y < dimY; y++) {
+                        calculateStaticAdaptation(x, y, values);
+                        int index = adaptation.index(x, y);
+                        for (int k = 0; k < numValues; k++) {
+                            adaptation.set(index + k, values[k]);
+                        }
+                    }
+                }
+            });
+        }
+        scheduler.runPhase("static viability", tasks);
+        this.staticAdaptation = adaptation;
+
+        System.out.println(String.format("Precomputed temperature and slope adaptation: %d x %d x %d in %.0f ms, %d MB",
+                dimX, dimY, numValues, scheduler.getPhaseTimes().get("static viability"),
+                adaptation.getSizeInBytes() >> 20));
+    }
+
+    /**
+     * Calculates the smaller of the temperature and slope adaptation of each
+     * species and month at a pixel.
+     * 
+     * @param xCoord     x coordinate of the pixel
+     * @param yCoord     y coordinate of the pixel
+     * @param adaptation array to store the values in, in species-major order
+     */
+    private void calculateStaticAdaptation(int xCoord, int yCoord, double[] adaptation) {
+        TerrainRaster tempData = terrain.getTemperatureData();
+        int pixel = tempData.index(xCoord, yCoord);
+        double slope = this.slopeData.get(xCoord, yCoord, 0);
+
+        if (kernel != null) {
+            kernel.calculateStatic(tempData, pixel, slope, adaptation);
+            return;
+        }
+
+        int numMonths = terrain.getNumMonths();
+        for (int j = 0; j < plants.length; j++) {
+            float[] tempFact = plants[j].getTempValues();
+            float[] slopeFact = plants[j].getSlopeValues();
+            double slopeDist = calculateDistance(slope, slopeFact[0]);
+            double slopeAdapt = table != null ? table.evaluate(slopeDist * slopeInvR[j])
+                    : adaptationFunction(slopeDist, slopeFact[1]);
+
+            for (int i = 0; i < numMonths; i++) {
+                double tempDist = calculateDistance(tempData.get(pixel + i), tempFact[0]);
+                double tempAdapt = table != null ? table.evaluate(tempDist * tempInvR[j])
+                        : adaptationFunction(tempDist, tempFact[1]);
+                adaptation[j * numMonths + i] = Math.min(tempAdapt, slopeAdapt);
+            }
+        }
+    }
+
+    /**
+     * Returns the precomputed temperature and slope adaptation.
+     * 
+     * @return raster with species x months values per pixel, or null if not
+     *         precomputed
+     */
+    public TerrainRaster getStaticAdaptation() {
+        return this.staticAdaptation;
+    }
+
+    /**
+     * Sets previously precomputed temperature and slope adaptation, such as
+     * one read from a {@link ViabilityCache}.
+     * 
+     * @param staticAdaptation raster with species x months values per pixel,
+     *                         or null to calculate every factor per point
+     * @throws IllegalArgumentException if the raster does not match the terrain
+     *                                  and species
+     */
+    public void setStaticAdaptation(TerrainRaster staticAdaptation) {
+        if (staticAdaptation != null && (staticAdaptation.getDimX() != terrain.getDimX()
+                || staticAdaptation.getDimY() != terrain.getDimY()
+                || staticAdaptation.getNumLayers() != plants.length * terrain.getNumMonths())) {
+            throw new IllegalArgumentException("Adaptation raster does not match the terrain and species");
+        }
+        this.staticAdaptation = staticAdaptation;
+    }
+
+    /**
+     * Checks whether the temperature and slope adaptation are precomputed.
+     * 
+     * @return true if they are read from the precomputed raster
+     */
+    public boolean hasStaticAdaptation() {
+        return this.staticAdaptation != null;
+    }
+
+    /**
+     * Checks whether the vectorised kernel is used.
+     * 
+     * @return true if the average viabilities are calculated by the kernel
+     */
+    public boolean isVectorised() {
+        return this.kernel != null;
     }
 
     /**
@@ -66,17 +318,69 @@ public class ViabilityCalculator {
      * per plant
      * 
      * @param c coordinate for which to calculate the viability
-     * @return An ArrayList of the viabilities for each plant at that coordinate
+     * @return An array of the viabilities for each plant at that coordinate
      */
-    public ArrayList<Double> calculateAverageViability(Coordinate c) {
-        int xCoord = Math.round(c.getX());
-        int yCoord = Math.round(c.getY());
+    public double[] calculateAverageViability(Coordinate c) {
+        double[] viabilityAvg = new double[plants.length];
+        calculateAverageViability(c.getX(), c.getY(), viabilityAvg);
+        return viabilityAvg;
+    }
 
-        double slope = this.slopeData[xCoord][yCoord];
+    /**
+     * Method to calculate the average year viability at a particular point,
+     * per plant, into an existing array
+     * 
+     * @param x            x coordinate of the point
+     * @param y            y coordinate of the point
+     * @param viabilityAvg array to store the viability of each plant in
+     */
+    public void calculateAverageViability(float x, float y, double[] viabilityAvg) {
+        if (staticAdaptation != null) {
+            calculateAverageViabilityStatic(x, y, viabilityAvg);
+        } else if (kernel != null) {
+            int xCoord = Math.round(x);
+            int yCoord = Math.round(y);
+
+            TerrainRaster sunData = terrain.getSunlightData();
+            kernel.calculate(terrain.getTemperatureData(), terrain.getWetData(), sunData,
+                    sunData.index(xCoord, yCoord), this.slopeData.get(xCoord, yCoord, 0), viabilityAvg);
+        } else if (table != null) {
+            calculateAverageViabilityTable(x, y, viabilityAvg);
+        } else {
+            calculateAverageViabilityScalar(x, y, viabilityAvg);
+            return;
+        }
+
+        if (compareWithExact) {
+            double[] exact = new double[plants.length];
+            calculateAverageViabilityScalar(x, y, exact);
+            for (int j = 0; j < plants.length; j++) {
+                maxCompareError.accumulate(Math.abs(exact[j] - viabilityAvg[j]));
+            }
+        }
+    }
+
+    /**
+     * Method to calculate the average year viability at a particular point,
+     * per plant, one value at a time
+     * 
+     * @param x            x coordinate of the point
+     * @param y            y coordinate of the point
+     * @param viabilityAvg array to store the viability of each plant in
+     */
+    public void calculateAverageViabilityScalar(float x, float y, double[] viabilityAvg) {
+        int xCoord = Math.round(x);
+        int yCoord = Math.round(y);
+
+        double slope = this.slopeData.get(xCoord, yCoord, 0);
 
         int numMonths = terrain.getNumMonths();
 
-        double[][] viability = new double[plants.length][12];
+        // The monthly values of this pixel are contiguous in each raster
+        TerrainRaster tempData = terrain.getTemperatureData();
+        TerrainRaster wetData = terrain.getWetData();
+        TerrainRaster sunData = terrain.getSunlightData();
+        int pixel = terrain.getSunlightData().index(xCoord, yCoord);
 
         for (int j = 0; j < plants.length; j++) { // per plant
             float[] sunFact = plants[j].getSunValues();
@@ -84,10 +388,14 @@ public class ViabilityCalculator {
             float[] tempFact = plants[j].getTempValues();
             float[] slopeFact = plants[j].getSlopeValues();
 
+            double slopeDist = calculateDistance(slope, slopeFact[0]);
+            double slopeAdapt = adaptationFunction(slopeDist, slopeFact[1]);
+
+            double total = 0;
             for (int i = 0; i < numMonths; i++) { // per month
-                double temp = terrain.getTemperatureData()[i][xCoord][yCoord];
-                double moist = terrain.getWetData()[i][xCoord][yCoord];
-                double sunlight = terrain.getSunlightData()[i][xCoord][yCoord];
+                double temp = tempData.get(pixel + i);
+                double moist = wetData.get(pixel + i);
+                double sunlight = sunData.get(pixel + i);
 
                 double tempDist = calculateDistance(temp, tempFact[0]);
                 double tempAdapt = adaptationFunction(tempDist, tempFact[1]);
@@ -98,30 +406,101 @@ public class ViabilityCalculator {
                 double sunDist = calculateDistance(sunlight, sunFact[0]);
                 double sunAdapt = adaptationFunction(sunDist, sunFact[1]);
 
-                double slopeDist = calculateDistance(slope, slopeFact[0]);
-                double slopeAdapt = adaptationFunction(slopeDist, slopeFact[1]);
+                total += Math.max(viabilityCalc(tempAdapt, moistAdapt, sunAdapt, slopeAdapt), 0);
+            }
 
-                // store in viability list
-                viability[j][i] = Math.max(viabilityCalc(tempAdapt, moistAdapt, sunAdapt, slopeAdapt), 0);
+            // get avg of the plant's year viability
+            viabilityAvg[j] = total / numMonths;
+        }
+    }
 
+    /**
+     * Method to calculate the average year viability at a particular point,
+     * per plant, looking the adaptation function up in the table
+     * 
+     * @param x            x coordinate of the point
+     * @param y            y coordinate of the point
+     * @param viabilityAvg array to store the viability of each plant in
+     */
+    public void calculateAverageViabilityTable(float x, float y, double[] viabilityAvg) {
+        int xCoord = Math.round(x);
+        int yCoord = Math.round(y);
+
+        double slope = this.slopeData.get(xCoord, yCoord, 0);
+
+        int numMonths = terrain.getNumMonths();
+
+        // The monthly values of this pixel are contiguous in each raster
+        TerrainRaster tempData = terrain.getTemperatureData();
+        TerrainRaster wetData = terrain.getWetData();
+        TerrainRaster sunData = terrain.getSunlightData();
+        int pixel = terrain.getSunlightData().index(xCoord, yCoord);
+
+        for (int j = 0; j < plants.length; j++) { // per plant
+            double slopeAdapt = table.evaluate(Math.abs(slope - slopeC[j]) * slopeInvR[j]);
+
+            double total = 0;
+            for (int i = 0; i < numMonths; i++) { // per month
+                double tempAdapt = table.evaluate(Math.abs(tempData.get(pixel + i) - tempC[j]) * tempInvR[j]);
+                double moistAdapt = table.evaluate(Math.abs(wetData.get(pixel + i) - moistC[j]) * moistInvR[j]);
+                double sunAdapt = table.evaluate(Math.abs(sunData.get(pixel + i) - sunC[j]) * sunInvR[j]);
+
+                total += Math.max(viabilityCalc(tempAdapt, moistAdapt, sunAdapt, slopeAdapt), 0);
             }
 
+            // get avg of the plant's year viability
+            viabilityAvg[j] = total / numMonths;
         }
+    }
 
-        ArrayList<Double> viabilityAvg = new ArrayList<Double>();
-        for (int i = 0; i < plants.length; i++) {
-            viabilityAvg.add(0.0);
-        }
+    /**
+     * Method to calculate the average year viability at a particular point,
+     * per plant, from the precomputed temperature and slope adaptation
+     * 
+     * @param x            x coordinate of the point
+     * @param y            y coordinate of the point
+     * @param viabilityAvg array to store the viability of each plant in
+     */
+    public void calculateAverageViabilityStatic(float x, float y, double[] viabilityAvg) {
+        int xCoord = Math.round(x);
+        int yCoord = Math.round(y);
 
-        // get avg of each plant's year viability
-        for (int i = 0; i < plants.length; i++) {
-            for (int j = 0; j < numMonths; j++) {
-                viabilityAvg.set(i, viabilityAvg.get(i) + viability[i][j]);
-            }
-            viabilityAvg.set(i, viabilityAvg.get(i) / numMonths);
+        int numMonths = terrain.getNumMonths();
+
+        TerrainRaster wetData = terrain.getWetData();
+        TerrainRaster sunData = terrain.getSunlightData();
+        int pixel = sunData.index(xCoord, yCoord);
+        int staticIndex = staticAdaptation.index(xCoord, yCoord);
+
+        if (kernel != null) {
+            kernel.calculate(wetData, sunData, pixel, staticAdaptation, staticIndex, viabilityAvg);
+            return;
         }
 
-        return viabilityAvg;
+        for (int j = 0; j < plants.length; j++) { // per plant
+            float[] sunFact = plants[j].getSunValues();
+            float[] moistFact = plants[j].getWetValues();
+
+            double total = 0;
+            for (int i = 0; i < numMonths; i++) { // per month
+                double moist = wetData.get(pixel + i);
+                double sunlight = sunData.get(pixel + i);
 
+                double moistAdapt, sunAdapt;
+                if (table != null) {
+                    moistAdapt = table.evaluate(Math.abs(moist - moistC[j]) * moistInvR[j]);
+                    sunAdapt = table.evaluate(Math.abs(sunlight - sunC[j]) * sunInvR[j]);
+                } else {
+                    moistAdapt = adaptationFunction(calculateDistance(moist, moistFact[0]), moistFact[1]);
+                    sunAdapt = adaptationFunction(calculateDistance(sunlight, sunFact[0]), sunFact[1]);
+                }
+
+                double staticAdapt = staticAdaptation.get(staticIndex + j * numMonths + i);
+                total += Math.max(Math.min(staticAdapt, Math.min(moistAdapt, sunAdapt)), 0);
+            }
+
+            // get avg of the plant's year viability
+            viabilityAvg[j] = total / numMonths;
+        }
     }
 }
@@ -0,0 +1,236 @@
+package plantgen;
+
+import java.util.Arrays;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vectorised viability calculation using the incubating Vector API.
+ * The species x month grid of one coordinate is flattened into lanes, in
+ * species-major order and padded to a whole number of vectors, and the four
+ * adaptation functions are evaluated for all of the lanes at once.
+ * Coordinates are still calculated one at a time, because placing a plant
+ * changes the sunlight and moisture that the next coordinate reads. The
+ * temperature and slope adaptation can instead be calculated per pixel up
+ * front, see {@link #calculateStatic}, and combined with the sunlight and
+ * moisture of each coordinate.
+ * Needs --add-modules jdk.incubator.vector at compile and run time, see
+ * {@link ViabilityCalculator} for the scalar fallback.
+ */
+public class ViabilityKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private static final double MAX_STRESS = 0.2;
+    private static final double LOG_STRESS = Math.log(0.2);
+
+    private final int numSpecies;
+    private final int numMonths;
+    private final int numLanes;
+
+    // Ideal value and response of each factor per (species, month) lane
+    private final double[] tempC, tempR;
+    private final double[] moistC, moistR;
+    private final double[] sunC, sunR;
+    private final double[] slopeC, slopeR;
+
+    // Scratch space for the abiotic values spread over the lanes, and the
+    // monthly viabilities
+    private final ThreadLocal<double[][]> scratch;
+
+    /**
+     * Constructs a kernel for the given species and number of months.
+     *
+     * @param plants    the species, in the order of the viabilities
+     * @param numMonths number of months of abiotic data
+     */
+    public ViabilityKernel(Species[] plants, int numMonths) {
+        this.numSpecies = plants.length;
+        this.numMonths = numMonths;
+        this.numLanes = SPECIES.loopBound(numSpecies * numMonths + SPECIES.length() - 1);
+
+        tempC = new double[numLanes];
+        tempR = new double[numLanes];
+        moistC = new double[numLanes];
+        moistR = new double[numLanes];
+        sunC = new double[numLanes];
+        sunR = new double[numLanes];
+        slopeC = new double[numLanes];
+        slopeR = new double[numLanes];
+
+        // Padding lanes get a response of 1 so that they stay finite
+        Arrays.fill(tempR, 1);
+        Arrays.fill(moistR, 1);
+        Arrays.fill(sunR, 1);
+        Arrays.fill(slopeR, 1);
+
+        for (int j = 0; j < numSpecies; j++) {
+            for (int m = 0; m < numMonths; m++) {
+                int k = j * numMonths + m;
+                tempC[k] = plants[j].getTempValues()[0];
+                tempR[k] = plants[j].getTempValues()[1];
+                moistC[k] = plants[j].getWetValues()[0];
+                moistR[k] = plants[j].getWetValues()[1];
+                sunC[k] = plants[j].getSunValues()[0];
+                sunR[k] = plants[j].getSunValues()[1];
+                slopeC[k] = plants[j].getSlopeValues()[0];
+                slopeR[k] = plants[j].getSlopeValues()[1];
+            }
+        }
+
+        this.scratch = ThreadLocal.withInitial(() -> new double[4][numLanes]);
+    }
+
+    /**
+     * Calculates the average year viability of each species at a pixel.
+     *
+     * @param temp         temperature data
+     * @param moist        moisture data
+     * @param sun          sunlight data
+     * @param pixel        index of the pixel's first month in the abiotic data
+     * @param slope        slope at the pixel
+     * @param viabilityAvg array to store the viability of each species in
+     */
+    public void calculate(TerrainRaster temp, TerrainRaster moist, TerrainRaster sun, int pixel, double slope,
+            double[] viabilityAvg) {
+        double[][] s = scratch.get();
+        double[] tempV = s[0];
+        double[] moistV = s[1];
+        double[] sunV = s[2];
+        double[] viability = s[3];
+
+        // Spread the monthly values of the pixel over the lanes of every species
+        for (int m = 0; m < numMonths; m++) {
+            tempV[m] = temp.get(pixel + m);
+            moistV[m] = moist.get(pixel + m);
+            sunV[m] = sun.get(pixel + m);
+        }
+        for (int j = 1; j < numSpecies; j++) {
+            System.arraycopy(tempV, 0, tempV, j * numMonths, numMonths);
+            System.arraycopy(moistV, 0, moistV, j * numMonths, numMonths);
+            System.arraycopy(sunV, 0, sunV, j * numMonths, numMonths);
+        }
+
+        DoubleVector slopeV = DoubleVector.broadcast(SPECIES, slope);
+        for (int k = 0; k < numLanes; k += SPECIES.length()) {
+            DoubleVector t = adapt(DoubleVector.fromArray(SPECIES, tempV, k), tempC, tempR, k);
+            DoubleVector mo = adapt(DoubleVector.fromArray(SPECIES, moistV, k), moistC, moistR, k);
+            DoubleVector su = adapt(DoubleVector.fromArray(SPECIES, sunV, k), sunC, sunR, k);
+            DoubleVector sl = adapt(slopeV, slopeC, slopeR, k);
+
+            t.min(mo).min(su.min(sl)).max(0).intoArray(viability, k);
+        }
+
+        average(viability, viabilityAvg);
+    }
+
+    /**
+     * Averages the monthly viabilities of each species.
+     */
+    private void average(double[] viability, double[] viabilityAvg) {
+        for (int j = 0; j < numSpecies; j++) {
+            double total = 0;
+            for (int m = 0; m < numMonths; m++) {
+                total += viability[j * numMonths + m];
+            }
+            viabilityAvg[j] = total / numMonths;
+        }
+    }
+
+    /**
+     * Calculates the smaller of the temperature and slope adaptation of each
+     * species and month at a pixel, which do not change as plants are placed.
+     *
+     * @param temp       temperature data
+     * @param pixel      index of the pixel's first month in the abiotic data
+     * @param slope      slope at the pixel
+     * @param adaptation array to store the numSpecies x numMonths values in,
+     *                   in species-major order
+     */
+    public void calculateStatic(TerrainRaster temp, int pixel, double slope, double[] adaptation) {
+        double[][] s = scratch.get();
+        double[] tempV = s[0];
+        double[] staticV = s[3];
+
+        for (int m = 0; m < numMonths; m++) {
+            tempV[m] = temp.get(pixel + m);
+        }
+        for (int j = 1; j < numSpecies; j++) {
+            System.arraycopy(tempV, 0, tempV, j * numMonths, numMonths);
+        }
+
+        DoubleVector slopeV = DoubleVector.broadcast(SPECIES, slope);
+        for (int k = 0; k < numLanes; k += SPECIES.length()) {
+            DoubleVector t = adapt(DoubleVector.fromArray(SPECIES, tempV, k), tempC, tempR, k);
+            t.min(adapt(slopeV, slopeC, slopeR, k)).intoArray(staticV, k);
+        }
+
+        System.arraycopy(staticV, 0, adaptation, 0, numSpecies * numMonths);
+    }
+
+    /**
+     * Calculates the average year viability of each species at a pixel from
+     * the precomputed temperature and slope adaptation, see
+     * {@link #calculateStatic}.
+     *
+     * @param moist        moisture data
+     * @param sun          sunlight data
+     * @param pixel        index of the pixel's first month in the abiotic data
+     * @param staticData   precomputed temperature and slope adaptation
+     * @param staticIndex  index of the pixel's first value in staticData
+     * @param viabilityAvg array to store the viability of each species in
+     */
+    public void calculate(TerrainRaster moist, TerrainRaster sun, int pixel, TerrainRaster staticData,
+            int staticIndex, double[] viabilityAvg) {
+        double[][] s = scratch.get();
+        double[] staticV = s[0];
+        double[] moistV = s[1];
+        double[] sunV = s[2];
+        double[] viability = s[3];
+
+        for (int k = 0; k < numSpecies * numMonths; k++) {
+            staticV[k] = staticData.get(staticIndex + k);
+        }
+        for (int m = 0; m < numMonths; m++) {
+            moistV[m] = moist.get(pixel + m);
+            sunV[m] = sun.get(pixel + m);
+        }
+        for (int j = 1; j < numSpecies; j++) {
+            System.arraycopy(moistV, 0, moistV, j * numMonths, numMonths);
+            System.arraycopy(sunV, 0, sunV, j * numMonths, numMonths);
+        }
+
+        for (int k = 0; k < numLanes; k += SPECIES.length()) {
+            DoubleVector st = DoubleVector.fromArray(SPECIES, staticV, k);
+            DoubleVector mo = adapt(DoubleVector.fromArray(SPECIES, moistV, k), moistC, moistR, k);
+            DoubleVector su = adapt(DoubleVector.fromArray(SPECIES, sunV, k), sunC, sunR, k);
+
+            st.min(mo.min(su)).max(0).intoArray(viability, k);
+        }
+
+        average(viability, viabilityAvg);
+    }
+
+    /**
+     * Evaluates the adaptation function (1 + s) * e^((d / r)^4.5 * ln(s)) - s
+     * on a vector of abiotic values, with (d / r)^4.5 taken as q^4 * sqrt(q).
+     */
+    private static DoubleVector adapt(DoubleVector value, double[] c, double[] r, int k) {
+        DoubleVector q = value.sub(DoubleVector.fromArray(SPECIES, c, k)).abs()
+                .div(DoubleVector.fromArray(SPECIES, r, k));
+        DoubleVector q2 = q.mul(q);
+        DoubleVector exponent = q2.mul(q2).mul(q.sqrt()).mul(LOG_STRESS);
+
+        return exponent.lanewise(VectorOperators.EXP).mul(1 + MAX_STRESS).sub(MAX_STRESS);
+    }
+
+    /**
+     * Returns the number of doubles processed per vector operation.
+     *
+     * @return the vector length
+     */
+    public static int getVectorLength() {
+        return SPECIES.length();
+    }
+}
@@ -5,6 +5,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 
 import plantgen.AbioticMap;
+import plantgen.TerrainRaster;
 
 /**
  * Test class for AbioticMap
@@ -32,7 +33,7 @@ public class AbioticMapTest {
 
         for (int m = 0; m < 3; m++) {
             for (int x = 0; x < 3; x++) {
-                assertArrayEquals(abioExpData[m][x], abioMap.getData()[m][x], 0.00001);
+                assertArrayEquals(abioExpData[m][x], abioMap.getData().toLayers()[m][x], 0.00001);
             }
         }
     }
@@ -56,11 +57,11 @@ public class AbioticMapTest {
         abioMap.readData(resourcePath.toString());
         abioMap.copyData();
 
-        abioMap.setData(abioExpData);
+        abioMap.setData(TerrainRaster.fromLayers(abioExpData));
 
-        double[][][] actAbioData = abioMap.getOriginalData();
+        TerrainRaster actAbioData = abioMap.getOriginalData();
 
-        assertNotEquals(abioMap.getData()[0][0][2], actAbioData[0][0][2]);
-        assertEquals(abioMap.getData()[1][0][2], actAbioData[1][0][2]);
+        assertNotEquals(abioMap.getData().get(0, 2, 0), actAbioData.get(0, 2, 0));
+        assertEquals(abioMap.getData().get(0, 2, 1), actAbioData.get(0, 2, 1));
     }
 }
@@ -3,11 +3,21 @@ import plantgen.Cell;
 import plantgen.AbioticsUpdater;
 import plantgen.Grid;
 import plantgen.Plant;
+import plantgen.RasterStampUpdater;
+import plantgen.DoubleRaster;
+import plantgen.Precision;
+import plantgen.TerrainRaster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import java.util.ArrayList;
-import java.util.HashMap;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -35,9 +45,9 @@ public class AbioticsUpdaterTest {
 
                 plant.setCanopyRadius(2.0);
 
-                cell.canopyCoords = new ArrayList<>();
-                cell.undergrowthCoords = new ArrayList<>();
-                cell.neighbours = new HashMap<>();
+                cell.setNumCPoints(1);
+                cell.neighbours = new Cell[Cell.NUM_NEIGHBOURS];
+                grid.createPointStore();
 
                 updater = new AbioticsUpdater(grid, gridSpacing);
         }
@@ -50,23 +60,16 @@ public class AbioticsUpdaterTest {
 
         @Test
         public void testUpdateSunlight() {
-                double[][][] sunlight = new double[12][10][10];
-                for (int i = 0; i < 12; i++) {
-                        for (int x = 0; x < 10; x++) {
-                                for (int y = 0; y < 10; y++) {
-                                        sunlight[i][x][y] = 1.0;
-                                }
-                        }
-                }
+                TerrainRaster sunlight = new DoubleRaster(10, 10, 12);
+                sunlight.fill(1.0);
 
-                Coordinate coord = new Coordinate(5, 5);
-                cell.canopyCoords.add(coord);
+                cell.addCanopyCoord(5, 5);
 
                 double leafTransparency = 0.8;
-                double[][][] updatedSunlight = updater.updateSunlight(sunlight, plant, leafTransparency);
+                TerrainRaster updatedSunlight = updater.updateSunlight(sunlight, plant, leafTransparency);
 
                 for (int m = 0; m < 12; m++) {
-                        assertEquals(0.8, updatedSunlight[m][5][5]);
+                        assertEquals(0.8, updatedSunlight.get(5, 5, m));
                 }
         }
 
@@ -78,23 +81,16 @@ public class AbioticsUpdaterTest {
 
         @Test
         public void testUpdateMoisture() {
-                double[][][] moisture = new double[12][10][10];
-                for (int i = 0; i < 12; i++) {
-                        for (int x = 0; x < 10; x++) {
-                                for (int y = 0; y < 10; y++) {
-                                        moisture[i][x][y] = 1.0;
-                                }
-                        }
-                }
+                TerrainRaster moisture = new DoubleRaster(10, 10, 12);
+                moisture.fill(1.0);
 
-                Coordinate coord = new Coordinate(5, 5);
-                cell.canopyCoords.add(coord);
+                cell.addCanopyCoord(5, 5);
 
                 double moistureAbsorption = 0.2;
-                double[][][] updatedMoisture = updater.updateMoisture(moisture, plant, moistureAbsorption);
+                TerrainRaster updatedMoisture = updater.updateMoisture(moisture, plant, moistureAbsorption);
 
                 for (int m = 0; m < 12; m++) {
-                        assertEquals(0.8, updatedMoisture[m][5][5]);
+                        assertEquals(0.8, updatedMoisture.get(5, 5, m));
                 }
         }
         /*
@@ -116,4 +112,218 @@ public class AbioticsUpdaterTest {
                 result = updater.checkGoodDistance(current, toUpdate, updateDistance);
                 assertFalse(result);
         }
-}
\ No newline at end of file
+
+        /*
+         * Test that the raster stamp updates every pixel within 1.5 canopy
+         * radii, whether or not it has a candidate point, and no others
+         */
+
+        @Test
+        public void testStampFootprint() {
+                RasterStampUpdater stamper = new RasterStampUpdater(grid, gridSpacing);
+                TerrainRaster sunlight = new DoubleRaster(10, 10, 12);
+                sunlight.fill(1.0);
+                TerrainRaster moisture = new DoubleRaster(10, 10, 12);
+                moisture.fill(1.0);
+
+                stamper.updateSunlight(sunlight, plant, 0.8);
+                stamper.updateMoisture(moisture, plant, 0.2);
+
+                double updateDistance = 1.5 * plant.getCanopyRadius();
+                for (int x = 0; x < 10; x++) {
+                        for (int y = 0; y < 10; y++) {
+                                boolean inside = Math.sqrt((x - 5) * (x - 5) + (y - 5) * (y - 5)) < updateDistance;
+                                for (int m = 0; m < 12; m++) {
+                                        assertEquals(inside ? 0.8 : 1.0, sunlight.get(x, y, m), 1e-12);
+                                        assertEquals(inside ? 0.8 : 1.0, moisture.get(x, y, m), 1e-12);
+                                }
+                        }
+                }
+        }
+
+        /*
+         * Test that a footprint reaching over the edge of the terrain is
+         * clipped to it
+         */
+
+        @Test
+        public void testStampEdge() {
+                RasterStampUpdater stamper = new RasterStampUpdater(grid, gridSpacing);
+                TerrainRaster sunlight = new DoubleRaster(10, 10, 12);
+                sunlight.fill(1.0);
+
+                Plant corner = new Plant("TestSpecies", new Coordinate(0, 9));
+                corner.setCanopyRadius(2.0);
+                stamper.updateSunlight(sunlight, corner, 0.5);
+
+                assertEquals(0.5, sunlight.get(0, 9, 0));
+                assertEquals(0.5, sunlight.get(2, 7, 11));
+                assertEquals(1.0, sunlight.get(3, 6, 0));
+                assertEquals(1.0, sunlight.get(5, 5, 0));
+        }
+
+        /*
+         * Check that a stamp of transparency 0.5 on a raster of ones covers
+         * exactly the pixels strictly within 1.5 canopy radii, in pixels, of
+         * the plant's nearest pixel
+         */
+        private void assertStampMatchesDisk(Plant p, double spacing, int dimX, int dimY) {
+                RasterStampUpdater stamper = new RasterStampUpdater(grid, spacing);
+                TerrainRaster sunlight = new DoubleRaster(dimX, dimY, 3);
+                sunlight.fill(1.0);
+                stamper.updateSunlight(sunlight, p, 0.5);
+
+                double radius = 1.5 * p.getCanopyRadius() / spacing;
+                int cx = Math.round(p.getPosition().getX());
+                int cy = Math.round(p.getPosition().getY());
+                for (int x = 0; x < dimX; x++) {
+                        for (int y = 0; y < dimY; y++) {
+                                double distSq = (double) (x - cx) * (x - cx) + (double) (y - cy) * (y - cy);
+                                double expected = distSq < radius * radius ? 0.5 : 1.0;
+                                for (int m = 0; m < 3; m++) {
+                                        assertEquals(expected, sunlight.get(x, y, m), "pixel (" + x + ", " + y
+                                                        + ") radius " + radius + " centre (" + cx + ", " + cy + ")");
+                                }
+                        }
+                }
+        }
+
+        /*
+         * Test the stamp footprint against a brute force disk for grid
+         * spacings other than one and radii that are not whole pixels
+         */
+
+        @Test
+        public void testStampMatchesDisk() {
+                SplittableRandom random = new SplittableRandom(11);
+                for (double spacing : new double[] { 0.5, 1.0, 2.5, 3.0 }) {
+                        for (int i = 0; i < 50; i++) {
+                                Plant p = new Plant("TestSpecies", new Coordinate((float) random.nextDouble(3, 20),
+                                                (float) random.nextDouble(3, 14)));
+                                p.setCanopyRadius(random.nextDouble(0.1, 6));
+                                assertStampMatchesDisk(p, spacing, 23, 17);
+                        }
+                }
+
+                // Radii whose squared pixel radius is a whole number
+                for (double radius : new double[] { 2.0, Math.sqrt(5), 3.0, 5.0 }) {
+                        Plant p = new Plant("TestSpecies", new Coordinate(11, 8));
+                        p.setCanopyRadius(radius / 1.5 * 2.5);
+                        assertStampMatchesDisk(p, 2.5, 23, 17);
+                }
+        }
+
+        /*
+         * Test that footprints centred on the corners and edges of the
+         * raster, including ones larger than the raster, are clipped to it
+         */
+
+        @Test
+        public void testStampClipping() {
+                float[][] positions = { { 0, 0 }, { 22, 0 }, { 0, 16 }, { 22, 16 }, { 11, 0 }, { 0, 8 }, { 22, 8 },
+                                { 11, 16 }, { 0.4f, 16.4f } };
+                for (float[] position : positions) {
+                        for (double canopyRadius : new double[] { 0.5, 2.0, 4.5, 30.0 }) {
+                                Plant p = new Plant("TestSpecies", new Coordinate(position[0], position[1]));
+                                p.setCanopyRadius(canopyRadius);
+                                assertStampMatchesDisk(p, 1.5, 23, 17);
+                        }
+                }
+        }
+
+        /*
+         * Test that the sunlight stamp multiplies and the moisture stamp
+         * subtracts every month of the footprint, and leaves the rest alone,
+         * on double and float rasters
+         */
+
+        @Test
+        public void testStampArithmetic() {
+                for (Precision precision : Precision.values()) {
+                        RasterStampUpdater stamper = new RasterStampUpdater(grid, 0.5);
+                        TerrainRaster sunlight = TerrainRaster.create(12, 9, 12, precision);
+                        TerrainRaster moisture = TerrainRaster.create(12, 9, 12, precision);
+                        for (int i = 0; i < sunlight.size(); i++) {
+                                sunlight.set(i, 1 + (i % 13) * 0.37);
+                                moisture.set(i, 20 + (i % 7) * 1.3);
+                        }
+                        TerrainRaster sunlightBefore = sunlight.copy();
+                        TerrainRaster moistureBefore = moisture.copy();
+
+                        Plant p = new Plant("TestSpecies", new Coordinate(4, 5));
+                        p.setCanopyRadius(0.7);
+                        stamper.updateSunlight(sunlight, p, 0.8);
+                        stamper.updateMoisture(moisture, p, 0.3);
+
+                        // 1.5 * 0.7 / 0.5 = 2.1 pixels
+                        for (int x = 0; x < 12; x++) {
+                                for (int y = 0; y < 9; y++) {
+                                        boolean inside = (x - 4) * (x - 4) + (y - 5) * (y - 5) < 2.1 * 2.1;
+                                        for (int m = 0; m < 12; m++) {
+                                                double sun = sunlightBefore.get(x, y, m);
+                                                double wet = moistureBefore.get(x, y, m);
+                                                double expectedSun = inside ? sun * 0.8 : sun;
+                                                double expectedWet = inside ? wet - 0.3 : wet;
+                                                if (precision == Precision.FLOAT) {
+                                                        expectedSun = (float) expectedSun;
+                                                        expectedWet = (float) expectedWet;
+                                                }
+                                                assertEquals(expectedSun, sunlight.get(x, y, m));
+                                                assertEquals(expectedWet, moisture.get(x, y, m));
+                                        }
+                                }
+                        }
+                        assertEquals(precision, sunlight.getPrecision());
+                }
+        }
+
+        /*
+         * Test that workers stamping plants of many sizes with one shared
+         * stamper, and so building its masks at the same time, give the same
+         * rasters as stamping on one thread
+         */
+
+        @Test
+        public void testStampConcurrent() throws Exception {
+                int numThreads = 8;
+                int numPlants = 400;
+                RasterStampUpdater shared = new RasterStampUpdater(grid, 0.25);
+                ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+                CountDownLatch start = new CountDownLatch(1);
+
+                List<Future<TerrainRaster>> results = new ArrayList<>();
+                for (int t = 0; t < numThreads; t++) {
+                        int thread = t;
+                        results.add(executor.submit(() -> {
+                                TerrainRaster sunlight = new DoubleRaster(40, 40, 2);
+                                sunlight.fill(1.0);
+                                start.await();
+                                // Every thread asks for a new, larger mask on almost every plant
+                                for (int i = 0; i < numPlants; i++) {
+                                        Plant p = new Plant("TestSpecies", new Coordinate(20, 20));
+                                        p.setCanopyRadius(0.05 * (i * numThreads + thread + 1));
+                                        shared.updateSunlight(sunlight, p, 0.999);
+                                }
+                                return sunlight;
+                        }));
+                }
+                start.countDown();
+
+                for (int t = 0; t < numThreads; t++) {
+                        RasterStampUpdater stamper = new RasterStampUpdater(grid, 0.25);
+                        TerrainRaster expected = new DoubleRaster(40, 40, 2);
+                        expected.fill(1.0);
+                        for (int i = 0; i < numPlants; i++) {
+                                Plant p = new Plant("TestSpecies", new Coordinate(20, 20));
+                                p.setCanopyRadius(0.05 * (i * numThreads + t + 1));
+                                stamper.updateSunlight(expected, p, 0.999);
+                        }
+
+                        TerrainRaster actual = results.get(t).get();
+                        for (int i = 0; i < expected.size(); i++) {
+                                assertEquals(expected.get(i), actual.get(i), "thread " + t + " value " + i);
+                        }
+                }
+                executor.shutdown();
+        }
+}
@@ -0,0 +1,111 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+import plantgen.AdaptationTable;
+import plantgen.Species;
+import plantgen.Terrain;
+import plantgen.TerrainRaster;
+import plantgen.ViabilityCalculator;
+/*
+ * Test class for AdaptationTable class
+ */
+
+public class AdaptationTableTest {
+    private static final String[] NAMES = { "Boxwood", "Snowy Mespilus", "Mountain Pine", "Silve Fir",
+            "Silver Birch", "Sessile Oak", "European Beech" };
+
+    /*
+     * Test that lookups stay within the error bound, inside and past the end
+     * of the table
+     */
+    @Test
+    public void testErrorBound() {
+        for (double maxError : new double[] { 1e-3, 1e-6, 1e-9 }) {
+            AdaptationTable table = new AdaptationTable(maxError);
+            for (int i = 0; i <= 200000; i++) {
+                double q = i * 1e-5;
+                assertEquals(AdaptationTable.exact(q), table.evaluate(q), maxError);
+            }
+            assertEquals(-0.2, table.evaluate(1e6), maxError);
+        }
+    }
+
+    /*
+     * Test that a tighter bound gives a larger table
+     */
+    @Test
+    public void testSize() {
+        assertTrue(new AdaptationTable(1e-9).size() > new AdaptationTable(1e-3).size());
+    }
+
+    /*
+     * Test that the error bound must be positive
+     */
+    @Test
+    public void testInvalidBound() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptationTable(0));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptationTable(-1e-6));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptationTable(Double.NaN));
+    }
+
+    /*
+     * Test the table viabilities and the comparison with the exact calculation
+     */
+    @Test
+    public void testViabilityCalculator() {
+        Path resourcePath = Paths.get("src", "test", "resources", "species-data.csv");
+        Species.initialiseSpeciesData(resourcePath.toString());
+        Species[] species = new Species[NAMES.length];
+        for (int i = 0; i < NAMES.length; i++) {
+            species[i] = new Species(NAMES[i]);
+        }
+
+        SplittableRandom random = new SplittableRandom(1);
+        int dim = 16;
+        double[][][] sun = new double[12][dim][dim];
+        double[][][] temp = new double[12][dim][dim];
+        double[][][] wet = new double[12][dim][dim];
+        double[][] slope = new double[dim][dim];
+        for (int m = 0; m < 12; m++) {
+            for (int x = 0; x < dim; x++) {
+                for (int y = 0; y < dim; y++) {
+                    sun[m][x][y] = random.nextDouble(0, 15);
+                    temp[m][x][y] = random.nextDouble(-5, 30);
+                    wet[m][x][y] = random.nextDouble(0, 80);
+                    slope[x][y] = random.nextDouble(0, 40);
+                }
+            }
+        }
+
+        Terrain terrain = new Terrain();
+        terrain.setDimX(dim);
+        terrain.setDimY(dim);
+        terrain.setNumMonths(12);
+        terrain.setSunlightData(TerrainRaster.fromLayers(sun));
+        terrain.setTemperatureData(TerrainRaster.fromLayers(temp));
+        terrain.setWetData(TerrainRaster.fromLayers(wet));
+
+        ViabilityCalculator vc = new ViabilityCalculator(terrain, species, slope);
+        vc.setTable(new AdaptationTable(1e-6));
+        vc.setCompareWithExact(true);
+
+        double[] expected = new double[species.length];
+        double[] actual = new double[species.length];
+        for (int i = 0; i < 500; i++) {
+            float x = (float) random.nextDouble(dim - 1);
+            float y = (float) random.nextDouble(dim - 1);
+
+            vc.calculateAverageViabilityScalar(x, y, expected);
+            vc.calculateAverageViabilityTable(x, y, actual);
+            assertArrayEquals(expected, actual, 1e-6);
+
+            vc.calculateAverageViability(x, y, actual);
+        }
+
+        assertTrue(vc.getMaxCompareError() <= 1e-6);
+    }
+}
@@ -2,12 +2,15 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import plantgen.AttributeCalculator;
 import plantgen.Plant;
+import plantgen.PlantIndex;
 import plantgen.Species;
 import plantgen.Coordinate;
 
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Test class for AttributeCalculator
@@ -37,6 +40,7 @@ public class AttributeCalculatorTest {
         placedPlants = new CopyOnWriteArrayList<>();
 
         attributeCalculator = new AttributeCalculator(species);
+        AttributeCalculator.setViabilityThreshold(0);
     }
 
     /*
@@ -99,4 +103,57 @@ public class AttributeCalculatorTest {
 
         assertEquals(expectedDistance, distance);
     }
-}
\ No newline at end of file
+
+    /*
+     * Test that a plant under the canopy of a placed canopy plant grows in
+     * closed conditions, and that undergrowth or distant plants do not change
+     * its attributes
+     */
+    @Test
+    public void testCalculateAttributesUnderCanopy() {
+        double vigour = 0.2;
+        double gridSpacing = 2.0;
+        int seed = 0;
+        AttributeCalculator.setViabilityThreshold(0.5);
+
+        Plant expectedOpen = new Plant("TestSpecies", new Coordinate(10, 10));
+        expectedOpen.setIsCanopy();
+        attributeCalculator.calculateAttributes(vigour, expectedOpen, placedPlants, gridSpacing, seed);
+
+        PlantIndex index = new PlantIndex(40, 40, 5);
+
+        // 3 m away, outside the footprint of 1.5 * 1.9 m
+        Plant distant = new Plant("TestSpecies", new Coordinate(11.5f, 10));
+        distant.setIsCanopy();
+        distant.setCanopyRadius(1.9);
+        index.add(distant);
+
+        // Close enough, but not a canopy plant
+        Plant undergrowth = new Plant("TestSpecies", new Coordinate(10, 10.5f));
+        undergrowth.setCanopyRadius(4);
+        index.add(undergrowth);
+
+        Plant open = new Plant("TestSpecies", new Coordinate(10, 10));
+        open.setIsCanopy();
+        attributeCalculator.calculateAttributes(vigour, open, index, gridSpacing, seed);
+        assertEquals(expectedOpen.getHeight(), open.getHeight());
+        assertEquals(expectedOpen.getCanopyRadius(), open.getCanopyRadius());
+        assertFalse(attributeCalculator.isUnderCanopy(open, index, gridSpacing));
+
+        // 2 m away, inside the footprint of 1.5 * 1.4 m
+        Plant shading = new Plant("TestSpecies", new Coordinate(10, 11));
+        shading.setIsCanopy();
+        shading.setCanopyRadius(1.4);
+        index.add(shading);
+        assertTrue(attributeCalculator.isUnderCanopy(expectedOpen, index, gridSpacing));
+
+        Plant underCanopy = new Plant("TestSpecies", new Coordinate(10, 10));
+        underCanopy.setIsCanopy();
+        attributeCalculator.calculateAttributes(vigour, underCanopy, index, gridSpacing, seed);
+
+        // Same age and height, with the closed radius multiplier
+        assertEquals(expectedOpen.getAge(), underCanopy.getAge());
+        assertEquals(expectedOpen.getHeight(), underCanopy.getHeight());
+        assertEquals(2 * expectedOpen.getCanopyRadius(), underCanopy.getCanopyRadius(), 1e-9);
+    }
+}
@@ -0,0 +1,209 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import plantgen.Coordinate;
+import plantgen.Ecosystem;
+import plantgen.PhaseScheduler;
+import plantgen.Plant;
+import plantgen.TerrainRaster;
+import plantgen.ViabilityCache;
+/*
+ * Test class for Ecosystem class
+ */
+
+public class EcosystemTest {
+    private static String[] sources = null;
+
+    /*
+     * Write an abiotic file for the D1-256 terrain, in [month][x][y] order,
+     * with values that vary smoothly over the terrain and the year
+     */
+    private static void writeAbiotic(Path path, double base, double season, double slopeX, double slopeY)
+            throws IOException {
+        StringBuilder text = new StringBuilder("256 256 0.9144\n");
+        for (int month = 0; month < 12; month++) {
+            double monthly = base + season * Math.sin(2 * Math.PI * month / 12);
+            for (int x = 0; x < 256; x++) {
+                for (int y = 0; y < 256; y++) {
+                    text.append(Math.round((monthly + slopeX * x + slopeY * y) * 1000) / 1000.0).append(' ');
+                }
+            }
+        }
+        Files.writeString(path, text);
+    }
+
+    /*
+     * Copy the D1-256 elevation and the test species data to a temporary
+     * directory, with generated abiotic data, so that the caches are written
+     * there
+     */
+    private static synchronized String[] getSources() throws IOException {
+        if (sources == null) {
+            Path dir = Files.createTempDirectory("ecosystem");
+            Path elevation = dir.resolve("D1-256.elv");
+            Files.copy(Paths.get("..", "data", "D1-256", "D1-256.elv"), elevation);
+            Path species = dir.resolve("species-data.csv");
+            Files.copy(Paths.get("src", "test", "resources", "species-data.csv"), species);
+
+            writeAbiotic(dir.resolve("sun.txt"), 8, 4, 0.01, -0.01);
+            writeAbiotic(dir.resolve("temp.txt"), 15, 8, 0.02, 0);
+            writeAbiotic(dir.resolve("wet.txt"), 28, -6, 0, 0.03);
+
+            sources = new String[] { elevation.toString(), dir.resolve("sun.txt").toString(),
+                    dir.resolve("temp.txt").toString(), dir.resolve("wet.txt").toString(), species.toString() };
+        }
+        return sources;
+    }
+
+    /*
+     * Create an ecosystem with its terrain data loaded
+     */
+    private Ecosystem createEcosystem(String[] sources, boolean precompute, boolean cache,
+            PhaseScheduler scheduler) {
+        Ecosystem es = new Ecosystem(sources, new float[] { 1000, 2000, 2, 1, 1.5f }, 42, 0.3);
+        es.setScheduler(scheduler);
+        es.setPrecomputeViability(precompute);
+        es.setCacheViability(cache);
+        es.loadTerrainData();
+
+        double[][] cohortAges = new double[256][256];
+        for (double[] row : cohortAges) {
+            Arrays.fill(row, 20);
+        }
+        es.setCohortAge(cohortAges);
+        es.createAttributeCalculators();
+        return es;
+    }
+
+    private List<String> describe(Ecosystem es) {
+        List<String> plants = new ArrayList<>();
+        for (Plant p : es.getPlacedPlants()) {
+            plants.add(p.toString());
+        }
+        return plants;
+    }
+
+    /*
+     * Test that running the generation as stages places the same plants as
+     * running the steps one after another, with and without the viability
+     * cache and the precomputed adaptation
+     */
+    @Test
+    public void testGenerateMatchesSequential() throws IOException {
+        PhaseScheduler scheduler = new PhaseScheduler(2);
+        List<String> expected = null;
+
+        for (boolean cache : new boolean[] { false, true }) {
+            for (boolean precompute : new boolean[] { false, true }) {
+                // The first run writes the viability cache
+                String[] sources = getSources();
+                Files.deleteIfExists(ViabilityCache.getCachePath(sources[0]));
+
+                Ecosystem staged = createEcosystem(sources, precompute, cache, scheduler);
+                staged.generate();
+                assertFalse(staged.getPinkNoiseStatus());
+
+                Ecosystem sequential = createEcosystem(sources, precompute, cache, scheduler);
+                sequential.generatePinkNoise();
+                sequential.deriveSlope();
+                sequential.assignPlants();
+
+                List<String> plants = describe(sequential);
+                assertFalse(plants.isEmpty());
+                assertEquals(plants, describe(staged), "cache " + cache + " precompute " + precompute);
+                if (expected == null) {
+                    expected = plants;
+                } else {
+                    assertEquals(expected, plants, "cache " + cache + " precompute " + precompute);
+                }
+            }
+        }
+
+        scheduler.shutdown();
+    }
+
+    /*
+     * Test that the phase times of a slope stage started before the
+     * generation are kept
+     */
+    @Test
+    public void testEarlySlopePhaseTimes() throws IOException {
+        PhaseScheduler scheduler = new PhaseScheduler(2);
+        Ecosystem es = createEcosystem(getSources(), false, false, scheduler);
+
+        es.deriveSlopeAsync().join();
+        es.generate();
+
+        assertTrue(scheduler.getPhaseTimes().containsKey("slope"));
+        assertTrue(scheduler.getPhaseTimes().containsKey("assign canopy colour 1"));
+        scheduler.shutdown();
+    }
+
+    /*
+     * Test that a failing stage completes the generation with its exception
+     * rather than leaving it waiting
+     */
+    @Test
+    public void testFailingStage() throws Exception {
+        PhaseScheduler scheduler = new PhaseScheduler(2);
+        Ecosystem es = createEcosystem(getSources(), false, false, scheduler);
+
+        // Every phase is now rejected
+        scheduler.shutdown();
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> es.generateAsync().get(60, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof RejectedExecutionException, e.getCause().toString());
+        assertTrue(es.getPlacedPlants().isEmpty());
+    }
+
+    /*
+     * Test that a plant created with only its species name gets the same
+     * attributes and abiotic updates as one created with its species id, and
+     * that an unknown name is rejected
+     */
+    @Test
+    public void testPlantWithoutSpeciesId() throws IOException {
+        PhaseScheduler scheduler = new PhaseScheduler(2);
+        Ecosystem byId = createEcosystem(getSources(), false, false, scheduler);
+        Ecosystem byName = createEcosystem(getSources(), false, false, scheduler);
+        String name = byName.getSpeciesData()[2].getName();
+
+        Coordinate position = new Coordinate(100.3f, 57.8f);
+        position.setViabilities(new double[] { 0.1, 0.4, 0.8, 0.2, 0.5, 0.3 });
+        Plant withId = new Plant(name, 2, position);
+        Plant withName = new Plant(name, position);
+        assertEquals(-1, withName.getSpeciesId());
+
+        byId.calculateAttributes(withId, 7);
+        byName.calculateAttributes(withName, 7);
+        assertEquals(2, withName.getSpeciesId());
+        assertEquals(withId.toString(), withName.toString());
+        assertEquals(withId.getCanopy(), withName.getCanopy());
+
+        byId.updateAbiotics(withId);
+        byName.updateAbiotics(withName);
+        TerrainRaster[] expected = { byId.getSunlight(), byId.getMoisture() };
+        TerrainRaster[] actual = { byName.getSunlight(), byName.getMoisture() };
+        for (int r = 0; r < 2; r++) {
+            for (int i = 0; i < expected[r].size(); i++) {
+                assertEquals(expected[r].get(i), actual[r].get(i));
+            }
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> byName.updateAbiotics(new Plant("No Such Species", position)));
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,159 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import plantgen.Cell;
+import plantgen.Grid;
+/*
+ * Test class for Grid class
+ */
+
+public class GridTest {
+    /*
+     * Test that the grid uses 4 colours of near equal size and that no cell
+     * shares its colour with a neighbour
+     */
+    @Test
+    public void testCellColouring() {
+        Grid grid = new Grid(101, 71);
+        grid.initialise(10, 1000, 2000, new SplittableRandom(1));
+
+        assertEquals(Arrays.asList(0, 1, 2, 3), grid.getColours());
+
+        int cells = grid.getCells().size();
+        for (int colour : grid.getColours()) {
+            List<Cell> coloured = grid.cellsByColour.get(colour);
+            assertTrue(Math.abs(coloured.size() - cells / (double) Grid.NUM_COLOURS) <= 4);
+        }
+
+        for (Cell c : grid.getCells()) {
+            for (Cell n : c.neighbours) {
+                if (n != null) {
+                    assertNotEquals(c.getColour(), n.getColour());
+                }
+            }
+        }
+        grid.verifyColouring();
+    }
+
+    /*
+     * Test that the verification rejects neighbours with the same colour
+     */
+    @Test
+    public void testVerifyColouringDetectsConflict() {
+        Grid grid = new Grid(41);
+        grid.initialise(10, 100, 200, new SplittableRandom(1));
+
+        Cell c = grid.getCell(1, 1);
+        c.setColour(c.neighbours[Cell.LEFT].getColour());
+
+        assertThrows(IllegalStateException.class, () -> grid.verifyColouring());
+    }
+
+    /*
+     * Test that each neighbour slot holds the cell in that direction, and is
+     * empty past the edge of the grid
+     */
+    @Test
+    public void testNeighbourSlots() {
+        Grid grid = new Grid(61, 41);
+        grid.initialise(10, 100, 200, new SplittableRandom(1));
+
+        int[] rowSteps = { -1, -1, -1, 0, 0, 1, 1, 1 };
+        int[] colSteps = { -1, 0, 1, -1, 1, -1, 0, 1 };
+        for (int row = 0; row < 4; row++) {
+            for (int col = 0; col < 6; col++) {
+                Cell c = grid.getCell(row, col);
+                assertArrayEquals(new int[] { row, col }, grid.getCellPosition(c));
+                for (int slot = 0; slot < Cell.NUM_NEIGHBOURS; slot++) {
+                    int r = row + rowSteps[slot];
+                    int k = col + colSteps[slot];
+                    if (r < 0 || r >= 4 || k < 0 || k >= 6) {
+                        assertNull(c.neighbours[slot]);
+                    } else {
+                        assertSame(grid.getCell(r, k), c.neighbours[slot]);
+                    }
+                }
+            }
+        }
+        assertSame(grid.getCell(1, 0), grid.getCell(1, 1).neighbours[Cell.LEFT]);
+        assertSame(grid.getCell(0, 1), grid.getCell(1, 1).neighbours[Cell.TOP]);
+    }
+
+    /*
+     * Builds the lookup table findCell used to search: every cell in the set
+     * of each integer pixel it covers, keyed by 31 * x + y
+     */
+    private Map<Double, Set<Cell>> hashCells(List<Cell> cells) {
+        Map<Double, Set<Cell>> table = new HashMap<>();
+        for (Cell cell : cells) {
+            for (int x = cell.getStartX(); x <= cell.getEndX(); x++) {
+                for (int y = cell.getStartY(); y <= cell.getEndY(); y++) {
+                    table.computeIfAbsent(31.0 * x + y, k -> new HashSet<>()).add(cell);
+                }
+            }
+        }
+        return table;
+    }
+
+    /*
+     * Test that findCell agrees with the hash table lookup it replaced on
+     * random grids: every pixel the table found a cell for gets one of the
+     * cells the table could return, the first in row and column order, and
+     * pixels outside the grid get none
+     */
+    @Test
+    public void testFindCellMatchesHashLookup() {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int t = 0; t < 50; t++) {
+            int width = random.nextInt(2, 120);
+            int height = random.nextInt(2, 120);
+            double d = random.nextDouble(1, Math.min(width, height));
+            Grid grid = new Grid(width, height);
+            List<Cell> cells = grid.divideGrid(d);
+            Map<Double, Set<Cell>> table = hashCells(cells);
+
+            for (int x = -2; x <= width + 1; x++) {
+                for (int y = -2; y <= height + 1; y++) {
+                    List<Cell> expected = new ArrayList<>();
+                    for (Cell c : table.getOrDefault(31.0 * x + y, new HashSet<>())) {
+                        if (c.contains(x, y)) {
+                            expected.add(c);
+                        }
+                    }
+
+                    Cell found = grid.findCell(x, y);
+                    if (expected.isEmpty()) {
+                        assertNull(found);
+                        continue;
+                    }
+
+                    assertTrue(expected.contains(found));
+                    for (Cell c : expected) {
+                        assertTrue(found.getIndex() <= c.getIndex());
+                    }
+                }
+            }
+
+            // Coordinates between pixels, which the table could not find
+            for (int i = 0; i < 200; i++) {
+                double x = random.nextDouble(-1, width);
+                double y = random.nextDouble(-1, height);
+                Cell found = grid.findCell(x, y);
+                if (cells.isEmpty() || x < 0 || y < 0 || x > width - 1 || y > height - 1) {
+                    assertNull(found);
+                } else {
+                    assertTrue(found.contains(x, y));
+                }
+            }
+        }
+    }
+}
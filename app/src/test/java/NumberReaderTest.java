@@ -0,0 +1,54 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import plantgen.NumberReader;
+/*
+ * Test class for NumberReader class
+ */
+
+public class NumberReaderTest {
+    /*
+     * Test that the header and values are parsed to exactly the same values as
+     * Double.parseDouble and Float.parseFloat
+     */
+    @Test
+    public void testParseMatchesJdk() throws IOException {
+        String header = "3 3 0.9144 38.5\n";
+        String[] values = { "446.505", "-9.4683", "0", "1e-05", "2.5E3", "12345678901234567890.5", "0.30000000000000004",
+                "76.297", "8.52742" };
+
+        NumberReader reader = new NumberReader(new ByteArrayInputStream(
+                (header + String.join(" ", values) + " \n").getBytes(StandardCharsets.US_ASCII)));
+
+        assertEquals(3, reader.nextInt());
+        assertEquals(3, reader.nextInt());
+        assertEquals(Float.parseFloat("0.9144"), reader.nextFloat());
+        assertEquals(Float.parseFloat("38.5"), reader.nextFloat());
+        reader.skipLine();
+
+        for (String value : values) {
+            assertEquals(Double.parseDouble(value), reader.nextDouble());
+        }
+
+        reader.close();
+    }
+
+    /*
+     * Test that skipLine ignores the rest of a header line
+     */
+    @Test
+    public void testSkipLine() throws IOException {
+        NumberReader reader = new NumberReader(
+                new ByteArrayInputStream("256 256 0.9144\n9.4683 10.4425\n".getBytes(StandardCharsets.US_ASCII)));
+
+        reader.skipLine();
+        assertEquals(9.4683, reader.nextDouble());
+        assertEquals(10.4425, reader.nextDouble());
+
+        reader.close();
+    }
+}
@@ -0,0 +1,164 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.SplittableRandom;
+
+import plantgen.Cell;
+import plantgen.Grid;
+import plantgen.OccupancyGrid;
+import plantgen.PointStore;
+/*
+ * Test class for OccupancyGrid class
+ */
+
+public class OccupancyGridTest {
+    /*
+     * Brute force check that no point is closer than the distance
+     */
+    private static boolean isClear(float[] xs, float[] ys, int count, float x, float y, double distance) {
+        for (int i = 0; i < count; i++) {
+            double dx = xs[i] - x;
+            double dy = ys[i] - y;
+            if (dx * dx + dy * dy < distance * distance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Brute force check over a range of the point store
+     */
+    private static boolean isClear(PointStore points, int start, int count, float x, float y, double distance) {
+        for (int i = start; i < start + count; i++) {
+            double dx = points.getX(i) - x;
+            double dy = points.getY(i) - y;
+            if (dx * dx + dy * dy < distance * distance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Test that points and queries lying on bucket boundaries, with distances
+     * of a whole number of buckets, agree with a brute force check
+     */
+    @Test
+    public void testBucketBoundaries() {
+        SplittableRandom random = new SplittableRandom(3);
+        double bucketSize = 2.5;
+        OccupancyGrid grid = new OccupancyGrid(10, 20, 40, 45, bucketSize);
+
+        float[] xs = new float[300];
+        float[] ys = new float[300];
+        int count = 0;
+        for (int i = 0; i < 300; i++) {
+            // Half the points sit exactly on a bucket corner
+            float x = i % 2 == 0 ? (float) (10 + bucketSize * random.nextInt(13)) : (float) random.nextDouble(10, 40);
+            float y = i % 2 == 0 ? (float) (20 + bucketSize * random.nextInt(11)) : (float) random.nextDouble(20, 45);
+            assertTrue(grid.add(x, y));
+            xs[count] = x;
+            ys[count] = y;
+            count++;
+        }
+        assertEquals(count, grid.size());
+
+        for (int q = 0; q < 2000; q++) {
+            float x = (float) (10 + bucketSize * random.nextInt(-2, 15));
+            float y = (float) (20 + bucketSize * random.nextInt(-2, 13));
+            double distance = bucketSize * random.nextInt(0, 3);
+            assertEquals(isClear(xs, ys, count, x, y, distance), grid.isClear(x, y, distance),
+                    "query (" + x + ", " + y + ") distance " + distance);
+        }
+
+        // A point exactly the distance away is clear, any closer is not
+        OccupancyGrid single = new OccupancyGrid(0, 0, 10, 10, bucketSize);
+        single.add(5, 5);
+        assertTrue(single.isClear(7.5f, 5, 2.5));
+        assertFalse(single.isClear(7.4f, 5, 2.5));
+        assertTrue(single.isClear(5, 0, 5));
+        assertFalse(single.isClear(5, 0.1f, 5));
+    }
+
+    /*
+     * Test that points outside the bounds are not added, and that queries
+     * whose scan window lies partly or wholly outside the bounds still see the
+     * points inside
+     */
+    @Test
+    public void testOutsideBounds() {
+        OccupancyGrid grid = new OccupancyGrid(0, 0, 10, 10, 2);
+        assertFalse(grid.add(-0.5f, 5));
+        assertFalse(grid.add(5, 12.5f));
+        assertTrue(grid.add(0, 0));
+        assertTrue(grid.add(10, 10));
+        assertEquals(2, grid.size());
+
+        assertFalse(grid.isClear(-1, -1, 1.5));
+        assertTrue(grid.isClear(-1, -1, 1.4));
+        assertFalse(grid.isClear(11, 11, 1.5));
+        assertTrue(grid.isClear(-50, 50, 10));
+        assertTrue(grid.isClear(100, 100, 50));
+        assertFalse(grid.isClear(100, 100, 130));
+    }
+
+    /*
+     * Test the canopy and undergrowth checks of every cell against a brute
+     * force check of its coordinates, for queries in the cell, in its
+     * neighbours, and outside the grid
+     */
+    @Test
+    public void testCellChecks() {
+        SplittableRandom random = new SplittableRandom(5);
+        Grid grid = new Grid(64);
+        grid.initialise(20, 800, 1600, random);
+        PointStore points = grid.getPoints();
+
+        // Some points before the occupancy grids are built and some after
+        for (Cell c : grid.getCells()) {
+            for (int i = 0; i < c.getNumCPoints() / 2; i++) {
+                c.addCanopyCoord((float) random.nextDouble(c.getStartX(), c.getEndX()),
+                        (float) random.nextDouble(c.getStartY(), c.getEndY()));
+            }
+        }
+        for (Cell c : grid.getCells()) {
+            c.initialiseOccupancy(3, 1.5);
+        }
+        Cell corner = grid.getCells().get(0);
+        Cell right = corner.neighbours[Cell.RIGHT];
+        right.addCanopyCoord(right.getStartX(), right.getStartY());
+        for (Cell c : grid.getCells()) {
+            while (c.getCanopyCount() < c.getNumCPoints()) {
+                c.addCanopyCoord((float) random.nextDouble(c.getStartX(), c.getEndX()),
+                        (float) random.nextDouble(c.getStartY(), c.getEndY()));
+            }
+            while (c.getUndergrowthCount() < c.getNumUPoints()) {
+                c.addUndergrowthCoord((float) random.nextDouble(c.getStartX(), c.getEndX()),
+                        (float) random.nextDouble(c.getStartY(), c.getEndY()));
+            }
+        }
+
+        for (int q = 0; q < 500; q++) {
+            float x = (float) random.nextDouble(-8, 72);
+            float y = (float) random.nextDouble(-8, 72);
+            double canopyDistance = random.nextDouble(0, 6);
+            double undergrowthDistance = random.nextDouble(0, 3);
+
+            for (Cell c : grid.getCells()) {
+                assertEquals(isClear(points, c.getCanopyStart(), c.getCanopyCount(), x, y, canopyDistance),
+                        c.isCanopyClear(x, y, canopyDistance));
+                assertEquals(isClear(points, c.getUndergrowthStart(), c.getUndergrowthCount(), x, y,
+                        undergrowthDistance), c.isUndergrowthClear(x, y, undergrowthDistance));
+            }
+        }
+
+        // A query from the corner cell's side of its right neighbour, and one
+        // past the edge of the grid, next to a point on the neighbour's corner
+        assertNull(corner.neighbours[Cell.LEFT]);
+        assertFalse(right.isCanopyClear(right.getStartX() - 1, right.getStartY(), 1.5));
+        assertTrue(right.isCanopyClear(right.getStartX() - 2, right.getStartY(), 1.5));
+        assertFalse(right.isCanopyClear(right.getStartX(), right.getStartY() - 1, 1.5));
+        assertTrue(right.isCanopyClear(right.getStartX(), right.getStartY() - 2, 1.5));
+    }
+}
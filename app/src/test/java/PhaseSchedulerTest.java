@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import plantgen.PhaseScheduler;
+/*
+ * Test class for PhaseScheduler class
+ */
+
+public class PhaseSchedulerTest {
+    /*
+     * Test that every task of a phase has run when runPhase returns and that
+     * the phase time is recorded
+     */
+    @Test
+    public void testRunPhase() {
+        PhaseScheduler scheduler = new PhaseScheduler(4);
+        AtomicInteger count = new AtomicInteger();
+
+        for (int phase = 0; phase < 3; phase++) {
+            List<Runnable> tasks = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                tasks.add(count::incrementAndGet);
+            }
+
+            scheduler.runPhase("phase " + phase, tasks);
+            assertEquals((phase + 1) * 1000, count.get());
+        }
+
+        assertEquals(3, scheduler.getPhaseTimes().size());
+        assertTrue(scheduler.getPhaseTimes().containsKey("phase 2"));
+
+        scheduler.shutdown();
+    }
+
+    /*
+     * Test that a phase that does not finish in time returns false
+     */
+    @Test
+    public void testTimeout() {
+        PhaseScheduler scheduler = new PhaseScheduler(1);
+        AtomicBoolean stop = new AtomicBoolean();
+
+        List<Runnable> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            while (!stop.get()) {
+                Thread.onSpinWait();
+            }
+        });
+
+        assertFalse(scheduler.runPhase("spin", tasks, 50, TimeUnit.MILLISECONDS));
+        stop.set(true);
+
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,87 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import plantgen.Coordinate;
+import plantgen.PhaseScheduler;
+import plantgen.Plant;
+import plantgen.PlantIndex;
+/*
+ * Test class for PlantIndex class
+ */
+
+public class PlantIndexTest {
+    /*
+     * Test that radius queries find the same plants as a scan of every plant,
+     * including queries larger than a bucket and near the terrain edges
+     */
+    @Test
+    public void testFindWithinMatchesScan() {
+        SplittableRandom random = new SplittableRandom(1);
+        PlantIndex index = new PlantIndex(100, 80, 3.5);
+        List<Plant> all = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Plant p = new Plant("p" + i, new Coordinate((float) random.nextDouble(100), (float) random.nextDouble(80)));
+            index.add(p);
+            all.add(p);
+        }
+        assertEquals(2000, index.size());
+
+        for (int q = 0; q < 500; q++) {
+            float x = (float) random.nextDouble(-5, 105);
+            float y = (float) random.nextDouble(-5, 85);
+            double distance = random.nextDouble(0, 10);
+
+            Set<Plant> expected = new HashSet<>();
+            for (Plant p : all) {
+                double dx = p.getPosition().getX() - x;
+                double dy = p.getPosition().getY() - y;
+                if (dx * dx + dy * dy < distance * distance) {
+                    expected.add(p);
+                }
+            }
+
+            List<Plant> found = new ArrayList<>();
+            assertEquals(expected.size(), index.findWithin(x, y, distance, found));
+            assertEquals(expected, new HashSet<>(found));
+        }
+    }
+
+    /*
+     * Test that plants added from parallel tasks are all found
+     */
+    @Test
+    public void testParallelAdd() {
+        PlantIndex index = new PlantIndex(64, 64, 2);
+        PhaseScheduler scheduler = new PhaseScheduler(4);
+
+        List<Runnable> tasks = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            int task = t;
+            tasks.add(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    index.add(new Plant("task" + task, new Coordinate(i % 4, task % 4)));
+                }
+            });
+        }
+        scheduler.runPhase("fill", tasks);
+        scheduler.shutdown();
+
+        assertEquals(16000, index.size());
+        List<Plant> found = new ArrayList<>();
+        assertEquals(16000, index.findWithin(2, 2, 10, found));
+    }
+
+    /*
+     * Test that the bucket size must be positive
+     */
+    @Test
+    public void testInvalidBucketSize() {
+        assertThrows(IllegalArgumentException.class, () -> new PlantIndex(10, 10, 0));
+    }
+}
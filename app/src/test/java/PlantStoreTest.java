@@ -0,0 +1,71 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import plantgen.Coordinate;
+import plantgen.PhaseScheduler;
+import plantgen.Plant;
+import plantgen.PlantStore;
+/*
+ * Test class for PlantStore class
+ */
+
+public class PlantStoreTest {
+    /*
+     * Test that plants added to segments only appear once merged, in the
+     * order the segments were created
+     */
+    @Test
+    public void testMergeOrder() {
+        PlantStore store = new PlantStore();
+        store.add(new Plant("first", new Coordinate(0, 0)));
+
+        List<Plant> a = store.newSegment();
+        List<Plant> b = store.newSegment();
+        b.add(new Plant("b1", new Coordinate(1, 1)));
+        a.add(new Plant("a1", new Coordinate(2, 2)));
+        b.add(new Plant("b2", new Coordinate(3, 3)));
+
+        assertEquals(1, store.size());
+
+        store.merge();
+
+        assertEquals(4, store.size());
+        assertEquals("first", store.get(0).getSpecies());
+        assertEquals("a1", store.get(1).getSpecies());
+        assertEquals("b1", store.get(2).getSpecies());
+        assertEquals("b2", store.get(3).getSpecies());
+    }
+
+    /*
+     * Test that segments filled by parallel tasks are merged without losing
+     * plants and in a fixed order
+     */
+    @Test
+    public void testParallelSegments() {
+        PlantStore store = new PlantStore();
+        PhaseScheduler scheduler = new PhaseScheduler(4);
+
+        List<Runnable> tasks = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            String species = "task" + t;
+            List<Plant> segment = store.newSegment();
+            tasks.add(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    segment.add(new Plant(species, new Coordinate(i, i)));
+                }
+            });
+        }
+        scheduler.runPhase("fill", tasks);
+        scheduler.shutdown();
+        store.merge();
+
+        assertEquals(16000, store.size());
+        for (int t = 0; t < 16; t++) {
+            assertEquals("task" + t, store.get(t * 1000).getSpecies());
+            assertEquals("task" + t, store.get(t * 1000 + 999).getSpecies());
+        }
+    }
+}
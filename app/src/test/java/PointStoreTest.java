@@ -0,0 +1,69 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+import plantgen.Cell;
+import plantgen.Coordinate;
+import plantgen.Grid;
+import plantgen.PointStore;
+/*
+ * Test class for PointStore class
+ */
+
+public class PointStoreTest {
+    /*
+     * Test that each cell fills its own canopy and undergrowth ranges, and that
+     * unused slots stay empty
+     */
+    @Test
+    public void testCellRanges() {
+        Grid grid = new Grid(64);
+        grid.initialise(20, 30, 60, new SplittableRandom(1));
+        PointStore points = grid.getPoints();
+
+        Cell first = grid.getCells().get(0);
+        Cell second = grid.getCells().get(1);
+        assertEquals(first.getNumCPoints() + first.getNumUPoints() + second.getNumCPoints()
+                + second.getNumUPoints(), second.getUndergrowthStart() + second.getNumUPoints());
+
+        first.addCanopyCoord(1, 2);
+        first.addUndergrowthCoord(3, 4);
+        second.addCanopyCoord(25, 5);
+
+        assertEquals(1, first.getCanopyCount());
+        assertEquals(1, first.getUndergrowthCount());
+        assertEquals(1, second.getCanopyCount());
+        assertEquals(0, second.getUndergrowthCount());
+
+        int u = first.getUndergrowthStart();
+        assertEquals(3f, points.getX(u));
+        assertEquals(4f, points.getY(u));
+        assertEquals(PointStore.UNDERGROWTH, points.getLayer(u));
+        assertEquals(PointStore.CANOPY, points.getLayer(first.getCanopyStart()));
+        assertEquals(PointStore.EMPTY, points.getLayer(first.getCanopyStart() + 1));
+
+        ArrayList<Coordinate> canopy = points.toCoordinates(PointStore.CANOPY);
+        assertEquals(2, canopy.size());
+        assertEquals(1f, canopy.get(0).getX());
+        assertEquals(25f, canopy.get(1).getX());
+        assertEquals(1, points.count(PointStore.UNDERGROWTH));
+    }
+
+    /*
+     * Test that a cell cannot hold more points than its quota
+     */
+    @Test
+    public void testQuotaExceeded() {
+        Grid grid = new Grid(32);
+        grid.divideGrid(10);
+        Cell cell = grid.getCells().get(0);
+        cell.setNumCPoints(1);
+        grid.createPointStore();
+
+        cell.addCanopyCoord(1, 1);
+        assertThrows(IllegalStateException.class, () -> cell.addCanopyCoord(2, 2));
+        assertThrows(IllegalStateException.class, () -> cell.addUndergrowthCoord(2, 2));
+    }
+}
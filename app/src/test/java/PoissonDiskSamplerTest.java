@@ -0,0 +1,89 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+import plantgen.Cell;
+import plantgen.Coordinate;
+import plantgen.Grid;
+import plantgen.PoissonDiskSampler;
+import plantgen.Terrain;
+/*
+ * Test class for PoissonDiskSampler class
+ */
+
+public class PoissonDiskSamplerTest {
+    private float gridSpacing = 0.9144f;
+
+    /*
+     * Creates a sampler over a 128 x 128 grid with the same distances as the
+     * Sampler test instance
+     */
+    private PoissonDiskSampler createSampler(Grid grid, int seed) {
+        Terrain terrain = new Terrain();
+        terrain.setGridSpacing(gridSpacing);
+
+        float[] samplerArgs = { 1000, 2000, 2, 1, 1.5f };
+        return new PoissonDiskSampler(terrain, grid, samplerArgs, new SplittableRandom(seed));
+    }
+
+    private double distance(Coordinate a, Coordinate b) {
+        return Math.sqrt(Math.pow(a.getX() - b.getX(), 2) + Math.pow(a.getY() - b.getY(), 2)) * gridSpacing;
+    }
+
+    /*
+     * Test that every cell reaches its quota and that the minimum distances hold
+     * across the whole grid
+     */
+    @Test
+    public void testGeneratePinkNoise() {
+        Grid grid = new Grid(128);
+        grid.initialise(10, 1000, 2000, new SplittableRandom(1));
+
+        PoissonDiskSampler s = createSampler(grid, 1);
+        s.generatePinkNoise();
+
+        for (Cell c : grid.getCells()) {
+            assertEquals(c.getNumCPoints(), c.getCanopyCount());
+            assertEquals(c.getNumUPoints(), c.getUndergrowthCount());
+        }
+
+        ArrayList<Coordinate> cPoints = s.getCanopyCoords();
+        ArrayList<Coordinate> uPoints = s.getUndergrowthCoords();
+
+        for (int i = 0; i < cPoints.size(); i++) {
+            for (int j = i + 1; j < cPoints.size(); j++) {
+                assertTrue(distance(cPoints.get(i), cPoints.get(j)) > 2);
+            }
+            for (Coordinate u : uPoints) {
+                assertTrue(distance(cPoints.get(i), u) > 1.5);
+            }
+        }
+
+        for (int i = 0; i < uPoints.size(); i++) {
+            for (int j = i + 1; j < uPoints.size(); j++) {
+                assertTrue(distance(uPoints.get(i), uPoints.get(j)) > 1);
+            }
+        }
+    }
+
+    /*
+     * Test that a request beyond the packing limit terminates with a saturated
+     * cell instead of looping forever
+     */
+    @Test
+    public void testSaturatedCell() {
+        Grid grid = new Grid(32);
+        grid.initialise(10, 100000, 0, new SplittableRandom(1));
+
+        PoissonDiskSampler s = createSampler(grid, 2);
+        s.generatePinkNoise();
+
+        for (Cell c : grid.getCells()) {
+            assertTrue(c.getCanopyCount() > 0);
+            assertTrue(c.getCanopyCount() < c.getNumCPoints());
+        }
+    }
+}
@@ -3,52 +3,59 @@ import org.junit.jupiter.api.Test;
 import plantgen.Coordinate;
 import plantgen.Plant;
 import plantgen.RouletteWheel;
+import plantgen.Species;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
-import java.util.ArrayList;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 /*
  * Test class for RouletteWheel class 
  */
 
 public class RouletteWheelTest {
+    /*
+     * Create a wheel for the species of the test species data
+     */
+    private RouletteWheel createWheel() {
+        Species.initialiseSpeciesData(Paths.get("src", "test", "resources", "species-data.csv").toString());
+        return new RouletteWheel(Species.getAllSpecies());
+    }
+
     /*
      * Test the getValidViabilities method of the RouletteWheel class
      */
 
     @Test
     public void testGetValidViabilities() {
-        ArrayList<String> validSpecies = new ArrayList<>();
-        ArrayList<Double> validViabilities = new ArrayList<>();
-
-        ArrayList<Double> viabilities = new ArrayList<>();
-        viabilities.add(-0.1); // Boxwood
-        viabilities.add(-0.3); // Snowy Mespilus
-        viabilities.add(0.2); // Mountain Pine
-        viabilities.add(0.05); // Silve Fir
-        viabilities.add(-0.02); // Silver Birch
-        viabilities.add(0.0); // Sessile Oak
-        viabilities.add(0.18); // European Beech
-
-        // Initialise expected results
-        ArrayList<String> expectedSpecies = new ArrayList<>();
-        expectedSpecies.add("Mountain Pine");
-        expectedSpecies.add("Silve Fir");
-        expectedSpecies.add("European Beech");
-
-        ArrayList<Double> expectedViabilities = new ArrayList<>();
-        expectedViabilities.add(0.2);
-        expectedViabilities.add(0.05);
-        expectedViabilities.add(0.18);
+        double[] viabilities = {
+                -0.1, // Boxwood
+                -0.3, // Snowy Mespilus
+                0.2, // Mountain Pine
+                0.05, // Silve Fir
+                -0.02, // Silver Birch
+                0.0, // Sessile Oak
+                0.18 // European Beech
+        };
+
+        int[] validSpecies = new int[viabilities.length];
+        double[] validViabilities = new double[viabilities.length];
+
+        // Initialise expected results (Mountain Pine, Silve Fir, European Beech)
+        int[] expectedSpecies = { 2, 3, 6 };
+        double[] expectedViabilities = { 0.2, 0.05, 0.18 };
 
         // Method call
-        RouletteWheel wheel = new RouletteWheel();
-        wheel.getValidViabilites(viabilities, validSpecies, validViabilities);
+        RouletteWheel wheel = createWheel();
+        int numValid = wheel.getValidViabilites(viabilities, validSpecies, validViabilities);
 
         // Comparison
-        assertEquals(expectedSpecies, validSpecies);
-        assertEquals(expectedViabilities, validViabilities);
+        assertEquals(3, numValid);
+        assertArrayEquals(expectedSpecies, Arrays.copyOf(validSpecies, numValid));
+        assertArrayEquals(expectedViabilities, Arrays.copyOf(validViabilities, numValid));
     }
     /*
      * Test the getCumulativeViability method of the RouletteWheel class
@@ -57,18 +64,15 @@ public class RouletteWheelTest {
     @Test
     public void testGetCumulativeViability() {
         // Initialise parameters
-        ArrayList<Double> validViabilities = new ArrayList<>();
-        validViabilities.add(0.2);
-        validViabilities.add(0.05);
-        validViabilities.add(0.18);
+        double[] validViabilities = { 0.2, 0.05, 0.18 };
 
-        double[] cumulativeViability = new double[validViabilities.size() + 1];
+        double[] cumulativeViability = new double[validViabilities.length + 1];
 
         // Initialise expected results
         double[] expectedCumulativeViability = { 0, 0.2, 0.25, 0.43 };
 
         // Method call
-        RouletteWheel wheel = new RouletteWheel();
+        RouletteWheel wheel = createWheel();
         wheel.getCumulativeViability(validViabilities, cumulativeViability);
 
         // Comparison
@@ -81,14 +85,15 @@ public class RouletteWheelTest {
     @Test
     public void testSpinWheel() {
         // Initialise parameters
-        ArrayList<Double> viabilities = new ArrayList<>();
-        viabilities.add(-0.1); // Boxwood
-        viabilities.add(-0.3); // Snowy Mespilus
-        viabilities.add(0.2); // Mountain Pine
-        viabilities.add(0.05); // Silve Fir
-        viabilities.add(-0.02); // Silver Birch
-        viabilities.add(0.0); // Sessile Oak
-        viabilities.add(0.18); // European Beech
+        double[] viabilities = {
+                -0.1, // Boxwood
+                -0.3, // Snowy Mespilus
+                0.2, // Mountain Pine
+                0.05, // Silve Fir
+                -0.02, // Silver Birch
+                0.0, // Sessile Oak
+                0.18 // European Beech
+        };
 
         Coordinate c = new Coordinate(0, 0);
         c.setViabilities(viabilities);
@@ -99,7 +104,7 @@ public class RouletteWheelTest {
         String europeanBeech = "European Beech";
 
         // Method Call
-        RouletteWheel wheel = new RouletteWheel();
+        RouletteWheel wheel = createWheel();
 
         double r1 = 0.1d; // For species selection, between 0 and max cumulative viability
         double r2 = 0d; // For if a plant is placed, between 0 and 1
@@ -120,4 +125,88 @@ public class RouletteWheelTest {
         plant = wheel.testSpinWheel(c, r1, r2);
         assertEquals(null, plant);
     }
+
+    /*
+     * Reference spin, drawing from a SplittableRandom and walking the
+     * cumulative viabilities
+     */
+    private int referenceSpin(double[] viabilities, int seed) {
+        SplittableRandom r = new SplittableRandom(seed);
+        double total = 0;
+        for (double v : viabilities) {
+            if (v > 0)
+                total += v;
+        }
+        if (total == 0)
+            return -1;
+
+        double randomNum = r.nextDouble(0, total);
+        double cumulative = 0;
+        for (int i = 0; i < viabilities.length; i++) {
+            if (viabilities[i] > 0) {
+                double previous = cumulative;
+                cumulative += viabilities[i];
+                if (randomNum < cumulative) {
+                    return r.nextDouble(0, 1) < cumulative - previous ? i : -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * Compare the spin with the reference over random viability vectors
+     */
+    private void assertMatchesReference(int numSpecies, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        RouletteWheel wheel = createWheel();
+        double[] viabilities = new double[numSpecies];
+        int placed = 0;
+        for (int i = 0; i < 20000; i++) {
+            for (int j = 0; j < numSpecies; j++) {
+                viabilities[j] = random.nextDouble(-0.5, 1);
+            }
+            int spinSeed = random.nextInt();
+
+            int expected = referenceSpin(viabilities, spinSeed);
+            assertEquals(expected, wheel.spin(viabilities, spinSeed));
+            if (expected >= 0) {
+                placed++;
+            }
+        }
+
+        // Make sure that the comparison covers placements
+        assertTrue(placed > 1000);
+    }
+
+    /*
+     * Test that the spin selects the same species as the reference for the
+     * walked species sets
+     */
+    @Test
+    public void testSpinMatchesReference() {
+        assertMatchesReference(1, 1);
+        assertMatchesReference(7, 2);
+        assertMatchesReference(32, 3);
+    }
+
+    /*
+     * Test that the spin selects the same species as the reference for the
+     * searched species sets
+     */
+    @Test
+    public void testSpinSearchMatchesReference() {
+        assertMatchesReference(33, 4);
+        assertMatchesReference(500, 5);
+    }
+
+    /*
+     * Test that nothing is selected without a positive viability
+     */
+    @Test
+    public void testSpinNoValidSpecies() {
+        RouletteWheel wheel = createWheel();
+        assertEquals(-1, wheel.spin(new double[] { -0.2, 0, -0.1 }, 7));
+        assertEquals(-1, wheel.spin(new double[40], 7));
+    }
 }
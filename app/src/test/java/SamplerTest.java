@@ -1,10 +1,16 @@
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
+import java.util.SplittableRandom;
 
+import plantgen.Cell;
 import plantgen.Coordinate;
+import plantgen.Grid;
 import plantgen.Sampler;
+import plantgen.Terrain;
 /*
  * Test class for Sampler class 
  */
@@ -52,4 +58,30 @@ public class SamplerTest {
             }
         }
     }
+
+    /*
+     * Test that a quota that cannot fit stops at the rejection limit and is
+     * reported as a shortfall instead of failing the run
+     */
+    @Test
+    public void testSaturatedCells() {
+        Terrain terrain = new Terrain();
+        terrain.setGridSpacing(0.9144f);
+
+        Grid grid = new Grid(32);
+        grid.initialise(10, 100000, 0, new SplittableRandom(1));
+
+        Sampler s = new Sampler(terrain, grid, new float[] { 100000, 0, 2, 1, 1.5f }, new SplittableRandom(1));
+        s.setMaxRejections(1000);
+        s.generatePinkNoise();
+
+        assertFalse(s.getNotgeneratePinkNoise());
+        assertEquals(grid.getCells().size(), s.getSaturatedCells().size());
+        assertEquals(100000 - s.getCanopyCoords().size(), s.getShortfall());
+
+        for (Cell c : grid.getCells()) {
+            assertTrue(c.getCanopyCount() > 0);
+            assertEquals(c.getNumCPoints() - c.getCanopyCount(), c.getCanopyShortfall());
+        }
+    }
 }
@@ -1,7 +1,15 @@
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+import plantgen.ElevationMap;
+import plantgen.PhaseScheduler;
+import plantgen.Precision;
 import plantgen.SlopeCalculator;
+import plantgen.TerrainRaster;
 /*
  * Test class for SlopeCalculator class 
  */
@@ -24,4 +32,67 @@ public class SlopeCalculatorTest {
 
         assertEquals(expSlope, actSlope[1][1], 0.0000001);
     }
-}
\ No newline at end of file
+
+    /*
+     * Test that the parallel slope is identical to the original calculation,
+     * on the elevation fixture and on a random terrain over several strips
+     */
+    @Test
+    public void testParallelSlopeMatches() {
+        ElevationMap elvMap = new ElevationMap();
+        Path resourcePath = Paths.get("src", "test", "resources", "dummyElv.txt");
+        elvMap.readData(resourcePath.toString());
+
+        SplittableRandom random = new SplittableRandom(1);
+        double[][] randomElv = new double[97][61];
+        for (int x = 0; x < 97; x++) {
+            for (int y = 0; y < 61; y++) {
+                randomElv[x][y] = random.nextDouble(400, 1200);
+            }
+        }
+
+        PhaseScheduler scheduler = new PhaseScheduler(4);
+        SlopeCalculator[] calculators = {
+                new SlopeCalculator(elvMap.getData(), elvMap.getGridSpacing(), 3, 3),
+                new SlopeCalculator(randomElv, 0.9144, 97, 61) };
+        for (SlopeCalculator slopeCalc : calculators) {
+            double[][] expected = slopeCalc.deriveSlope();
+            TerrainRaster actual = slopeCalc.deriveSlope(Precision.DOUBLE, scheduler);
+            for (int x = 0; x < expected.length; x++) {
+                for (int y = 0; y < expected[x].length; y++) {
+                    assertEquals(expected[x][y], actual.get(x, y, 0));
+                }
+            }
+        }
+        scheduler.shutdown();
+    }
+
+    /*
+     * Test that the border is filled from one-sided differences, which give
+     * the slope of a plane everywhere
+     */
+    @Test
+    public void testFillBorder() {
+        double gridSpacing = 2.0;
+        double[][] elvData = new double[6][5];
+        for (int x = 0; x < 6; x++) {
+            for (int y = 0; y < 5; y++) {
+                elvData[x][y] = 3.0 * x * gridSpacing + 4.0 * y * gridSpacing;
+            }
+        }
+        double expSlope = Math.toDegrees(Math.atan(5.0));
+
+        SlopeCalculator slopeCalc = new SlopeCalculator(elvData, gridSpacing, 6, 5);
+        TerrainRaster unfilled = slopeCalc.deriveSlope(Precision.DOUBLE);
+        assertEquals(0.0, unfilled.get(0, 2, 0));
+        assertEquals(expSlope, unfilled.get(2, 2, 0), 1e-9);
+
+        slopeCalc.setFillBorder(true);
+        TerrainRaster filled = slopeCalc.deriveSlope(Precision.DOUBLE);
+        for (int x = 0; x < 6; x++) {
+            for (int y = 0; y < 5; y++) {
+                assertEquals(expSlope, filled.get(x, y, 0), 1e-9);
+            }
+        }
+    }
+}
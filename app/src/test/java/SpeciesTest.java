@@ -0,0 +1,97 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import plantgen.Plant;
+import plantgen.RouletteWheel;
+import plantgen.Species;
+/*
+ * Test class for Species class
+ */
+
+public class SpeciesTest {
+    /*
+     * Test that every species of the test data is loaded, in file order
+     */
+    @Test
+    public void testGetAllSpecies() {
+        Path resourcePath = Paths.get("src", "test", "resources", "species-data.csv");
+        Species.initialiseSpeciesData(resourcePath.toString());
+        Species[] species = Species.getAllSpecies();
+
+        String[] expected = { "Boxwood", "Snowy Mespilus", "Mountain Pine", "Silve Fir", "Silver Birch",
+                "Sessile Oak", "European Beech" };
+        assertEquals(expected.length, species.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], species[i].getName());
+        }
+        assertEquals(550, species[3].getLifespan());
+    }
+
+    /*
+     * Test that a catalogue of any size is read, and that the roulette wheel
+     * names follow it
+     */
+    @Test
+    public void testLargeCatalogue() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("common name,scientific name,type,form,lifespan (t_m),max height (h_m) open,"
+                + "max height (h_m) closed,q,radius multiplier open,radius multiplier closed,"
+                + "leaf transparency (alpha),moisture absorption,sun c,sun r,moisture c,moisture r,"
+                + "temp c,temp r,slope c,slope r");
+        for (int i = 0; i < 300; i++) {
+            lines.add("Species " + i + ",Genus species,Deciduous,Tree," + (100 + i)
+                    + ",18,25,-4,0.2,0.1,0.30,15,8.25,3.75,27.5,12.5,19.25,15.75,0,70");
+        }
+        Path csv = Files.createTempFile("species", ".csv");
+        Files.write(csv, lines);
+
+        Species.initialiseSpeciesData(csv.toString());
+        Species[] species = Species.getAllSpecies();
+        assertEquals(300, species.length);
+        for (int i = 0; i < species.length; i++) {
+            assertEquals("Species " + i, species[i].getName());
+            assertEquals(100 + i, species[i].getLifespan());
+        }
+
+        RouletteWheel wheel = new RouletteWheel(species);
+        double[] viabilities = new double[species.length];
+        viabilities[257] = 1;
+        Plant plant = wheel.spinWheel(0, 0, viabilities, 0);
+        assertEquals("Species 257", plant.getSpecies());
+        assertEquals(257, plant.getSpeciesId());
+    }
+
+    /*
+     * Test that a species missing from the data is reported
+     */
+    @Test
+    public void testUnknownSpecies() {
+        Path resourcePath = Paths.get("src", "test", "resources", "species-data.csv");
+        Species.initialiseSpeciesData(resourcePath.toString());
+        assertThrows(IllegalArgumentException.class, () -> new Species("Norway Spruce"));
+    }
+
+    /*
+     * Test that a repeated species name is rejected, naming its row
+     */
+    @Test
+    public void testDuplicateSpecies() throws IOException {
+        Path resourcePath = Paths.get("src", "test", "resources", "species-data.csv");
+        List<String> lines = new ArrayList<>(Files.readAllLines(resourcePath));
+        lines.add(lines.get(2));
+        Path csv = Files.createTempFile("species", ".csv");
+        Files.write(csv, lines);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> Species.initialiseSpeciesData(csv.toString()));
+        assertTrue(e.getMessage().contains("row " + lines.size()));
+        assertTrue(e.getMessage().contains("Snowy Mespilus"));
+    }
+}
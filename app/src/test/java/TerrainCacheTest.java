@@ -0,0 +1,186 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+
+import plantgen.ElevationMap;
+import plantgen.Precision;
+import plantgen.Terrain;
+import plantgen.TerrainCache;
+import plantgen.TerrainRaster;
+/*
+ * Test class for TerrainCache class
+ */
+
+public class TerrainCacheTest {
+    private double[][][] sunData = new double[][][] {
+            { { 9.4683, 10.4425, 10.9785 }, { 11.9607, 12.939, 13.8934 }, { 12.8804, 11.9212, 10.9962 } },
+            { { 10.48, 9.50823, 8.5186 }, { 9.4683, 10.4425, 11.0031 }, { 11.9607, 12.939, 13.8934 } },
+            { { 12.8803, 11.9211, 11.0191 }, { 10.4798, 9.50802, 8.52742 }, { 9.4683, 10.4425, 11.0244 } }
+    };
+
+    private double[][][] wetData = new double[][][] {
+            { { 3.65304, 0, 0 }, { 5.20001, 27.9409, 34.669 }, { 43.947, 44.45, 48.628 } },
+            { { 53.5561, 76.297, 36 }, { 3.19169, 0, 0 }, { 5.20003, 29.3251, 35.5917 } },
+            { { 44.4084, 44.4501, 48.1667 }, { 52.6334, 76.7584, 36.0001 }, { 2.81736, 0, 0 } }
+    };
+
+    /*
+     * Write the dummy data to a cache at a precision and load it back into a
+     * terrain at the same precision
+     */
+    private Terrain writeAndLoad(Precision precision, ElevationMap elvMap) throws IOException {
+        Path elvPath = Paths.get("src", "test", "resources", "dummyElv.txt");
+        Path sunPath = Paths.get("src", "test", "resources", "dummySun.txt");
+        String[] sources = { elvPath.toString(), sunPath.toString(), sunPath.toString(), sunPath.toString() };
+
+        elvMap.readData(elvPath.toString());
+
+        Path cachePath = Files.createTempDirectory("pgt").resolve("dummy.pgt");
+        TerrainCache.write(cachePath, sources, elvMap, TerrainRaster.fromLayers(sunData, precision),
+                TerrainRaster.fromLayers(sunData, precision), TerrainRaster.fromLayers(wetData, precision));
+
+        assertTrue(TerrainCache.isValid(cachePath, sources, precision));
+        Precision other = precision == Precision.DOUBLE ? Precision.FLOAT : Precision.DOUBLE;
+        assertFalse(TerrainCache.isValid(cachePath, sources, other));
+
+        Terrain terrain = new Terrain();
+        TerrainCache.open(cachePath).loadInto(terrain, precision);
+
+        assertEquals(3, terrain.getDimX());
+        assertEquals(3, terrain.getDimY());
+        assertEquals(3, terrain.getNumMonths());
+        assertEquals(0.9144f, terrain.getGridSpacing());
+        assertEquals(446.505, terrain.getMinElv());
+        assertEquals(451.531, terrain.getMaxElv());
+        assertEquals(precision, terrain.getSunlightData().getPrecision());
+
+        for (int x = 0; x < 3; x++) {
+            for (int y = 0; y < 3; y++) {
+                assertEquals(elvMap.getData()[x][y], terrain.getElevationData()[x][y]);
+            }
+        }
+        return terrain;
+    }
+
+    /*
+     * Test that data written to the cache at float precision is loaded back
+     * at float precision
+     */
+    @Test
+    public void testWriteAndLoadFloat() throws IOException {
+        Terrain terrain = writeAndLoad(Precision.FLOAT, new ElevationMap());
+
+        for (int x = 0; x < 3; x++) {
+            for (int y = 0; y < 3; y++) {
+                for (int m = 0; m < 3; m++) {
+                    assertEquals((float) sunData[m][x][y], terrain.getSunlightData().get(x, y, m));
+                    assertEquals((float) wetData[m][x][y], terrain.getWetData().get(x, y, m));
+                }
+            }
+        }
+    }
+
+    /*
+     * Test that data written to the cache at double precision is loaded back
+     * unchanged, not rounded to float
+     */
+    @Test
+    public void testWriteAndLoadDouble() throws IOException {
+        Terrain terrain = writeAndLoad(Precision.DOUBLE, new ElevationMap());
+
+        for (int x = 0; x < 3; x++) {
+            for (int y = 0; y < 3; y++) {
+                for (int m = 0; m < 3; m++) {
+                    assertEquals(sunData[m][x][y], terrain.getSunlightData().get(x, y, m));
+                    assertEquals(wetData[m][x][y], terrain.getWetData().get(x, y, m));
+                }
+            }
+        }
+    }
+
+    /*
+     * Write a 3x3 abiotic file with 12 months of data
+     */
+    private static void writeAbiotic(Path path, double offset) throws IOException {
+        StringBuilder text = new StringBuilder("3 3 0.9144\n");
+        for (int i = 0; i < 12 * 9; i++) {
+            text.append(offset + i / 7.0).append(' ');
+        }
+        Files.writeString(path, text);
+    }
+
+    /*
+     * Test that a terrain is loaded with exactly the same data with the cache
+     * off, on a cold cache and on a warm cache, in both precisions, and that
+     * the cache is only written when turned on
+     */
+    @Test
+    public void testReadTerrainMatchesText() throws IOException {
+        for (Precision precision : Precision.values()) {
+            Path dir = Files.createTempDirectory("pgt");
+            Path elvPath = dir.resolve("dummy.elv");
+            Files.copy(Paths.get("src", "test", "resources", "dummyElv.txt"), elvPath);
+            String[] sources = { elvPath.toString(), dir.resolve("sun.txt").toString(),
+                    dir.resolve("temp.txt").toString(), dir.resolve("wet.txt").toString() };
+            for (int i = 1; i < 4; i++) {
+                writeAbiotic(Paths.get(sources[i]), i * 3.3);
+            }
+            // Make sure the cache written below is newer than the sources
+            for (String source : sources) {
+                Files.setLastModifiedTime(Paths.get(source), FileTime.fromMillis(0));
+            }
+
+            Terrain[] terrains = new Terrain[3];
+            for (int t = 0; t < 3; t++) {
+                terrains[t] = new Terrain();
+                terrains[t].setPrecision(precision);
+                terrains[t].setCacheData(t > 0);
+                terrains[t].loadData(sources);
+                assertEquals(t > 0, Files.exists(TerrainCache.getCachePath(sources[0])));
+            }
+            assertTrue(TerrainCache.isValid(TerrainCache.getCachePath(sources[0]), sources, precision));
+
+            Terrain text = terrains[0];
+            for (Terrain terrain : terrains) {
+                assertEquals(text.getMinElv(), terrain.getMinElv());
+                assertEquals(text.getMaxElv(), terrain.getMaxElv());
+                assertEquals(precision, terrain.getSunlightData().getPrecision());
+                for (int x = 0; x < 3; x++) {
+                    assertArrayEquals(text.getElevationData()[x], terrain.getElevationData()[x]);
+                }
+                for (int i = 0; i < text.getSunlightData().size(); i++) {
+                    assertEquals(text.getSunlightData().get(i), terrain.getSunlightData().get(i));
+                    assertEquals(text.getTemperatureData().get(i), terrain.getTemperatureData().get(i));
+                    assertEquals(text.getWetData().get(i), terrain.getWetData().get(i));
+                }
+            }
+        }
+    }
+
+    /*
+     * Test that a cache written from different source files is not used
+     */
+    @Test
+    public void testInvalidForOtherSources() throws IOException {
+        Path elvPath = Paths.get("src", "test", "resources", "dummyElv.txt");
+        Path sunPath = Paths.get("src", "test", "resources", "dummySun.txt");
+        String[] sources = { elvPath.toString(), sunPath.toString(), sunPath.toString(), sunPath.toString() };
+        String[] otherSources = { elvPath.toString(), sunPath.toString(), elvPath.toString(), sunPath.toString() };
+
+        ElevationMap elvMap = new ElevationMap();
+        elvMap.readData(elvPath.toString());
+
+        Path cachePath = Files.createTempDirectory("pgt").resolve("dummy.pgt");
+        assertFalse(TerrainCache.isValid(cachePath, sources, Precision.DOUBLE));
+
+        TerrainCache.write(cachePath, sources, elvMap, TerrainRaster.fromLayers(sunData),
+                TerrainRaster.fromLayers(sunData), TerrainRaster.fromLayers(wetData));
+
+        assertFalse(TerrainCache.isValid(cachePath, otherSources, Precision.DOUBLE));
+    }
+}
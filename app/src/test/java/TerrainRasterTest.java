@@ -0,0 +1,76 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import plantgen.Precision;
+import plantgen.TerrainRaster;
+/*
+ * Test class for TerrainRaster class
+ */
+
+public class TerrainRasterTest {
+    private double[][][] layers = new double[][][] {
+            { { 9.4683, 10.4425, 10.9785 }, { 11.9607, 12.939, 13.8934 } },
+            { { 10.48, 9.50823, 8.5186 }, { 9.4683, 10.4425, 11.0031 } },
+            { { 12.8803, 11.9211, 11.0191 }, { 10.4798, 9.50802, 8.52742 } }
+    };
+
+    /*
+     * Test that the monthly values of a pixel are stored next to each other
+     */
+    @Test
+    public void testPixelInterleavedLayout() {
+        TerrainRaster raster = TerrainRaster.fromLayers(layers);
+
+        assertEquals(2, raster.getDimX());
+        assertEquals(3, raster.getDimY());
+        assertEquals(3, raster.getNumLayers());
+
+        int pixel = raster.index(1, 2);
+        assertEquals(15, pixel);
+        for (int m = 0; m < 3; m++) {
+            assertEquals(layers[m][1][2], raster.get(pixel + m));
+        }
+    }
+
+    /*
+     * Test that converting to layers and copying keep every value
+     */
+    @Test
+    public void testToLayersAndCopy() {
+        TerrainRaster raster = TerrainRaster.fromLayers(layers);
+        TerrainRaster copy = raster.copy();
+
+        raster.set(0, 0, 0, 4000.05);
+
+        double[][][] copied = copy.toLayers();
+        for (int m = 0; m < 3; m++) {
+            for (int x = 0; x < 2; x++) {
+                assertArrayEquals(layers[m][x], copied[m][x]);
+            }
+        }
+        assertEquals(4000.05, raster.toLayers()[0][0][0]);
+    }
+
+    /*
+     * Test that a float raster holds the float rounded values and half the bytes
+     * of a double raster
+     */
+    @Test
+    public void testFloatPrecision() {
+        TerrainRaster doubleRaster = TerrainRaster.fromLayers(layers);
+        TerrainRaster floatRaster = TerrainRaster.fromLayers(layers, Precision.FLOAT);
+
+        assertEquals(Precision.FLOAT, floatRaster.getPrecision());
+        assertEquals(Precision.FLOAT, floatRaster.copy().getPrecision());
+        assertEquals(doubleRaster.getSizeInBytes() / 2, floatRaster.getSizeInBytes());
+
+        for (int m = 0; m < 3; m++) {
+            for (int x = 0; x < 2; x++) {
+                for (int y = 0; y < 3; y++) {
+                    assertEquals((float) layers[m][x][y], floatRaster.get(x, y, m));
+                    assertEquals(layers[m][x][y], floatRaster.get(x, y, m), 1e-5);
+                }
+            }
+        }
+    }
+}
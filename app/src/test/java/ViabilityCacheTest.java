@@ -0,0 +1,152 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import plantgen.Precision;
+import plantgen.Species;
+import plantgen.TerrainRaster;
+import plantgen.ViabilityCache;
+/*
+ * Test class for ViabilityCache class
+ */
+
+public class ViabilityCacheTest {
+    private Path resources = Paths.get("src", "test", "resources");
+
+    /*
+     * Copy the test inputs to a temporary directory, so that they can be
+     * changed
+     */
+    private String[] copySources(Path dir) throws IOException {
+        String[] names = { "dummyElv.txt", "dummySun.txt", "dummySun.txt", "dummySun.txt", "species-data.csv" };
+        String[] sources = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            Path copy = dir.resolve(i + "-" + names[i]);
+            Files.copy(resources.resolve(names[i]), copy);
+            sources[i] = copy.toString();
+        }
+        return sources;
+    }
+
+    private Species[] loadSpecies(String path) {
+        Species.initialiseSpeciesData(path);
+        return new Species[] { new Species("Boxwood"), new Species("Silver Birch") };
+    }
+
+    /*
+     * Write rasters of the given precision to a cache and open it again
+     */
+    private ViabilityCache writeAndOpen(Precision precision, TerrainRaster slope, TerrainRaster adaptation)
+            throws IOException {
+        Path dir = Files.createTempDirectory("pgv");
+        String[] sources = copySources(dir);
+        byte[] key = ViabilityCache.computeKey(sources, loadSpecies(sources[4]), false, precision);
+
+        for (int i = 0; i < slope.size(); i++) {
+            slope.set(i, i * 1.1);
+        }
+        for (int i = 0; i < adaptation.size(); i++) {
+            adaptation.set(i, i / 7.0 - 0.2);
+        }
+
+        Path cachePath = ViabilityCache.getCachePath(sources[0]);
+        assertFalse(ViabilityCache.isValid(cachePath, key));
+        ViabilityCache.write(cachePath, key, slope, adaptation);
+        assertTrue(ViabilityCache.isValid(cachePath, key));
+
+        ViabilityCache cache = ViabilityCache.open(cachePath);
+        assertEquals(3, cache.getStaticAdaptation().getDimX());
+        assertEquals(2, cache.getStaticAdaptation().getDimY());
+        assertEquals(4, cache.getStaticAdaptation().getNumLayers());
+        assertEquals(precision, cache.getSlopeData().getPrecision());
+        assertEquals(precision, cache.getStaticAdaptation().getPrecision());
+        return cache;
+    }
+
+    /*
+     * Test that float rasters written to the cache are read back unchanged
+     */
+    @Test
+    public void testWriteAndOpenFloat() throws IOException {
+        TerrainRaster slope = TerrainRaster.create(3, 2, 1, Precision.FLOAT);
+        TerrainRaster adaptation = TerrainRaster.create(3, 2, 4, Precision.FLOAT);
+        ViabilityCache cache = writeAndOpen(Precision.FLOAT, slope, adaptation);
+
+        for (int i = 0; i < slope.size(); i++) {
+            assertEquals(slope.get(i), cache.getSlopeData().get(i));
+        }
+        for (int i = 0; i < adaptation.size(); i++) {
+            assertEquals(adaptation.get(i), cache.getStaticAdaptation().get(i));
+        }
+    }
+
+    /*
+     * Test that double rasters written to the cache are read back at double
+     * precision, not rounded to float
+     */
+    @Test
+    public void testWriteAndOpenDouble() throws IOException {
+        TerrainRaster slope = TerrainRaster.create(3, 2, 1, Precision.DOUBLE);
+        TerrainRaster adaptation = TerrainRaster.create(3, 2, 4, Precision.DOUBLE);
+        ViabilityCache cache = writeAndOpen(Precision.DOUBLE, slope, adaptation);
+
+        for (int i = 0; i < slope.size(); i++) {
+            assertEquals(slope.get(i), cache.getSlopeData().get(i));
+        }
+        for (int i = 0; i < adaptation.size(); i++) {
+            assertEquals(adaptation.get(i), cache.getStaticAdaptation().get(i));
+        }
+        assertNotEquals((double) (float) adaptation.get(1), cache.getStaticAdaptation().get(1));
+    }
+
+    /*
+     * Test that the key follows the file contents, species and settings, not
+     * the file times
+     */
+    @Test
+    public void testKey() throws IOException {
+        Path dir = Files.createTempDirectory("pgv");
+        String[] sources = copySources(dir);
+        Species[] species = loadSpecies(sources[4]);
+        byte[] key = ViabilityCache.computeKey(sources, species);
+
+        Files.setLastModifiedTime(Paths.get(sources[2]), Files.getLastModifiedTime(Paths.get(sources[2])));
+        assertArrayEquals(key, ViabilityCache.computeKey(sources, species));
+
+        assertFalse(Arrays.equals(key, ViabilityCache.computeKey(sources, species, false, Precision.DOUBLE)));
+        assertFalse(Arrays.equals(key, ViabilityCache.computeKey(sources, species, true, Precision.FLOAT)));
+
+        Species[] reversed = { species[1], species[0] };
+        assertFalse(Arrays.equals(key, ViabilityCache.computeKey(sources, reversed)));
+
+        Files.writeString(Paths.get(sources[3]), " ", StandardOpenOption.APPEND);
+        assertFalse(Arrays.equals(key, ViabilityCache.computeKey(sources, species)));
+    }
+
+    /*
+     * Test that a truncated cache is not used
+     */
+    @Test
+    public void testTruncated() throws IOException {
+        Path dir = Files.createTempDirectory("pgv");
+        String[] sources = copySources(dir);
+        byte[] key = ViabilityCache.computeKey(sources, loadSpecies(sources[4]));
+
+        Path cachePath = ViabilityCache.getCachePath(sources[0]);
+        ViabilityCache.write(cachePath, key, TerrainRaster.create(4, 4, 1, Precision.FLOAT),
+                TerrainRaster.create(4, 4, 24, Precision.FLOAT));
+        assertTrue(ViabilityCache.isValid(cachePath, key));
+
+        try (FileChannel channel = FileChannel.open(cachePath, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 4);
+        }
+        assertFalse(ViabilityCache.isValid(cachePath, key));
+    }
+}
@@ -3,11 +3,11 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
 
 import plantgen.Coordinate;
 import plantgen.Species;
 import plantgen.Terrain;
+import plantgen.TerrainRaster;
 import plantgen.ViabilityCalculator;
 /*
  * Test class for ViabilityCalculator class 
@@ -52,9 +52,9 @@ public class ViabilityCalcTest {
         mockTerrain.setNumMonths(3);
         mockTerrain.setElevationData(slopeData);
         mockTerrain.setGridSpacing(0.9144f);
-        mockTerrain.setSunlightData(sunData);
-        mockTerrain.setTemperatureData(tempData);
-        mockTerrain.setWetData(wetData);
+        mockTerrain.setSunlightData(TerrainRaster.fromLayers(sunData));
+        mockTerrain.setTemperatureData(TerrainRaster.fromLayers(tempData));
+        mockTerrain.setWetData(TerrainRaster.fromLayers(wetData));
 
         Path resourcePath = Paths.get("src", "test", "resources", "species-data.csv");
 
@@ -85,9 +85,9 @@ public class ViabilityCalcTest {
         mockTerrain.setNumMonths(3);
         mockTerrain.setElevationData(slopeData);
         mockTerrain.setGridSpacing(0.9144f);
-        mockTerrain.setSunlightData(sunData);
-        mockTerrain.setTemperatureData(tempData);
-        mockTerrain.setWetData(wetData);
+        mockTerrain.setSunlightData(TerrainRaster.fromLayers(sunData));
+        mockTerrain.setTemperatureData(TerrainRaster.fromLayers(tempData));
+        mockTerrain.setWetData(TerrainRaster.fromLayers(wetData));
 
         Path resourcePath = Paths.get("src", "test", "resources", "species-data.csv");
 
@@ -113,9 +113,9 @@ public class ViabilityCalcTest {
         mockTerrain.setNumMonths(3);
         mockTerrain.setElevationData(slopeData);
         mockTerrain.setGridSpacing(0.9144f);
-        mockTerrain.setSunlightData(sunData);
-        mockTerrain.setTemperatureData(tempData);
-        mockTerrain.setWetData(wetData);
+        mockTerrain.setSunlightData(TerrainRaster.fromLayers(sunData));
+        mockTerrain.setTemperatureData(TerrainRaster.fromLayers(tempData));
+        mockTerrain.setWetData(TerrainRaster.fromLayers(wetData));
 
         Path resourcePath = Paths.get("src", "test", "resources", "species-data.csv");
 
@@ -143,9 +143,9 @@ public class ViabilityCalcTest {
         mockTerrain.setNumMonths(3);
         mockTerrain.setElevationData(slopeData);
         mockTerrain.setGridSpacing(0.9144f);
-        mockTerrain.setSunlightData(sunData);
-        mockTerrain.setTemperatureData(tempData);
-        mockTerrain.setWetData(wetData);
+        mockTerrain.setSunlightData(TerrainRaster.fromLayers(sunData));
+        mockTerrain.setTemperatureData(TerrainRaster.fromLayers(tempData));
+        mockTerrain.setWetData(TerrainRaster.fromLayers(wetData));
 
         Path resourcePath = Paths.get("src", "test", "resources", "species-data.csv");
 
@@ -156,13 +156,11 @@ public class ViabilityCalcTest {
 
         Coordinate testCoord = new Coordinate(1, 1);
 
-        ArrayList<Double> actualViability = vc.calculateAverageViability(testCoord);
+        double[] actualViability = vc.calculateAverageViability(testCoord);
 
-        ArrayList<Double> expectedViability = new ArrayList<Double>();
-        expectedViability.add(0.0);
-        expectedViability.add(0.0);
+        double[] expectedViability = { 0.0, 0.0 };
 
-        assertEquals(expectedViability.get(0), actualViability.get(0), 0.01);
-        assertEquals(expectedViability.get(1), actualViability.get(1), 0.01);
+        assertEquals(expectedViability[0], actualViability[0], 0.01);
+        assertEquals(expectedViability[1], actualViability[1], 0.01);
     }
 }
\ No newline at end of file
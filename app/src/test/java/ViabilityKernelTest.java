@@ -0,0 +1,170 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+import plantgen.Coordinate;
+import plantgen.PhaseScheduler;
+import plantgen.Precision;
+import plantgen.Species;
+import plantgen.Terrain;
+import plantgen.TerrainRaster;
+import plantgen.ViabilityCalculator;
+/*
+ * Test class for ViabilityKernel class, comparing the vectorised viabilities
+ * with the scalar calculation
+ */
+
+public class ViabilityKernelTest {
+    private static final String[] NAMES = { "Boxwood", "Snowy Mespilus", "Mountain Pine", "Silve Fir",
+            "Silver Birch", "Sessile Oak", "European Beech" };
+
+    private Species[] loadSpecies() {
+        Path resourcePath = Paths.get("src", "test", "resources", "species-data.csv");
+        Species.initialiseSpeciesData(resourcePath.toString());
+
+        Species[] species = new Species[NAMES.length];
+        for (int i = 0; i < NAMES.length; i++) {
+            species[i] = new Species(NAMES[i]);
+        }
+        return species;
+    }
+
+    private double[][][] randomLayers(int months, int dim, double min, double max, SplittableRandom random) {
+        double[][][] layers = new double[months][dim][dim];
+        for (double[][] layer : layers) {
+            for (double[] row : layer) {
+                for (int y = 0; y < dim; y++) {
+                    row[y] = random.nextDouble(min, max);
+                }
+            }
+        }
+        return layers;
+    }
+
+    private Terrain randomTerrain(int months, int dim, Precision precision, SplittableRandom random) {
+        Terrain terrain = new Terrain();
+        terrain.setDimX(dim);
+        terrain.setDimY(dim);
+        terrain.setNumMonths(months);
+        terrain.setGridSpacing(0.9144f);
+        terrain.setSunlightData(TerrainRaster.fromLayers(randomLayers(months, dim, 0, 15, random), precision));
+        terrain.setTemperatureData(TerrainRaster.fromLayers(randomLayers(months, dim, -5, 30, random), precision));
+        terrain.setWetData(TerrainRaster.fromLayers(randomLayers(months, dim, 0, 80, random), precision));
+        return terrain;
+    }
+
+    /*
+     * Compare the kernel with the scalar calculation at random coordinates
+     */
+    private void assertMatchesScalar(int months, Precision precision, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int dim = 32;
+        Terrain terrain = randomTerrain(months, dim, precision, random);
+        TerrainRaster slope = TerrainRaster.fromLayers(randomLayers(1, dim, 0, 90, random), precision);
+
+        Species[] species = loadSpecies();
+        ViabilityCalculator vc = new ViabilityCalculator(terrain, species, slope);
+        assertTrue(vc.isVectorised());
+
+        double[] expected = new double[species.length];
+        double[] actual = new double[species.length];
+        int viable = 0;
+        for (int i = 0; i < 2000; i++) {
+            float x = (float) random.nextDouble(dim - 1);
+            float y = (float) random.nextDouble(dim - 1);
+
+            vc.calculateAverageViabilityScalar(x, y, expected);
+            vc.calculateAverageViability(x, y, actual);
+            for (int j = 0; j < species.length; j++) {
+                assertEquals(expected[j], actual[j], 1e-12);
+                if (expected[j] > 0) {
+                    viable++;
+                }
+            }
+        }
+
+        // Make sure that the comparison covers non-zero viabilities
+        assertTrue(viable > 1000);
+    }
+
+    /*
+     * Test the kernel against the scalar calculation with a year of data
+     */
+    @Test
+    public void testTwelveMonths() {
+        assertMatchesScalar(12, Precision.DOUBLE, 1);
+    }
+
+    /*
+     * Test the kernel with a number of months that does not fill the vectors
+     */
+    @Test
+    public void testPartialVector() {
+        assertMatchesScalar(3, Precision.DOUBLE, 2);
+        assertMatchesScalar(5, Precision.DOUBLE, 3);
+    }
+
+    /*
+     * Test the kernel on single precision terrain data
+     */
+    @Test
+    public void testFloatPrecision() {
+        assertMatchesScalar(12, Precision.FLOAT, 4);
+    }
+
+    /*
+     * Test that the coordinate method also uses the kernel
+     */
+    @Test
+    public void testCoordinate() {
+        SplittableRandom random = new SplittableRandom(5);
+        Terrain terrain = randomTerrain(12, 8, Precision.DOUBLE, random);
+        TerrainRaster slope = TerrainRaster.fromLayers(randomLayers(1, 8, 0, 30, random));
+
+        ViabilityCalculator vc = new ViabilityCalculator(terrain, loadSpecies(), slope);
+        Coordinate c = new Coordinate(3.2f, 4.7f);
+
+        double[] expected = new double[NAMES.length];
+        vc.calculateAverageViabilityScalar(c.getX(), c.getY(), expected);
+        assertArrayEquals(expected, vc.calculateAverageViability(c), 1e-12);
+    }
+
+    /*
+     * Test the precomputed temperature and slope adaptation, with and without
+     * the kernel, against the scalar calculation
+     */
+    @Test
+    public void testStaticAdaptation() {
+        PhaseScheduler scheduler = new PhaseScheduler(2);
+        for (boolean vector : new boolean[] { true, false }) {
+            SplittableRandom random = new SplittableRandom(6);
+            int dim = 24;
+            Terrain terrain = randomTerrain(12, dim, Precision.DOUBLE, random);
+            TerrainRaster slope = TerrainRaster.fromLayers(randomLayers(1, dim, 0, 40, random));
+
+            System.setProperty("plantgen.vector", Boolean.toString(vector));
+            ViabilityCalculator vc = new ViabilityCalculator(terrain, loadSpecies(), slope);
+            System.clearProperty("plantgen.vector");
+            vc.setTable(null);
+            assertEquals(vector, vc.isVectorised());
+
+            vc.precomputeStaticAdaptation(scheduler);
+            assertTrue(vc.hasStaticAdaptation());
+
+            double[] expected = new double[NAMES.length];
+            double[] actual = new double[NAMES.length];
+            for (int i = 0; i < 500; i++) {
+                float x = (float) random.nextDouble(dim - 1);
+                float y = (float) random.nextDouble(dim - 1);
+
+                vc.calculateAverageViabilityScalar(x, y, expected);
+                vc.calculateAverageViability(x, y, actual);
+                assertArrayEquals(expected, actual, 1e-12);
+            }
+        }
+        scheduler.shutdown();
+    }
+}